@@ -21,45 +21,126 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.ResultSetHandler;
 
+import azkaban.utils.BinaryObjectFormat;
+import azkaban.utils.CompressionCodec;
+import azkaban.utils.GZIPUtils;
+import azkaban.utils.JSONUtils;
 import azkaban.utils.Props;
+import azkaban.utils.ZstdCodec;
 
 /**
  * 抽象类，提供数据库获取连接等功能
  */
 public abstract class AbstractJdbcLoader {
   /**
+   * <pre>
    * Used for when we store text data. Plain uses UTF8 encoding.
+   * Note:
+   * 1. the number is stored with the row, so a row stays readable whatever
+   *    encoding the table is configured to write later
+   * 2. an unknown number reads as plain, as before
+   * </pre>
    */
   public static enum EncodingType {
-    PLAIN(1), GZIP(2);
+    PLAIN(1, null, false), GZIP(2, GZIPUtils.getCodec(), false), ZSTD(3,
+        new ZstdCodec(3), false), BINARY(4, GZIPUtils.getCodec(), true);
 
     private int numVal;
+    private CompressionCodec codec;
+    /** 对象树用{@link BinaryObjectFormat}而不是json表示 */
+    private boolean binaryFormat;
 
-    EncodingType(int numVal) {
+    EncodingType(int numVal, CompressionCodec codec, boolean binaryFormat) {
       this.numVal = numVal;
+      this.codec = codec;
+      this.binaryFormat = binaryFormat;
     }
 
     public int getNumVal() {
       return numVal;
     }
 
+    public boolean isBinaryFormat() {
+      return binaryFormat;
+    }
+
+    /**
+     * Encodes an object tree of maps, lists and values, the form the toObject
+     * methods return. Blobs that aren't object trees, the logs, are only
+     * compressed.
+     */
+    public byte[] encodeObject(Object obj) throws IOException {
+      byte[] data =
+          binaryFormat ? BinaryObjectFormat.encode(obj) : JSONUtils.toJSON(obj)
+              .getBytes("UTF-8");
+      return encode(data);
+    }
+
+    public Object decodeObject(byte[] data) throws IOException {
+      byte[] decoded = decode(data);
+      if (binaryFormat) {
+        return BinaryObjectFormat.decode(decoded);
+      }
+      return JSONUtils.parseJSONFromString(new String(decoded, "UTF-8"));
+    }
+
+    /**
+     * Returns the encoded bytes, the same array for plain.
+     */
+    public byte[] encode(byte[] data) throws IOException {
+      return codec == null ? data : codec.compress(data, 0, data.length);
+    }
+
+    public byte[] encode(byte[] data, int offset, int length)
+        throws IOException {
+      if (codec == null) {
+        return offset == 0 && length == data.length ? data : Arrays
+            .copyOfRange(data, offset, offset + length);
+      }
+      return codec.compress(data, offset, length);
+    }
+
+    public byte[] decode(byte[] data) throws IOException {
+      return codec == null ? data : codec.decompress(data);
+    }
+
     public static EncodingType fromInteger(int x) {
       switch (x) {
       case 1:
         return PLAIN;
       case 2:
         return GZIP;
+      case 3:
+        return ZSTD;
+      case 4:
+        return BINARY;
       default:
         return PLAIN;
       }
     }
   }
 
+  /** 按表配置写入时使用的编码，如azkaban.db.encoding.execution_flows=ZSTD */
+  private static final String DB_ENCODING_PREFIX = "azkaban.db.encoding.";
+
+  /**
+   * Returns the encoding the rows of the table are written with.
+   */
+  protected static EncodingType getTableEncodingType(Props props,
+      String table, EncodingType defaultType) {
+    String name = props.getString(DB_ENCODING_PREFIX + table, null);
+    if (name == null) {
+      return defaultType;
+    }
+    return EncodingType.valueOf(name.trim().toUpperCase());
+  }
+
   private AzkabanDataSource dataSource;
 
   public AbstractJdbcLoader(Props props) {
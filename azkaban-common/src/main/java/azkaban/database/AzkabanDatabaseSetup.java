@@ -250,7 +250,8 @@ public class AzkabanDatabaseSetup {
 
     /**
      * 查找出就版本的表,放入更新列表中,
-     * 依据：根据SQL脚本路径查看这个表有没有对应的更新表脚本;缺失的表
+     * 依据：根据SQL脚本路径查看这个表有没有对应的更新表脚本;
+     * 缺失的表由创建脚本直接建成当前版本，不再执行更新脚本
      */
   private void findOutOfDateTables() {
     for (String key : tables.keySet()) {
@@ -261,12 +262,6 @@ public class AzkabanDatabaseSetup {
         upgradeList.put(key, upgradeVersions);
       }
     }
-    for (String key : missingTables) {
-      List<String> upgradeVersions = findOutOfDateTable(key, "");
-      if (upgradeVersions != null && !upgradeVersions.isEmpty()) {
-        upgradeList.put(key, upgradeVersions);
-      }
-    }
   }
 
   private List<String> findOutOfDateTable(String table, String currentVersion) {
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package azkaban.executor;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import azkaban.utils.Pair;
+
+/**
+ * <pre>
+ * 活动执行（排队中和已分发）的登记表，按执行id保存，
+ * 并按任务流、执行节点和分发状态建立二级索引
+ * Note:
+ * 1. an execution is active from its submission until it is finalized,
+ *    also while the queue processor holds it between the queue and an
+ *    executor
+ * 2. reads don't lock and don't copy. The returned collections are live,
+ *    weakly consistent views: an execution added or removed meanwhile may
+ *    or may not show up, nothing is seen twice
+ * 3. writes are serialized, so the indexes always agree with each other
+ *    once a write returns
+ * 4. the execution ids of an index are sorted ascending
+ * </pre>
+ */
+public class ActiveExecutions {
+  private final ConcurrentHashMap<Integer, Pair<ExecutionReference, ExecutableFlow>> executions =
+      new ConcurrentHashMap<Integer, Pair<ExecutionReference, ExecutableFlow>>();
+  private final ConcurrentHashMap<String, NavigableSet<Integer>> byFlow =
+      new ConcurrentHashMap<String, NavigableSet<Integer>>();
+  private final ConcurrentHashMap<Integer, NavigableSet<Integer>> byExecutor =
+      new ConcurrentHashMap<Integer, NavigableSet<Integer>>();
+  /** 建立索引时的执行节点，引用中的执行节点可能已被修改 */
+  private final Map<Integer, Integer> indexedExecutors =
+      new ConcurrentHashMap<Integer, Integer>();
+  private final NavigableSet<Integer> queued =
+      new ConcurrentSkipListSet<Integer>();
+  private final NavigableSet<Integer> dispatched =
+      new ConcurrentSkipListSet<Integer>();
+
+  /**
+   * Adds the execution, or updates its executor if it is already active. An
+   * execution with an executor counts as dispatched.
+   */
+  public synchronized void put(ExecutionReference reference,
+      ExecutableFlow flow) {
+    int execId = flow.getExecutionId();
+    Pair<ExecutionReference, ExecutableFlow> old =
+        executions.put(execId, new Pair<ExecutionReference, ExecutableFlow>(
+            reference, flow));
+    if (old != null) {
+      unindexExecutor(execId);
+    } else {
+      index(byFlow, getFlowKey(flow.getProjectId(), flow.getFlowId()), execId);
+    }
+
+    Executor executor = reference.getExecutor();
+    if (executor != null) {
+      index(byExecutor, executor.getId(), execId);
+      indexedExecutors.put(execId, executor.getId());
+      queued.remove(execId);
+      dispatched.add(execId);
+    } else {
+      dispatched.remove(execId);
+      queued.add(execId);
+    }
+  }
+
+  public synchronized Pair<ExecutionReference, ExecutableFlow> remove(
+      int execId) {
+    Pair<ExecutionReference, ExecutableFlow> old = executions.remove(execId);
+    if (old != null) {
+      ExecutableFlow flow = old.getSecond();
+      unindex(byFlow, getFlowKey(flow.getProjectId(), flow.getFlowId()),
+          execId);
+      unindexExecutor(execId);
+      queued.remove(execId);
+      dispatched.remove(execId);
+    }
+    return old;
+  }
+
+  public Pair<ExecutionReference, ExecutableFlow> get(int execId) {
+    return executions.get(execId);
+  }
+
+  public boolean contains(int execId) {
+    return executions.containsKey(execId);
+  }
+
+  public int size() {
+    return executions.size();
+  }
+
+  public Collection<Pair<ExecutionReference, ExecutableFlow>> getAll() {
+    return Collections.unmodifiableCollection(executions.values());
+  }
+
+  public boolean isFlowActive(int projectId, String flowId) {
+    return !getExecutionIds(projectId, flowId).isEmpty();
+  }
+
+  public NavigableSet<Integer> getExecutionIds(int projectId, String flowId) {
+    return view(byFlow.get(getFlowKey(projectId, flowId)));
+  }
+
+  public NavigableSet<Integer> getExecutionIds(Executor executor) {
+    return view(byExecutor.get(executor.getId()));
+  }
+
+  /**
+   * Returns the executions waiting in the queue of the web server.
+   */
+  public NavigableSet<Integer> getQueuedExecutionIds() {
+    return Collections.unmodifiableNavigableSet(queued);
+  }
+
+  /**
+   * Returns the executions handed to an executor.
+   */
+  public NavigableSet<Integer> getDispatchedExecutionIds() {
+    return Collections.unmodifiableNavigableSet(dispatched);
+  }
+
+  private void unindexExecutor(int execId) {
+    Integer executorId = indexedExecutors.remove(execId);
+    if (executorId != null) {
+      unindex(byExecutor, executorId, execId);
+    }
+  }
+
+  private static <K> void index(Map<K, NavigableSet<Integer>> index, K key,
+      int execId) {
+    NavigableSet<Integer> ids = index.get(key);
+    if (ids == null) {
+      ids = new ConcurrentSkipListSet<Integer>();
+      index.put(key, ids);
+    }
+    ids.add(execId);
+  }
+
+  private static <K> void unindex(Map<K, NavigableSet<Integer>> index, K key,
+      int execId) {
+    NavigableSet<Integer> ids = index.get(key);
+    if (ids != null) {
+      ids.remove(execId);
+      // an empty set may be read right now, the next index() makes a new one
+      if (ids.isEmpty()) {
+        index.remove(key);
+      }
+    }
+  }
+
+  private static NavigableSet<Integer> view(NavigableSet<Integer> ids) {
+    if (ids == null) {
+      return Collections.emptyNavigableSet();
+    }
+    return Collections.unmodifiableNavigableSet(ids);
+  }
+
+  private static String getFlowKey(int projectId, String flowId) {
+    return projectId + "." + flowId;
+  }
+}
@@ -25,10 +25,12 @@ public interface ConnectorParams {
   public static final String EXECID_PARAM = "execid";
   public static final String SHAREDTOKEN_PARAM = "token";
   public static final String USER_PARAM = "user";
+  public static final String LOG_STREAM_PARAM = "stream";
 
   public static final String UPDATE_ACTION = "update";
   public static final String STATUS_ACTION = "status";
   public static final String EXECUTE_ACTION = "execute";
+  public static final String EXECUTE_BATCH_ACTION = "executeBatch";
   public static final String CANCEL_ACTION = "cancel";
   public static final String PAUSE_ACTION = "pause";
   public static final String RESUME_ACTION = "resume";
@@ -37,6 +39,12 @@ public interface ConnectorParams {
   public static final String ATTACHMENTS_ACTION = "attachments";
   public static final String METADATA_ACTION = "metadata";
   public static final String RELOAD_JOBTYPE_PLUGINS_ACTION = "reloadJobTypePlugins";
+  public static final String PREWARM_PROJECT_ACTION = "prewarmProject";
+  public static final String PROJECT_ID_PARAM = "projectId";
+  public static final String PROJECT_VERSION_PARAM = "projectVersion";
+  public static final String WATCH_ACTION = "watch";
+  public static final String WATCHED_STATUS_ACTION = "watchedStatus";
+  public static final String WATCHER_PARAM = "watcher";
 
   public static final String MODIFY_EXECUTION_ACTION = "modifyExecution";
   public static final String MODIFY_EXECUTION_ACTION_TYPE = "modifyType";
@@ -61,6 +69,8 @@ public interface ConnectorParams {
   public static final String RESPONSE_ALIVE = "alive";
   public static final String RESPONSE_UPDATETIME = "lasttime";
   public static final String RESPONSE_UPDATED_FLOWS = "updated";
+  public static final String RESPONSE_FAILED_FLOWS = "failed";
+  public static final String RESPONSE_REJECTED_FLOWS = "rejected";
 
   public static final int NODE_NAME_INDEX = 0;
   public static final int NODE_STATUS_INDEX = 1;
@@ -15,6 +15,7 @@
  */
 package azkaban.executor;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -23,6 +24,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.codehaus.jackson.JsonGenerator;
+
 import azkaban.flow.Flow;
 import azkaban.project.Project;
 import azkaban.utils.TypedMapWrapper;
@@ -224,6 +227,40 @@ public class ExecutableFlow extends ExecutableFlowBase {
     return flowObj;
   }
 
+  /**
+   * The execution options are still written from their map, so the generator
+   * has to come from {@link azkaban.utils.JSONUtils#createJsonGenerator}.
+   */
+  @Override
+  protected void writeJsonFields(JsonGenerator generator) throws IOException {
+    super.writeJsonFields(generator);
+
+    generator.writeNumberField(EXECUTIONID_PARAM, executionId);
+    generator.writeStringField(EXECUTIONPATH_PARAM, executionPath);
+    generator.writeNumberField(PROJECTID_PARAM, projectId);
+    generator.writeStringField(PROJECTNAME_PARAM, projectName);
+
+    if (scheduleId >= 0) {
+      generator.writeNumberField(SCHEDULEID_PARAM, scheduleId);
+    }
+
+    generator.writeStringField(SUBMITUSER_PARAM, submitUser);
+    generator.writeNumberField(VERSION_PARAM, version);
+    generator.writeNumberField(LASTMODIFIEDTIME_PARAM, lastModifiedTimestamp);
+    generator.writeStringField(LASTMODIFIEDUSER_PARAM, lastModifiedUser);
+
+    generator.writeFieldName(EXECUTIONOPTIONS_PARAM);
+    generator.writeObject(this.executionOptions.toObject());
+
+    generator.writeArrayFieldStart(PROXYUSERS_PARAM);
+    for (String proxyUser : proxyUsers) {
+      generator.writeString(proxyUser);
+    }
+    generator.writeEndArray();
+
+    generator.writeNumberField(SUBMITTIME_PARAM, submitTime);
+  }
+
     /**
      * 根据配置信息生成任务对象
      * @param obj
@@ -278,6 +315,13 @@ public class ExecutableFlow extends ExecutableFlowBase {
     return updateData;
   }
 
+  @Override
+  protected void writeUpdateJsonFields(JsonGenerator generator,
+      long lastUpdateTime) throws IOException {
+    super.writeUpdateJsonFields(generator, lastUpdateTime);
+    generator.writeNumberField(EXECUTIONID_PARAM, this.executionId);
+  }
+
   @Override
   public void resetForRetry() {
     super.resetForRetry();
@@ -15,12 +15,15 @@
  */
 package azkaban.executor;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.codehaus.jackson.JsonGenerator;
+
 import azkaban.flow.Edge;
 import azkaban.flow.Flow;
 import azkaban.flow.FlowProps;
@@ -283,6 +286,32 @@ public class ExecutableFlowBase extends ExecutableNode {
     flowObjMap.put(PROPERTIES_PARAM, props);
   }
 
+  @Override
+  protected void writeJsonFields(JsonGenerator generator) throws IOException {
+    super.writeJsonFields(generator);
+
+    generator.writeStringField(FLOW_ID_PARAM, flowId);
+
+    generator.writeArrayFieldStart(NODES_PARAM);
+    for (ExecutableNode node : executableNodes.values()) {
+      node.writeJson(generator);
+    }
+    generator.writeEndArray();
+
+    // Flow properties
+    generator.writeArrayFieldStart(PROPERTIES_PARAM);
+    for (FlowProps fprop : flowProps.values()) {
+      generator.writeStartObject();
+      generator.writeStringField(SOURCE_PARAM, fprop.getSource());
+      String inheritedSource = fprop.getInheritedSource();
+      if (inheritedSource != null) {
+        generator.writeStringField(INHERITED_PARAM, inheritedSource);
+      }
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+  }
+
   @Override
   public void fillExecutableFromMapObject(
       TypedMapWrapper<String, Object> flowObjMap) {
@@ -361,6 +390,60 @@ public class ExecutableFlowBase extends ExecutableNode {
     return updateData;
   }
 
+  /**
+   * <pre>
+   * 将任务流的更新写为json，内容与{@link #toUpdateObject(long)}相同
+   * Note:
+   * 1. a stream can't take back a node once it is written, so the subflows
+   *    are checked for updated descendants before they are written
+   * </pre>
+   */
+  public void writeUpdateJson(JsonGenerator generator, long lastUpdateTime)
+      throws IOException {
+    generator.writeStartObject();
+    writeUpdateJsonFields(generator, lastUpdateTime);
+    generator.writeEndObject();
+  }
+
+  protected void writeUpdateJsonFields(JsonGenerator generator,
+      long lastUpdateTime) throws IOException {
+    super.writeUpdateJsonFields(generator);
+
+    if (!hasUpdatedNodes(lastUpdateTime)) {
+      return;
+    }
+
+    generator.writeArrayFieldStart(NODES_PARAM);
+    for (ExecutableNode node : executableNodes.values()) {
+      if (node instanceof ExecutableFlowBase) {
+        ExecutableFlowBase subFlow = (ExecutableFlowBase) node;
+        if (node.getUpdateTime() > lastUpdateTime
+            || subFlow.hasUpdatedNodes(lastUpdateTime)) {
+          subFlow.writeUpdateJson(generator, lastUpdateTime);
+        }
+      } else if (node.getUpdateTime() > lastUpdateTime) {
+        node.writeUpdateJson(generator);
+      }
+    }
+    generator.writeEndArray();
+  }
+
+  /**
+   * Whether toUpdateObject would list any node of this flow.
+   */
+  private boolean hasUpdatedNodes(long lastUpdateTime) {
+    for (ExecutableNode node : executableNodes.values()) {
+      if (node.getUpdateTime() > lastUpdateTime) {
+        return true;
+      }
+      if (node instanceof ExecutableFlowBase
+          && ((ExecutableFlowBase) node).hasUpdatedNodes(lastUpdateTime)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public void applyUpdateObject(TypedMapWrapper<String, Object> updateData,
       List<ExecutableNode> updatedNodes) {
     super.applyUpdateObject(updateData);
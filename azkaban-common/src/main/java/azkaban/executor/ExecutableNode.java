@@ -16,6 +16,7 @@
 
 package azkaban.executor;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,6 +26,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.codehaus.jackson.JsonGenerator;
+
 import azkaban.flow.Node;
 import azkaban.utils.Props;
 import azkaban.utils.PropsUtils;
@@ -331,6 +334,71 @@ public class ExecutableNode {
     }
   }
 
+    /**
+     * 将节点写为json，内容与{@link #toObject()}相同，但不创建中间的map
+     * @param generator
+     * @throws IOException
+     */
+  public void writeJson(JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    writeJsonFields(generator);
+    generator.writeEndObject();
+  }
+
+  protected void writeJsonFields(JsonGenerator generator) throws IOException {
+    generator.writeStringField(ID_PARAM, this.id);
+    generator.writeStringField(STATUS_PARAM, status.toString());
+    generator.writeNumberField(STARTTIME_PARAM, startTime);
+    generator.writeNumberField(ENDTIME_PARAM, endTime);
+    generator.writeNumberField(UPDATETIME_PARAM, updateTime);
+    generator.writeStringField(TYPE_PARAM, type);
+    generator.writeNumberField(ATTEMPT_PARAM, attempt);
+
+    if (inNodes != null && !inNodes.isEmpty()) {
+      writeStringArray(generator, INNODES_PARAM, inNodes);
+    }
+    if (outNodes != null && !outNodes.isEmpty()) {
+      writeStringArray(generator, OUTNODES_PARAM, outNodes);
+    }
+
+    if (hasPropsSource()) {
+      generator.writeStringField(PROPS_SOURCE_PARAM, this.propsSource);
+    }
+    if (hasJobSource()) {
+      generator.writeStringField(JOB_SOURCE_PARAM, this.jobSource);
+    }
+
+    if (outputProps != null && outputProps.size() > 0) {
+      generator.writeObjectFieldStart(OUTPUT_PROPS_PARAM);
+      for (String key : outputProps.localKeySet()) {
+        generator.writeStringField(key, outputProps.get(key));
+      }
+      generator.writeEndObject();
+    }
+
+    if (pastAttempts != null) {
+      writeAttempts(generator, pastAttempts);
+    }
+  }
+
+  private static void writeStringArray(JsonGenerator generator, String field,
+      Collection<String> values) throws IOException {
+    generator.writeArrayFieldStart(field);
+    for (String value : values) {
+      generator.writeString(value);
+    }
+    generator.writeEndArray();
+  }
+
+  private static void writeAttempts(JsonGenerator generator,
+      List<ExecutionAttempt> attempts) throws IOException {
+    generator.writeArrayFieldStart(PASTATTEMPTS_PARAM);
+    for (ExecutionAttempt attempt : attempts) {
+      attempt.writeJson(generator);
+    }
+    generator.writeEndArray();
+  }
+
     /**
      * 从配置信息中初始化执行节点
      * @param wrappedMap
@@ -408,6 +476,32 @@ public class ExecutableNode {
     return updatedNodeMap;
   }
 
+    /**
+     * 将节点的更新写为json，内容与{@link #toUpdateObject()}相同
+     * @param generator
+     * @throws IOException
+     */
+  public void writeUpdateJson(JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    writeUpdateJsonFields(generator);
+    generator.writeEndObject();
+  }
+
+  protected void writeUpdateJsonFields(JsonGenerator generator)
+      throws IOException {
+    generator.writeStringField(ID_PARAM, getId());
+    generator.writeNumberField(STATUS_PARAM, getStatus().getNumVal());
+    generator.writeNumberField(STARTTIME_PARAM, getStartTime());
+    generator.writeNumberField(ENDTIME_PARAM, getEndTime());
+    generator.writeNumberField(UPDATETIME_PARAM, getUpdateTime());
+
+    generator.writeNumberField(ATTEMPT_PARAM, getAttempt());
+
+    if (getAttempt() > 0) {
+      writeAttempts(generator, getPastAttemptList());
+    }
+  }
+
   public void applyUpdateObject(TypedMapWrapper<String, Object> updateData) {
     this.status =
         Status.fromInteger(updateData.getInt(STATUS_PARAM,
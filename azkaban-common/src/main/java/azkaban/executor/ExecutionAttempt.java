@@ -16,9 +16,12 @@
 
 package azkaban.executor;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.codehaus.jackson.JsonGenerator;
+
 import azkaban.utils.TypedMapWrapper;
 
 /**
@@ -87,4 +90,13 @@ public class ExecutionAttempt {
     attempts.put(STATUS_PARAM, status.toString());
     return attempts;
   }
+
+  public void writeJson(JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    generator.writeNumberField(ATTEMPT_PARAM, attempt);
+    generator.writeNumberField(STARTTIME_PARAM, startTime);
+    generator.writeNumberField(ENDTIME_PARAM, endTime);
+    generator.writeStringField(STATUS_PARAM, status.toString());
+    generator.writeEndObject();
+  }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+/**
+ * <pre>
+ * 任务流执行的摘要信息，只包含execution_flows表中的标量列，
+ * 用于历史列表等不需要完整任务流的场景
+ * Note:
+ * 1. the getters are named after the ones of {@link ExecutableFlow}, so the
+ *    list views can render either
+ * 2. nothing of the flow graph is available, fetch the
+ *    {@link ExecutableFlow} for that
+ * </pre>
+ */
+public class ExecutionSummary {
+  private final int executionId;
+  private final int projectId;
+  private final int version;
+  private final String flowId;
+  private final Status status;
+  private final String submitUser;
+  private final long submitTime;
+  private final long updateTime;
+  private final long startTime;
+  private final long endTime;
+  private final int scheduleId;
+
+  public ExecutionSummary(int executionId, int projectId, int version,
+      String flowId, Status status, String submitUser, long submitTime,
+      long updateTime, long startTime, long endTime, int scheduleId) {
+    this.executionId = executionId;
+    this.projectId = projectId;
+    this.version = version;
+    this.flowId = flowId;
+    this.status = status;
+    this.submitUser = submitUser;
+    this.submitTime = submitTime;
+    this.updateTime = updateTime;
+    this.startTime = startTime;
+    this.endTime = endTime;
+    this.scheduleId = scheduleId;
+  }
+
+  public int getExecutionId() {
+    return executionId;
+  }
+
+  public int getProjectId() {
+    return projectId;
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public String getFlowId() {
+    return flowId;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public String getSubmitUser() {
+    return submitUser;
+  }
+
+  public long getSubmitTime() {
+    return submitTime;
+  }
+
+  public long getUpdateTime() {
+    return updateTime;
+  }
+
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public long getEndTime() {
+    return endTime;
+  }
+
+  public int getScheduleId() {
+    return scheduleId;
+  }
+}
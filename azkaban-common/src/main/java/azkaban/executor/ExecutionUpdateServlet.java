@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
+
+import azkaban.server.AbstractServiceServlet;
+import azkaban.utils.JSONUtils;
+
+/**
+ * <pre>
+ * 接收执行服务器推送的任务流状态更新，
+ * 请求体与{@link ConnectorParams#UPDATE_ACTION}的返回结果格式相同
+ * Receives the execution updates pushed by the executors.
+ * </pre>
+ */
+public class ExecutionUpdateServlet extends AbstractServiceServlet {
+  public static final String URL = "/executionUpdate";
+  private static final long serialVersionUID = 1L;
+  private static final Logger logger = Logger
+      .getLogger(ExecutionUpdateServlet.class);
+
+  private final ExecutorManagerAdapter executorManager;
+
+  public ExecutionUpdateServlet(ExecutorManagerAdapter executorManager) {
+    this.executorManager = executorManager;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    HashMap<String, Object> respMap = new HashMap<String, Object>();
+    try {
+      Map<String, Object> body =
+          (Map<String, Object>) JSONUtils.parseJSONFromReader(
+              new InputStreamReader(req.getInputStream(), "UTF-8"));
+      List<Map<String, Object>> updates =
+          (List<Map<String, Object>>) body
+              .get(ConnectorParams.RESPONSE_UPDATED_FLOWS);
+      if (updates == null) {
+        respMap.put(ConnectorParams.RESPONSE_ERROR, "No updates found.");
+      } else {
+        // only the executor running a flow may update it
+        List<Integer> rejected =
+            executorManager.applyPushedUpdates(req.getRemoteAddr(), updates);
+        if (!rejected.isEmpty()) {
+          logger.warn("Rejected the updates of executions " + rejected
+              + ", they don't run on " + req.getRemoteAddr());
+        }
+        respMap.put(ConnectorParams.STATUS_PARAM,
+            ConnectorParams.RESPONSE_SUCCESS);
+        respMap.put(ConnectorParams.RESPONSE_REJECTED_FLOWS, rejected);
+      }
+    } catch (Exception e) {
+      logger.error("Failed to apply pushed execution updates", e);
+      respMap.put(ConnectorParams.RESPONSE_ERROR, e.getMessage());
+    }
+
+    writeJSON(resp, respMap);
+    resp.flushBuffer();
+  }
+}
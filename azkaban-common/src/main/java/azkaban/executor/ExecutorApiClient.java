@@ -17,23 +17,63 @@
 package azkaban.executor;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
+
+import azkaban.utils.Props;
 import azkaban.utils.RestfulApiClient;
 
 /**
  * Client class that will be used to handle all Restful API calls between Executor and the host application.
+ * Note: the calls share a pool of keep-alive connections, the pool is sized
+ *       per executor (route) and can be tuned by {@link #configure(Props)}.
  * */
 public class ExecutorApiClient extends RestfulApiClient<String> {
+  private static final String CLIENT_POOL_MAX_TOTAL =
+      "azkaban.executor.client.pool.max.total";
+  private static final String CLIENT_POOL_MAX_PER_ROUTE =
+      "azkaban.executor.client.pool.max.per.route";
+  private static final String CLIENT_CONNECT_TIMEOUT_MS =
+      "azkaban.executor.client.connect.timeout.ms";
+  private static final String CLIENT_SOCKET_TIMEOUT_MS =
+      "azkaban.executor.client.socket.timeout.ms";
+  private static final String CLIENT_POOL_TIMEOUT_MS =
+      "azkaban.executor.client.pool.timeout.ms";
+  private static final String CLIENT_KEEPALIVE_MS =
+      "azkaban.executor.client.keepalive.ms";
+
   private static ExecutorApiClient instance = null;
-  private ExecutorApiClient(){}
+
+  private PoolingHttpClientConnectionManager connectionManager;
+  private CloseableHttpClient client;
+  private IdleConnectionEvictor evictor;
+
+  private ExecutorApiClient(){
+    configure(new Props());
+  }
 
   /**
    * Singleton method to return the instance of the current object.
    * */
-  public static ExecutorApiClient getInstance(){
+  public static synchronized ExecutorApiClient getInstance(){
     if (null == instance){
       instance = new ExecutorApiClient();
     }
@@ -41,6 +81,100 @@ public class ExecutorApiClient extends RestfulApiClient<String> {
     return instance;
   }
 
+  /**
+   * (Re)build the connection pool from the settings in props. Connections of
+   * the previous pool are closed.
+   * */
+  public synchronized void configure(Props props){
+    PoolingHttpClientConnectionManager newManager =
+        new PoolingHttpClientConnectionManager();
+    newManager.setMaxTotal(props.getInt(CLIENT_POOL_MAX_TOTAL, 100));
+    newManager.setDefaultMaxPerRoute(props.getInt(CLIENT_POOL_MAX_PER_ROUTE, 20));
+
+    RequestConfig requestConfig = RequestConfig.custom()
+        .setConnectTimeout(props.getInt(CLIENT_CONNECT_TIMEOUT_MS, 10000))
+        .setConnectionRequestTimeout(props.getInt(CLIENT_POOL_TIMEOUT_MS, 10000))
+        .setSocketTimeout(props.getInt(CLIENT_SOCKET_TIMEOUT_MS, 0))
+        .build();
+
+    final long keepAliveMs = props.getLong(CLIENT_KEEPALIVE_MS, 30000);
+    CloseableHttpClient newClient = HttpClients.custom()
+        .setConnectionManager(newManager)
+        .setDefaultRequestConfig(requestConfig)
+        .setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+          @Override
+          public long getKeepAliveDuration(HttpResponse response,
+              HttpContext context) {
+            // honour the server's keep-alive header, but never hold on to an
+            // idle connection longer than configured.
+            long duration = super.getKeepAliveDuration(response, context);
+            return duration > 0 ? Math.min(duration, keepAliveMs) : keepAliveMs;
+          }
+        }).build();
+
+    CloseableHttpClient oldClient = client;
+    if (null != evictor){
+      evictor.shutdown();
+    }
+
+    connectionManager = newManager;
+    client = newClient;
+    evictor = new IdleConnectionEvictor(newManager, keepAliveMs);
+    evictor.start();
+
+    if (null != oldClient){
+      try {
+        oldClient.close();
+      } catch (IOException e) {
+        logger.error("unable to close the previous http client", e);
+      }
+    }
+  }
+
+  @Override
+  protected synchronized CloseableHttpClient getSharedClient(){
+    return client;
+  }
+
+  /**
+   * Performs a Get http request and copies the response body to the stream
+   * as it arrives, instead of buffering it into a string.
+   * @param uri  the URI of the request.
+   * @param stream  the stream the body is written to.
+   * @return the number of bytes copied.
+   * */
+  public long httpGetToStream(URI uri, OutputStream stream) throws IOException{
+    CloseableHttpResponse response = getSharedClient().execute(new HttpGet(uri));
+    try {
+      final StatusLine statusLine = response.getStatusLine();
+      if (statusLine.getStatusCode() >= 300) {
+        String responseBody = response.getEntity() != null ?
+            EntityUtils.toString(response.getEntity()) : "";
+        throw new HttpResponseException(statusLine.getStatusCode(),responseBody);
+      }
+
+      HttpEntity entity = response.getEntity();
+      if (entity == null) {
+        return 0;
+      }
+      InputStream content = entity.getContent();
+      try {
+        return IOUtils.copyLarge(content, stream);
+      }finally{
+        content.close();
+      }
+    }finally{
+      response.close();
+    }
+  }
+
+  /**
+   * Returns the utilisation of the connection pool.
+   * */
+  public synchronized PoolStats getPoolStats(){
+    return connectionManager.getTotalStats();
+  }
+
   /**Implementing the parseResponse function to return de-serialized Json object.
    * @param response  the returned response from the HttpClient.
    * @return de-serialized object from Json or null if the response doesn't have a body.
@@ -62,4 +196,42 @@ public class ExecutorApiClient extends RestfulApiClient<String> {
 
     return responseBody;
   }
+
+  /**
+   * Closes the expired and idle connections of the pool, the pool won't notice
+   * a connection closed by the executor until it is leased again otherwise.
+   * */
+  private static class IdleConnectionEvictor extends Thread {
+    private final PoolingHttpClientConnectionManager manager;
+    private final long idleTimeMs;
+    private boolean shutdown = false;
+
+    public IdleConnectionEvictor(PoolingHttpClientConnectionManager manager,
+        long idleTimeMs){
+      this.manager = manager;
+      this.idleTimeMs = idleTimeMs;
+      this.setName("ExecutorApiClient-IdleConnectionEvictor");
+      this.setDaemon(true);
+    }
+
+    public void shutdown(){
+      shutdown = true;
+      this.interrupt();
+    }
+
+    @Override
+    public void run(){
+      while (!shutdown) {
+        synchronized (this) {
+          try {
+            this.wait(5000);
+            manager.closeExpiredConnections();
+            manager.closeIdleConnections(idleTimeMs, TimeUnit.MILLISECONDS);
+          } catch (InterruptedException e) {
+            // shut down
+          }
+        }
+      }
+    }
+  }
 }
@@ -17,10 +17,14 @@
 package azkaban.executor;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
 import org.codehaus.jackson.map.JsonMappingException;
-import org.codehaus.jackson.map.ObjectMapper;
+
+import azkaban.utils.JSONUtils;
 
  /**
   * 封装了执行节点的物理统计信息：剩余内存百分比、剩余内存、剩余处理流能力、已经执行的流的数量、上次被分发任务的时间、CPU占用率
@@ -32,8 +36,14 @@ import org.codehaus.jackson.map.ObjectMapper;
   *  numberOfAssignedFlows;
   *  lastDispatchedTime;
   *  cpuUsage;
+  *  remainingJobSlots;
+  *  numberOfQueuedJobs;
+  *  warmProjectVersions;
   *
+  *  Fields unknown to this version are ignored, so that executors and web
+  *  servers of different versions can talk to each other.
   * */
+  @JsonIgnoreProperties(ignoreUnknown = true)
   public class ExecutorInfo implements java.io.Serializable{
     private static final long serialVersionUID = 3009746603773371263L;
     private double remainingMemoryPercent;
@@ -42,6 +52,11 @@ import org.codehaus.jackson.map.ObjectMapper;
     private int    numberOfAssignedFlows;
     private long   lastDispatchedTime;
     private double cpuUsage;
+    // -1 for executors without a job limit, or that don't report it.
+    private int    remainingJobSlots = -1;
+    private int    numberOfQueuedJobs;
+    // installed project versions, as "projectId.version"
+    private List<String> warmProjectVersions = new ArrayList<String>();
 
     public double getCpuUsage() {
       return this.cpuUsage;
@@ -91,6 +106,34 @@ import org.codehaus.jackson.map.ObjectMapper;
       this.numberOfAssignedFlows = value;
     }
 
+    public int getRemainingJobSlots() {
+      return this.remainingJobSlots;
+    }
+
+    public void setRemainingJobSlots(int value) {
+      this.remainingJobSlots = value;
+    }
+
+    public int getNumberOfQueuedJobs() {
+      return this.numberOfQueuedJobs;
+    }
+
+    public void setNumberOfQueuedJobs(int value) {
+      this.numberOfQueuedJobs = value;
+    }
+
+    public List<String> getWarmProjectVersions() {
+      return this.warmProjectVersions;
+    }
+
+    public void setWarmProjectVersions(List<String> value) {
+      this.warmProjectVersions = value == null ? new ArrayList<String>() : value;
+    }
+
+    public boolean isProjectVersionWarm(int projectId, int version) {
+      return this.warmProjectVersions.contains(projectId + "." + version);
+    }
+
     public ExecutorInfo(){}
 
     public ExecutorInfo (double remainingMemoryPercent,
@@ -121,6 +164,9 @@ import org.codehaus.jackson.map.ObjectMapper;
           result &=this.remainingMemoryPercent == stat.remainingMemoryPercent;
           result &=this.numberOfAssignedFlows == stat.numberOfAssignedFlows;
           result &= this.lastDispatchedTime == stat.lastDispatchedTime;
+          result &= this.remainingJobSlots == stat.remainingJobSlots;
+          result &= this.numberOfQueuedJobs == stat.numberOfQueuedJobs;
+          result &= this.warmProjectVersions.equals(stat.warmProjectVersions);
           return result;
         }
         return false;
@@ -137,6 +183,6 @@ import org.codehaus.jackson.map.ObjectMapper;
     JsonMappingException,
     IOException{
       if (null == jsonString || jsonString.length() == 0) return null;
-      return new ObjectMapper().readValue(jsonString, ExecutorInfo.class);
+      return JSONUtils.parseJSONFromString(jsonString, ExecutorInfo.class);
     }
 }
@@ -17,6 +17,7 @@
 package azkaban.executor;
 
 import java.io.File;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -52,6 +53,26 @@ public interface ExecutorLoader {
       String flowContains, String userNameContains, int status, long startData,
       long endData, int skip, int num) throws ExecutorManagerException;
 
+  /**
+   * <pre>
+   * 以下方法与fetchFlowHistory相同，但只读取标量列，不解析任务流数据
+   * The summary forms of fetchFlowHistory, for the list views.
+   * </pre>
+   */
+  public List<ExecutionSummary> fetchExecutionSummaries(int skip, int num)
+      throws ExecutorManagerException;
+
+  public List<ExecutionSummary> fetchExecutionSummaries(int projectId,
+      String flowId, int skip, int num) throws ExecutorManagerException;
+
+  public List<ExecutionSummary> fetchExecutionSummaries(int projectId,
+      String flowId, int skip, int num, Status status)
+      throws ExecutorManagerException;
+
+  public List<ExecutionSummary> fetchExecutionSummaries(String projContain,
+      String flowContains, String userNameContains, int status, long startData,
+      long endData, int skip, int num) throws ExecutorManagerException;
+
   /**
    * <pre>
    * Fetch all executors from executors table
@@ -241,18 +262,59 @@ public interface ExecutorLoader {
   public LogData fetchLogs(int execId, String name, int attempt, int startByte,
       int endByte) throws ExecutorManagerException;
 
+  /**
+   * <pre>
+   * 将日志的一段字节范围直接写入输出流
+   * Note:
+   * 1. a negative length streams up to the end of the log
+   * 2. partial utf-8 characters at both ends of the range are dropped, as
+   *    in {@link #fetchLogs}
+   * </pre>
+   *
+   * @return the offset and the length of the bytes written, or null if the
+   *         log has nothing in the range
+   */
+  public Pair<Integer, Integer> streamLogs(int execId, String name,
+      int attempt, int startByte, int length, OutputStream stream)
+      throws ExecutorManagerException;
+
   public List<Object> fetchAttachments(int execId, String name, int attempt)
       throws ExecutorManagerException;
 
   public void uploadLogFile(int execId, String name, int attempt, File... files)
       throws ExecutorManagerException;
 
+  /**
+   * <pre>
+   * 在一个事务中写入多个日志块，用于运行中日志的增量上传
+   * Note:
+   * 1. the chunks of a log must not overlap the ones uploaded before, a
+   *    chunk is keyed on its start byte
+   * </pre>
+   */
+  public void uploadLogChunks(List<LogChunk> chunks)
+      throws ExecutorManagerException;
+
   public void uploadAttachmentFile(ExecutableNode node, File file)
       throws ExecutorManagerException;
 
   public void updateExecutableFlow(ExecutableFlow flow)
       throws ExecutorManagerException;
 
+  /**
+   * <pre>
+   * Append the nodes of the flow which changed after lastUpdateTime, instead
+   * of rewriting the whole flow data
+   * Note:
+   * 1. the appended updates are replayed by fetchExecutableFlow
+   * 2. updateExecutableFlow compacts them into the flow data
+   * </pre>
+   *
+   * @throws ExecutorManagerException
+   */
+  public void appendExecutableFlowUpdate(ExecutableFlow flow,
+      long lastUpdateTime) throws ExecutorManagerException;
+
     /**
      * 上传可执行任务（普通任务）
      * @param node
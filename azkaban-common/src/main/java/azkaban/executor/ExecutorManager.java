@@ -18,8 +18,11 @@ package azkaban.executor;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.Thread.State;
+import java.net.InetAddress;
 import java.net.URI;
+import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -35,6 +38,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -71,6 +76,8 @@ public class ExecutorManager extends EventHandler implements
       "azkaban.executorselector.comparator.";
   static final String AZKABAN_QUEUEPROCESSING_ENABLED =
     "azkaban.queueprocessing.enabled";
+  static final String AZKABAN_QUEUEPROCESSING_BATCH_SIZE =
+    "azkaban.queueprocessing.batch.size";
   static final String AZKABAN_USE_MULTIPLE_EXECUTORS =
     "azkaban.use.multiple.executors";
   private static final String AZKABAN_WEBSERVER_QUEUE_SIZE =
@@ -83,6 +90,16 @@ public class ExecutorManager extends EventHandler implements
       "azkaban.executorinfo.refresh.maxThreads";
   private static final String AZKABAN_MAX_DISPATCHING_ERRORS_PERMITTED =
     "azkaban.maxDispatchingErrors";
+  private static final String AZKABAN_EXECUTION_UPDATE_PUSH_ENABLED =
+    "azkaban.execution.update.push.enabled";
+  private static final String AZKABAN_EXECUTION_UPDATE_RECONCILE_IN_MS =
+    "azkaban.execution.update.reconcile.milisecinterval";
+  private static final String AZKABAN_FINISHED_FLOW_CACHE_MAX_BYTES =
+    "azkaban.finished.flow.cache.max.bytes";
+  private static final String AZKABAN_PROJECT_PREWARM_ENABLED =
+    "azkaban.project.prewarm.enabled";
+  private static final String AZKABAN_EXECUTOR_SELECTOR_PREFER_WARM =
+    "azkaban.executorselector.prefer.warm";
 
   private static Logger logger = Logger.getLogger(ExecutorManager.class);
   private ExecutorLoader executorLoader;
@@ -93,13 +110,23 @@ public class ExecutorManager extends EventHandler implements
       new ConcurrentHashMap<Integer, Pair<ExecutionReference, ExecutableFlow>>();
   private ConcurrentHashMap<Integer, ExecutableFlow> recentlyFinished =
       new ConcurrentHashMap<Integer, ExecutableFlow>();
+  private final FinishedFlowCache finishedFlowCache;
 
   QueuedExecutions queuedFlows;
+  // the queued and the running flows, indexed for the lookups of submissions
+  // and pages
+  private final ActiveExecutions activeExecutions = new ActiveExecutions();
 
   final private Set<Executor> activeExecutors = new HashSet<Executor>();
+  // the ip addresses of the executor hosts, resolved when the executors are
+  // set up, so that pushed updates are checked without a dns lookup
+  private final ConcurrentHashMap<String, Set<String>> executorHostAddresses =
+      new ConcurrentHashMap<String, Set<String>>();
   private QueueProcessorThread queueProcessor;
 
   private ExecutingManagerUpdaterThread executingManager;
+  // guards flows against polled and pushed updates being applied concurrently
+  private final Object updateLock = new Object();
   // 12 weeks
   private static final long DEFAULT_EXECUTION_LOGS_RETENTION_MS = 3 * 4 * 7
       * 24 * 60 * 60 * 1000L;
@@ -117,12 +144,26 @@ public class ExecutorManager extends EventHandler implements
   private Map<String, Integer> comparatorWeightsMap;
   private long lastSuccessfulExecutorInfoRefresh;
   private ExecutorService executorInforRefresherService;
+  private final ExecutorService prewarmService = Executors
+      .newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r);
+          thread.setName("ProjectPrewarm");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
 
   public ExecutorManager(Props azkProps, ExecutorLoader loader,
       Map<String, Alerter> alerters) throws ExecutorManagerException {
     this.alerters = alerters;
     this.azkProps = azkProps;
     this.executorLoader = loader;
+    this.finishedFlowCache =
+        new FinishedFlowCache(azkProps.getLong(
+            AZKABAN_FINISHED_FLOW_CACHE_MAX_BYTES, 64 * 1024 * 1024));
+    ExecutorApiClient.getInstance().configure(azkProps);
     this.setupExecutors();
     this.loadRunningFlows();
 
@@ -176,7 +217,8 @@ public class ExecutorManager extends EventHandler implements
         AZKABAN_QUEUEPROCESSING_ENABLED, true), azkProps.getLong(
         AZKABAN_ACTIVE_EXECUTOR_REFRESH_IN_MS, 50000), azkProps.getInt(
         AZKABAN_ACTIVE_EXECUTOR_REFRESH_IN_NUM_FLOW, 5), azkProps.getInt(
-        AZKABAN_MAX_DISPATCHING_ERRORS_PERMITTED, activeExecutors.size()));
+        AZKABAN_MAX_DISPATCHING_ERRORS_PERMITTED, activeExecutors.size()),
+        azkProps.getInt(AZKABAN_QUEUEPROCESSING_BATCH_SIZE, 1));
 
     queueProcessor.start();
   }
@@ -222,6 +264,42 @@ public class ExecutorManager extends EventHandler implements
       // executors
       activeExecutors.clear();
       activeExecutors.addAll(newExecutors);
+      resolveExecutorHosts(newExecutors);
+      wakeUpQueueProcessor(true);
+    }
+  }
+
+  /* Caches the ip addresses of the executor hosts */
+  private void resolveExecutorHosts(Collection<Executor> executors) {
+    for (Executor executor : executors) {
+      Set<String> addresses = new HashSet<String>();
+      try {
+        for (InetAddress address : InetAddress.getAllByName(executor
+            .getHost())) {
+          addresses.add(address.getHostAddress());
+          // a local executor may connect over either loopback address
+          if (address.isLoopbackAddress()) {
+            addresses.add(InetAddress.getLoopbackAddress().getHostAddress());
+            addresses.add("127.0.0.1");
+            addresses.add("0:0:0:0:0:0:0:1");
+          }
+        }
+      } catch (UnknownHostException e) {
+        logger.error("Failed to resolve the host of " + executor, e);
+      }
+      executorHostAddresses.put(executor.getHost(), addresses);
+    }
+  }
+
+  /**
+   * Wakes the queue processor if it is parked on busy executors.
+   *
+   * @param capacityChanged whether executors may have freed up, in which case
+   *          the processor refreshes the executors before dispatching again
+   */
+  private void wakeUpQueueProcessor(boolean capacityChanged) {
+    if (queueProcessor != null) {
+      queueProcessor.wakeUp(capacityChanged);
     }
   }
 
@@ -386,6 +464,53 @@ public class ExecutorManager extends EventHandler implements
     return Collections.unmodifiableCollection(activeExecutors);
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see azkaban.executor.ExecutorManagerAdapter#prewarmProjectVersion(int,
+   *      int)
+   */
+  @Override
+  public void prewarmProjectVersion(final int projectId, final int version) {
+    if (!azkProps.getBoolean(AZKABAN_PROJECT_PREWARM_ENABLED, true)) {
+      return;
+    }
+
+    List<Executor> executors;
+    synchronized (activeExecutors) {
+      executors = new ArrayList<Executor>(activeExecutors);
+    }
+    try {
+      for (final Executor executor : executors) {
+        prewarmService.submit(new Runnable() {
+          @Override
+          public void run() {
+            List<Pair<String, String>> paramList =
+              new ArrayList<Pair<String, String>>();
+            paramList.add(new Pair<String, String>(
+              ConnectorParams.ACTION_PARAM,
+              ConnectorParams.PREWARM_PROJECT_ACTION));
+            paramList.add(new Pair<String, String>(
+              ConnectorParams.PROJECT_ID_PARAM, String.valueOf(projectId)));
+            paramList.add(new Pair<String, String>(
+              ConnectorParams.PROJECT_VERSION_PARAM, String.valueOf(version)));
+            try {
+              callExecutorForJsonObject(executor.getHost(),
+                executor.getPort(), "/executor", paramList);
+            } catch (IOException e) {
+              // the first flow of the version sets it up as before
+              logger.warn("Failed to pre-warm project " + projectId
+                + " version " + version + " on " + executor, e);
+            }
+          }
+        });
+      }
+    } catch (RejectedExecutionException e) {
+      // shutting down
+    }
+  }
+
+
   /**
    *
    * {@inheritDoc}
@@ -430,6 +555,17 @@ public class ExecutorManager extends EventHandler implements
 
   private void loadRunningFlows() throws ExecutorManagerException {
     runningFlows.putAll(executorLoader.fetchActiveFlows());
+    Map<String, Executor> flowExecutors = new HashMap<String, Executor>();
+    for (Pair<ExecutionReference, ExecutableFlow> pair : runningFlows.values()) {
+      activeExecutions.put(pair.getFirst(), pair.getSecond());
+      Executor executor = pair.getFirst().getExecutor();
+      // the flows may still run on executors deactivated since
+      if (executor != null
+          && !executorHostAddresses.containsKey(executor.getHost())) {
+        flowExecutors.put(executor.getHost(), executor);
+      }
+    }
+    resolveExecutorHosts(flowExecutors.values());
   }
 
   /*
@@ -442,6 +578,7 @@ public class ExecutorManager extends EventHandler implements
     if (retrievedExecutions != null) {
       for (Pair<ExecutionReference, ExecutableFlow> pair : retrievedExecutions) {
         queuedFlows.enqueue(pair.getSecond(), pair.getFirst());
+        activeExecutions.put(pair.getFirst(), pair.getSecond());
       }
     }
   }
@@ -456,26 +593,8 @@ public class ExecutorManager extends EventHandler implements
    */
   @Override
   public List<Integer> getRunningFlows(int projectId, String flowId) {
-    List<Integer> executionIds = new ArrayList<Integer>();
-    executionIds.addAll(getRunningFlowsHelper(projectId, flowId,
-      queuedFlows.getAllEntries()));
-    executionIds.addAll(getRunningFlowsHelper(projectId, flowId,
-      runningFlows.values()));
-    Collections.sort(executionIds);
-    return executionIds;
-  }
-
-  /* Helper method for getRunningFlows */
-  private List<Integer> getRunningFlowsHelper(int projectId, String flowId,
-    Collection<Pair<ExecutionReference, ExecutableFlow>> collection) {
-    List<Integer> executionIds = new ArrayList<Integer>();
-    for (Pair<ExecutionReference, ExecutableFlow> ref : collection) {
-      if (ref.getSecond().getFlowId().equals(flowId)
-        && ref.getSecond().getProjectId() == projectId) {
-        executionIds.add(ref.getFirst().getExecId());
-      }
-    }
-    return executionIds;
+    return new ArrayList<Integer>(activeExecutions.getExecutionIds(projectId,
+      flowId));
   }
 
   /**
@@ -489,18 +608,24 @@ public class ExecutorManager extends EventHandler implements
     throws IOException {
     List<Pair<ExecutableFlow, Executor>> flows =
       new ArrayList<Pair<ExecutableFlow, Executor>>();
-    getActiveFlowsWithExecutorHelper(flows, queuedFlows.getAllEntries());
-    getActiveFlowsWithExecutorHelper(flows, runningFlows.values());
+    getActiveFlowsWithExecutorHelper(flows,
+      activeExecutions.getQueuedExecutionIds());
+    getActiveFlowsWithExecutorHelper(flows,
+      activeExecutions.getDispatchedExecutionIds());
     return flows;
   }
 
   /* Helper method for getActiveFlowsWithExecutor */
   private void getActiveFlowsWithExecutorHelper(
-    List<Pair<ExecutableFlow, Executor>> flows,
-    Collection<Pair<ExecutionReference, ExecutableFlow>> collection) {
-    for (Pair<ExecutionReference, ExecutableFlow> ref : collection) {
-      flows.add(new Pair<ExecutableFlow, Executor>(ref.getSecond(), ref
-        .getFirst().getExecutor()));
+    List<Pair<ExecutableFlow, Executor>> flows, Collection<Integer> execIds) {
+    for (Integer execId : execIds) {
+      Pair<ExecutionReference, ExecutableFlow> ref =
+        activeExecutions.get(execId);
+      // removed since the ids were read
+      if (ref != null) {
+        flows.add(new Pair<ExecutableFlow, Executor>(ref.getSecond(), ref
+          .getFirst().getExecutor()));
+      }
     }
   }
 
@@ -513,26 +638,7 @@ public class ExecutorManager extends EventHandler implements
    */
   @Override
   public boolean isFlowRunning(int projectId, String flowId) {
-    boolean isRunning = false;
-    isRunning =
-      isRunning
-        || isFlowRunningHelper(projectId, flowId, queuedFlows.getAllEntries());
-    isRunning =
-      isRunning
-        || isFlowRunningHelper(projectId, flowId, runningFlows.values());
-    return isRunning;
-  }
-
-  /* Search a running flow in a collection */
-  private boolean isFlowRunningHelper(int projectId, String flowId,
-    Collection<Pair<ExecutionReference, ExecutableFlow>> collection) {
-    for (Pair<ExecutionReference, ExecutableFlow> ref : collection) {
-      if (ref.getSecond().getProjectId() == projectId
-        && ref.getSecond().getFlowId().equals(flowId)) {
-        return true;
-      }
-    }
-    return false;
+    return activeExecutions.isFlowActive(projectId, flowId);
   }
 
   /**
@@ -544,15 +650,26 @@ public class ExecutorManager extends EventHandler implements
   @Override
   public ExecutableFlow getExecutableFlow(int execId)
     throws ExecutorManagerException {
-    if (runningFlows.containsKey(execId)) {
-      return runningFlows.get(execId).getSecond();
-    } else if (queuedFlows.hasExecution(execId)) {
-      return queuedFlows.getFlow(execId);
+    Pair<ExecutionReference, ExecutableFlow> active =
+      activeExecutions.get(execId);
+    if (active != null) {
+      return active.getSecond();
     } else {
-      return executorLoader.fetchExecutableFlow(execId);
+      ExecutableFlow flow = finishedFlowCache.get(execId);
+      if (flow == null) {
+        flow = executorLoader.fetchExecutableFlow(execId);
+        if (flow != null) {
+          finishedFlowCache.put(flow);
+        }
+      }
+      return flow;
     }
   }
 
+  public FinishedFlowCache getFinishedFlowCache() {
+    return finishedFlowCache;
+  }
+
   /**
    * Get all active (running, non-dispatched) flows
    *
@@ -563,20 +680,11 @@ public class ExecutorManager extends EventHandler implements
   @Override
   public List<ExecutableFlow> getRunningFlows() {
     ArrayList<ExecutableFlow> flows = new ArrayList<ExecutableFlow>();
-    getActiveFlowHelper(flows, queuedFlows.getAllEntries());
-    getActiveFlowHelper(flows, runningFlows.values());
-    return flows;
-  }
-
-  /*
-   * Helper method to get all running flows from a Pair<ExecutionReference,
-   * ExecutableFlow collection
-   */
-  private void getActiveFlowHelper(ArrayList<ExecutableFlow> flows,
-    Collection<Pair<ExecutionReference, ExecutableFlow>> collection) {
-    for (Pair<ExecutionReference, ExecutableFlow> ref : collection) {
+    for (Pair<ExecutionReference, ExecutableFlow> ref : activeExecutions
+      .getAll()) {
       flows.add(ref.getSecond());
     }
+    return flows;
   }
 
   /**
@@ -588,8 +696,8 @@ public class ExecutorManager extends EventHandler implements
    */
   public String getRunningFlowIds() {
     List<Integer> allIds = new ArrayList<Integer>();
-    getRunningFlowsIdsHelper(allIds, queuedFlows.getAllEntries());
-    getRunningFlowsIdsHelper(allIds, runningFlows.values());
+    allIds.addAll(activeExecutions.getQueuedExecutionIds());
+    allIds.addAll(activeExecutions.getDispatchedExecutionIds());
     Collections.sort(allIds);
     return allIds.toString();
   }
@@ -602,20 +710,12 @@ public class ExecutorManager extends EventHandler implements
    * @see azkaban.executor.ExecutorManagerAdapter#getRunningFlows()
    */
   public String getQueuedFlowIds() {
-    List<Integer> allIds = new ArrayList<Integer>();
-    getRunningFlowsIdsHelper(allIds, queuedFlows.getAllEntries());
-    Collections.sort(allIds);
+    // a copy, not the live view of the index
+    List<Integer> allIds =
+        new ArrayList<Integer>(activeExecutions.getQueuedExecutionIds());
     return allIds.toString();
   }
 
-  /* Helper method to flow ids of all running flows */
-  private void getRunningFlowsIdsHelper(List<Integer> allIds,
-    Collection<Pair<ExecutionReference, ExecutableFlow>> collection) {
-    for (Pair<ExecutionReference, ExecutableFlow> ref : collection) {
-      allIds.add(ref.getSecond().getExecutionId());
-    }
-  }
-
   public List<ExecutableFlow> getRecentlyFinishedFlows() {
     return new ArrayList<ExecutableFlow>(recentlyFinished.values());
   }
@@ -654,6 +754,44 @@ public class ExecutorManager extends EventHandler implements
     return flows;
   }
 
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(int skip, int size)
+      throws ExecutorManagerException {
+    return executorLoader.fetchExecutionSummaries(skip, size);
+  }
+
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(String flowIdContains,
+      int skip, int size) throws ExecutorManagerException {
+    return executorLoader.fetchExecutionSummaries(null,
+        '%' + flowIdContains + '%', null, 0, -1, -1, skip, size);
+  }
+
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(String projContain,
+      String flowContain, String userContain, int status, long begin, long end,
+      int skip, int size) throws ExecutorManagerException {
+    return executorLoader.fetchExecutionSummaries(projContain, flowContain,
+        userContain, status, begin, end, skip, size);
+  }
+
+  @Override
+  public int getExecutionSummaries(int projectId, String flowId, int from,
+      int length, List<ExecutionSummary> outputList)
+      throws ExecutorManagerException {
+    outputList.addAll(executorLoader.fetchExecutionSummaries(projectId, flowId,
+        from, length));
+    return executorLoader.fetchNumExecutableFlows(projectId, flowId);
+  }
+
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(int projectId,
+      String flowId, int from, int length, Status status)
+      throws ExecutorManagerException {
+    return executorLoader.fetchExecutionSummaries(projectId, flowId, from,
+        length, status);
+  }
+
   @Override
   public List<ExecutableJobInfo> getExecutableJobs(Project project,
       String jobId, int skip, int size) throws ExecutorManagerException {
@@ -728,6 +866,70 @@ public class ExecutorManager extends EventHandler implements
     }
   }
 
+  @Override
+  public void streamExecutableFlowLog(ExecutableFlow exFlow, int offset,
+      int length, OutputStream stream) throws ExecutorManagerException {
+    Pair<ExecutionReference, ExecutableFlow> pair =
+        runningFlows.get(exFlow.getExecutionId());
+    if (pair != null) {
+      List<Pair<String, String>> paramList =
+          new ArrayList<Pair<String, String>>();
+      paramList.add(new Pair<String, String>("type", "flow"));
+      paramList.add(new Pair<String, String>("offset", String.valueOf(offset)));
+      paramList.add(new Pair<String, String>("length", String.valueOf(length)));
+      streamFromExecutorServer(pair.getFirst(), stream, paramList);
+    } else {
+      executorLoader.streamLogs(exFlow.getExecutionId(), "", 0, offset,
+          length, stream);
+    }
+  }
+
+  @Override
+  public void streamExecutionJobLog(ExecutableFlow exFlow, String jobId,
+      int offset, int length, int attempt, OutputStream stream)
+      throws ExecutorManagerException {
+    Pair<ExecutionReference, ExecutableFlow> pair =
+        runningFlows.get(exFlow.getExecutionId());
+    if (pair != null) {
+      List<Pair<String, String>> paramList =
+          new ArrayList<Pair<String, String>>();
+      paramList.add(new Pair<String, String>("type", "job"));
+      paramList.add(new Pair<String, String>("jobId", jobId));
+      paramList.add(new Pair<String, String>("offset", String.valueOf(offset)));
+      paramList.add(new Pair<String, String>("length", String.valueOf(length)));
+      paramList.add(new Pair<String, String>("attempt",
+          String.valueOf(attempt)));
+      streamFromExecutorServer(pair.getFirst(), stream, paramList);
+    } else {
+      executorLoader.streamLogs(exFlow.getExecutionId(), jobId, attempt,
+          offset, length, stream);
+    }
+  }
+
+  /*
+   * Asks the executor of a running flow for the raw log and copies it to the
+   * stream, without parsing it into a json map first
+   */
+  private void streamFromExecutorServer(ExecutionReference ref,
+      OutputStream stream, List<Pair<String, String>> paramList)
+      throws ExecutorManagerException {
+    paramList.add(new Pair<String, String>(ConnectorParams.ACTION_PARAM,
+        ConnectorParams.LOG_ACTION));
+    paramList.add(new Pair<String, String>(ConnectorParams.EXECID_PARAM,
+        String.valueOf(ref.getExecId())));
+    paramList.add(new Pair<String, String>(ConnectorParams.LOG_STREAM_PARAM,
+        "true"));
+
+    try {
+      URI uri =
+          ExecutorApiClient.buildUri(ref.getHost(), ref.getPort(),
+              "/executor", true, paramList);
+      ExecutorApiClient.getInstance().httpGetToStream(uri, stream);
+    } catch (IOException e) {
+      throw new ExecutorManagerException(e);
+    }
+  }
+
   @Override
   public List<Object> getExecutionJobStats(ExecutableFlow exFlow, String jobId,
       int attempt) throws ExecutorManagerException {
@@ -890,6 +1092,8 @@ public class ExecutorManager extends EventHandler implements
   private Map<String, Object> modifyExecutingJobs(ExecutableFlow exFlow,
       String command, String userId, String... jobIds)
       throws ExecutorManagerException {
+    // the flow is running again, the cached copy is outdated
+    finishedFlowCache.invalidate(exFlow.getExecutionId());
     synchronized (exFlow) {
       Pair<ExecutionReference, ExecutableFlow> pair =
           runningFlows.get(exFlow.getExecutionId());
@@ -977,83 +1181,16 @@ public class ExecutorManager extends EventHandler implements
 
       String message = "";
       if (queuedFlows.isFull()) {
-        message =
-          String
-            .format(
-              "Failed to submit %s for project %s. Azkaban has overrun its webserver queue capacity",
-              flowId, exflow.getProjectName());
+        message = getQueueFullMessage(exflow);
         logger.error(message);
       } else {
-        int projectId = exflow.getProjectId();
-        exflow.setSubmitUser(userId);
-        exflow.setSubmitTime(System.currentTimeMillis());
-
-        List<Integer> running = getRunningFlows(projectId, flowId);
-
-        ExecutionOptions options = exflow.getExecutionOptions();
-        if (options == null) {
-          options = new ExecutionOptions();
-        }
-
-        if (options.getDisabledJobs() != null) {
-          applyDisabledJobs(options.getDisabledJobs(), exflow);
-        }
-
-        if (!running.isEmpty()) {
-          if (options.getConcurrentOption().equals(
-            ExecutionOptions.CONCURRENT_OPTION_PIPELINE)) {
-            Collections.sort(running);
-            Integer runningExecId = running.get(running.size() - 1);
-
-            options.setPipelineExecutionId(runningExecId);
-            message =
-              "Flow " + flowId + " is already running with exec id "
-                + runningExecId + ". Pipelining level "
-                + options.getPipelineLevel() + ". \n";
-          } else if (options.getConcurrentOption().equals(
-            ExecutionOptions.CONCURRENT_OPTION_SKIP)) {
-            throw new ExecutorManagerException("Flow " + flowId
-              + " is already running. Skipping execution.",
-              ExecutorManagerException.Reason.SkippedExecution);
-          } else {
-            // The settings is to run anyways.
-            message =
-              "Flow " + flowId + " is already running with exec id "
-                + StringUtils.join(running, ",")
-                + ". Will execute concurrently. \n";
-          }
-        }
-
-        boolean memoryCheck =
-          !ProjectWhitelist.isProjectWhitelisted(exflow.getProjectId(),
-            ProjectWhitelist.WhitelistType.MemoryCheck);
-        options.setMemoryCheck(memoryCheck);
+        message = prepareSubmission(exflow, userId);
 
         // The exflow id is set by the loader. So it's unavailable until after
         // this call.
         executorLoader.uploadExecutableFlow(exflow);
 
-        // We create an active flow reference in the datastore. If the upload
-        // fails, we remove the reference.
-        ExecutionReference reference =
-          new ExecutionReference(exflow.getExecutionId());
-
-        if (isMultiExecutorMode()) {
-          //Take MultiExecutor route
-          executorLoader.addActiveExecutableReference(reference);
-          queuedFlows.enqueue(exflow, reference);
-        } else {
-          // assign only local executor we have
-          Executor choosenExecutor = activeExecutors.iterator().next();
-          executorLoader.addActiveExecutableReference(reference);
-          try {
-            dispatch(reference, exflow, choosenExecutor);
-          } catch (ExecutorManagerException e) {
-            executorLoader.removeActiveExecutableReference(reference
-              .getExecId());
-            throw e;
-          }
-        }
+        registerSubmission(exflow);
         message +=
           "Execution submitted successfully with exec id "
             + exflow.getExecutionId();
@@ -1062,6 +1199,127 @@ public class ExecutorManager extends EventHandler implements
     }
   }
 
+  @Override
+  public List<String> submitExecutableFlows(List<ExecutableFlow> exflows,
+    String userId) {
+    logger.info("Submitting " + exflows.size() + " execution flows by "
+      + userId);
+
+    List<String> messages = new ArrayList<String>();
+    for (ExecutableFlow exflow : exflows) {
+      try {
+        messages.add(submitExecutableFlow(exflow, userId));
+      } catch (ExecutorManagerException e) {
+        logger.error("Failed to submit execution flow " + exflow.getFlowId(),
+          e);
+        messages.add(e.getMessage());
+      }
+    }
+    return messages;
+  }
+
+  private String getQueueFullMessage(ExecutableFlow exflow) {
+    return String
+      .format(
+        "Failed to submit %s for project %s. Azkaban has overrun its webserver queue capacity",
+        exflow.getFlowId(), exflow.getProjectName());
+  }
+
+  /**
+   * Applies the execution options to a flow about to be uploaded.
+   *
+   * @return the message about the running executions of the flow
+   * @throws ExecutorManagerException if the flow is to be skipped
+   */
+  private String prepareSubmission(ExecutableFlow exflow, String userId)
+    throws ExecutorManagerException {
+    String flowId = exflow.getFlowId();
+    String message = "";
+    int projectId = exflow.getProjectId();
+    exflow.setSubmitUser(userId);
+    exflow.setSubmitTime(System.currentTimeMillis());
+
+    List<Integer> running = getRunningFlows(projectId, flowId);
+
+    ExecutionOptions options = exflow.getExecutionOptions();
+    if (options == null) {
+      options = new ExecutionOptions();
+    }
+
+    if (options.getDisabledJobs() != null) {
+      applyDisabledJobs(options.getDisabledJobs(), exflow);
+    }
+
+    if (!running.isEmpty()) {
+      if (options.getConcurrentOption().equals(
+        ExecutionOptions.CONCURRENT_OPTION_PIPELINE)) {
+        Collections.sort(running);
+        Integer runningExecId = running.get(running.size() - 1);
+
+        options.setPipelineExecutionId(runningExecId);
+        message =
+          "Flow " + flowId + " is already running with exec id "
+            + runningExecId + ". Pipelining level "
+            + options.getPipelineLevel() + ". \n";
+      } else if (options.getConcurrentOption().equals(
+        ExecutionOptions.CONCURRENT_OPTION_SKIP)) {
+        throw new ExecutorManagerException("Flow " + flowId
+          + " is already running. Skipping execution.",
+          ExecutorManagerException.Reason.SkippedExecution);
+      } else {
+        // The settings is to run anyways.
+        message =
+          "Flow " + flowId + " is already running with exec id "
+            + StringUtils.join(running, ",")
+            + ". Will execute concurrently. \n";
+      }
+    }
+
+    boolean memoryCheck =
+      !ProjectWhitelist.isProjectWhitelisted(exflow.getProjectId(),
+        ProjectWhitelist.WhitelistType.MemoryCheck);
+    options.setMemoryCheck(memoryCheck);
+    return message;
+  }
+
+  /**
+   * Creates the active reference of an uploaded flow, and queues or
+   * dispatches it.
+   */
+  private void registerSubmission(ExecutableFlow exflow)
+    throws ExecutorManagerException {
+    // We create an active flow reference in the datastore. If the upload
+    // fails, we remove the reference.
+    ExecutionReference reference =
+      new ExecutionReference(exflow.getExecutionId());
+
+    if (isMultiExecutorMode()) {
+      //Take MultiExecutor route
+      executorLoader.addActiveExecutableReference(reference);
+      // indexed before the queue processor can see it, so that a flow
+      // dispatched right away isn't indexed as queued again
+      activeExecutions.put(reference, exflow);
+      try {
+        queuedFlows.enqueue(exflow, reference);
+      } catch (ExecutorManagerException e) {
+        activeExecutions.remove(exflow.getExecutionId());
+        throw e;
+      }
+      wakeUpQueueProcessor(false);
+    } else {
+      // assign only local executor we have
+      Executor choosenExecutor = activeExecutors.iterator().next();
+      executorLoader.addActiveExecutableReference(reference);
+      try {
+        dispatch(reference, exflow, choosenExecutor);
+      } catch (ExecutorManagerException e) {
+        executorLoader.removeActiveExecutableReference(reference
+          .getExecId());
+        throw e;
+      }
+    }
+  }
+
   private void cleanOldExecutionLogs(long millis) {
     try {
       int count = executorLoader.removeExecutionLogsByTime(millis);
@@ -1225,29 +1483,84 @@ public class ExecutorManager extends EventHandler implements
       queueProcessor.shutdown();
     }
     executingManager.shutdown();
+    prewarmService.shutdownNow();
   }
 
   private class ExecutingManagerUpdaterThread extends Thread {
     private boolean shutdown = false;
 
+    // 10 mins recently finished threshold.
+    private long recentlyFinishedLifetimeMs = 600000;
+    private long waitTimeIdleMs = 2000;
+    private long waitTimeMs = 500;
+
     public ExecutingManagerUpdaterThread() {
       this.setName("ExecutorManagerUpdaterThread");
-    }
 
-    // 10 mins recently finished threshold.
-    private long recentlyFinishedLifetimeMs = 600000;
-    private int waitTimeIdleMs = 2000;
-    private int waitTimeMs = 500;
+      // When executors push their updates, polling only has to reconcile the
+      // updates that were lost on the way.
+      if (isPushUpdateMode()) {
+        waitTimeMs =
+            azkProps.getLong(AZKABAN_EXECUTION_UPDATE_RECONCILE_IN_MS, 30000);
+        waitTimeIdleMs = Math.max(waitTimeIdleMs, waitTimeMs);
+        logger.info("Execution update push mode enabled. Reconciling every "
+            + waitTimeMs + " ms");
+      }
+    }
 
     // When we have an http error, for that flow, we'll check every 10 secs, 6
     // times (1 mins) before we evict.
     private int numErrors = 6;
     private long errorThreshold = 10000;
 
+    // the flows finished by pushed updates, completed by this thread
+    private final List<ExecutableFlow> pushedFinishedFlows =
+        new ArrayList<ExecutableFlow>();
+    private final List<ExecutableFlow> pushedFinalizeFlows =
+        new ArrayList<ExecutableFlow>();
+    private long nextPollTime = 0;
+
     private void shutdown() {
       shutdown = true;
     }
 
+    /**
+     * Hands the flows finished by pushed updates over to this thread, which
+     * completes them without waiting for the next poll.
+     */
+    private synchronized void completePushedFlows(
+        List<ExecutableFlow> finishedFlows, List<ExecutableFlow> finalizeFlows) {
+      if (finalizeFlows.isEmpty()) {
+        return;
+      }
+      pushedFinishedFlows.addAll(finishedFlows);
+      pushedFinalizeFlows.addAll(finalizeFlows);
+      this.notifyAll();
+    }
+
+    /* Adds the pushed flows to the lists, unless a poll has added them */
+    private synchronized void takePushedFlows(
+        List<ExecutableFlow> finishedFlows, List<ExecutableFlow> finalizeFlows) {
+      Set<Integer> execIds = new HashSet<Integer>();
+      for (ExecutableFlow flow : finalizeFlows) {
+        execIds.add(flow.getExecutionId());
+      }
+      Set<Integer> finishedIds = new HashSet<Integer>();
+      for (ExecutableFlow flow : pushedFinishedFlows) {
+        if (!execIds.contains(flow.getExecutionId())
+            && finishedIds.add(flow.getExecutionId())) {
+          finishedFlows.add(flow);
+        }
+      }
+      for (ExecutableFlow flow : pushedFinalizeFlows) {
+        if (execIds.add(flow.getExecutionId())) {
+          finalizeFlows.add(flow);
+        }
+      }
+      pushedFinishedFlows.clear();
+      pushedFinalizeFlows.clear();
+    }
+
     @SuppressWarnings("unchecked")
     public void run() {
       while (!shutdown) {
@@ -1255,13 +1568,22 @@ public class ExecutorManager extends EventHandler implements
           lastThreadCheckTime = System.currentTimeMillis();
           updaterStage = "Starting update all flows.";
 
-          Map<Executor, List<ExecutableFlow>> exFlowMap =
-              getFlowToExecutorMap();
           ArrayList<ExecutableFlow> finishedFlows =
               new ArrayList<ExecutableFlow>();
           ArrayList<ExecutableFlow> finalizeFlows =
               new ArrayList<ExecutableFlow>();
 
+          // woken by pushed flows, poll only when the wait is over
+          Map<Executor, List<ExecutableFlow>> exFlowMap =
+              lastThreadCheckTime < nextPollTime ? Collections
+                  .<Executor, List<ExecutableFlow>> emptyMap()
+                  : getFlowToExecutorMap();
+          if (lastThreadCheckTime >= nextPollTime) {
+            nextPollTime =
+                lastThreadCheckTime
+                    + (runningFlows.size() > 0 ? waitTimeMs : waitTimeIdleMs);
+          }
+
           if (exFlowMap.size() > 0) {
             for (Map.Entry<Executor, List<ExecutableFlow>> entry : exFlowMap
                 .entrySet()) {
@@ -1325,25 +1647,9 @@ public class ExecutorManager extends EventHandler implements
                 List<Map<String, Object>> executionUpdates =
                     (List<Map<String, Object>>) results
                         .get(ConnectorParams.RESPONSE_UPDATED_FLOWS);
-                for (Map<String, Object> updateMap : executionUpdates) {
-                  try {
-                    ExecutableFlow flow = updateExecution(updateMap);
-
-                    updaterStage = "Updated flow " + flow.getExecutionId();
-
-                    if (isFinished(flow)) {
-                      finishedFlows.add(flow);
-                      finalizeFlows.add(flow);
-                    }
-                  } catch (ExecutorManagerException e) {
-                    ExecutableFlow flow = e.getExecutableFlow();
-                    logger.error(e);
-
-                    if (flow != null) {
-                      logger.error("Finalizing flow " + flow.getExecutionId());
-                      finalizeFlows.add(flow);
-                    }
-                  }
+                synchronized (updateLock) {
+                  applyExecutionUpdates(executionUpdates, finishedFlows,
+                      finalizeFlows);
                 }
               }
             }
@@ -1351,23 +1657,12 @@ public class ExecutorManager extends EventHandler implements
             updaterStage = "Evicting old recently finished flows.";
 
             evictOldRecentlyFinished(recentlyFinishedLifetimeMs);
-            // Add new finished
-            for (ExecutableFlow flow : finishedFlows) {
-              if (flow.getScheduleId() >= 0
-                  && flow.getStatus() == Status.SUCCEEDED) {
-                ScheduleStatisticManager.invalidateCache(flow.getScheduleId(),
-                    cacheDir);
-              }
-              fireEventListeners(Event.create(flow, Type.FLOW_FINISHED));
-              recentlyFinished.put(flow.getExecutionId(), flow);
-            }
-
-            updaterStage =
-                "Finalizing " + finalizeFlows.size() + " error flows.";
+          }
 
-            // Kill error flows
-            for (ExecutableFlow flow : finalizeFlows) {
-              finalizeFlows(flow);
+          takePushedFlows(finishedFlows, finalizeFlows);
+          if (!finalizeFlows.isEmpty()) {
+            synchronized (updateLock) {
+              completeUpdatedFlows(finishedFlows, finalizeFlows);
             }
           }
 
@@ -1375,10 +1670,9 @@ public class ExecutorManager extends EventHandler implements
 
           synchronized (this) {
             try {
-              if (runningFlows.size() > 0) {
-                this.wait(waitTimeMs);
-              } else {
-                this.wait(waitTimeIdleMs);
+              long waitTime = nextPollTime - System.currentTimeMillis();
+              if (pushedFinalizeFlows.isEmpty() && waitTime > 0) {
+                this.wait(waitTime);
               }
             } catch (InterruptedException e) {
             }
@@ -1390,9 +1684,125 @@ public class ExecutorManager extends EventHandler implements
     }
   }
 
+  /**
+   * Applies the updates of running flows pushed by an executor. The updates
+   * have the same format as the response of {@link ConnectorParams#UPDATE_ACTION}.
+   *
+   * {@inheritDoc}
+   * @see azkaban.executor.ExecutorManagerAdapter#applyPushedUpdates(java.lang.String, java.util.List)
+   */
+  @Override
+  public List<Integer> applyPushedUpdates(String remoteAddress,
+      List<Map<String, Object>> executionUpdates) {
+    ArrayList<ExecutableFlow> finishedFlows = new ArrayList<ExecutableFlow>();
+    ArrayList<ExecutableFlow> finalizeFlows = new ArrayList<ExecutableFlow>();
+    List<Integer> rejected = new ArrayList<Integer>();
+
+    synchronized (updateLock) {
+      List<Map<String, Object>> accepted =
+          new ArrayList<Map<String, Object>>();
+      for (Map<String, Object> updateMap : executionUpdates) {
+        Integer execId =
+            (Integer) updateMap.get(ConnectorParams.UPDATE_MAP_EXEC_ID);
+        Pair<ExecutionReference, ExecutableFlow> refPair =
+            execId == null ? null : runningFlows.get(execId);
+        if (refPair == null) {
+          // not running anymore
+          continue;
+        }
+
+        Executor executor = refPair.getFirst().getExecutor();
+        if (isExecutorAddress(executor, remoteAddress)) {
+          accepted.add(updateMap);
+        } else {
+          logger.warn("Rejecting the update of exec " + execId
+              + " pushed from " + remoteAddress + ", it runs on " + executor);
+          rejected.add(execId);
+        }
+      }
+
+      applyExecutionUpdates(accepted, finishedFlows, finalizeFlows);
+    }
+    // finishing a flow writes to the db and fires the listeners, leave that
+    // to the updater thread rather than holding up the executor's push
+    executingManager.completePushedFlows(finishedFlows, finalizeFlows);
+    return rejected;
+  }
+
+  /*
+   * Whether the ip address is one of the executor's host, as resolved when
+   * the executors were set up
+   */
+  private boolean isExecutorAddress(Executor executor, String address) {
+    if (executor == null || address == null) {
+      return false;
+    }
+    if (address.equals(executor.getHost())) {
+      return true;
+    }
+    Set<String> addresses = executorHostAddresses.get(executor.getHost());
+    return addresses != null && addresses.contains(address);
+  }
+
+  private boolean isPushUpdateMode() {
+    return azkProps.getBoolean(AZKABAN_EXECUTION_UPDATE_PUSH_ENABLED, false);
+  }
+
+  private void applyExecutionUpdates(
+      List<Map<String, Object>> executionUpdates,
+      List<ExecutableFlow> finishedFlows, List<ExecutableFlow> finalizeFlows) {
+    for (Map<String, Object> updateMap : executionUpdates) {
+      try {
+        ExecutableFlow flow = updateExecution(updateMap);
+
+        updaterStage = "Updated flow " + flow.getExecutionId();
+
+        if (isFinished(flow)) {
+          finishedFlows.add(flow);
+          finalizeFlows.add(flow);
+        }
+      } catch (ExecutorManagerException e) {
+        ExecutableFlow flow = e.getExecutableFlow();
+        logger.error(e);
+
+        if (flow != null) {
+          logger.error("Finalizing flow " + flow.getExecutionId());
+          finalizeFlows.add(flow);
+        }
+      }
+    }
+  }
+
+  private void completeUpdatedFlows(List<ExecutableFlow> finishedFlows,
+      List<ExecutableFlow> finalizeFlows) {
+    // Add new finished
+    for (ExecutableFlow flow : finishedFlows) {
+      if (flow.getScheduleId() >= 0 && flow.getStatus() == Status.SUCCEEDED) {
+        ScheduleStatisticManager.invalidateCache(flow.getScheduleId(),
+            cacheDir);
+      }
+      fireEventListeners(Event.create(flow, Type.FLOW_FINISHED));
+      recentlyFinished.put(flow.getExecutionId(), flow);
+      finishedFlowCache.put(flow);
+    }
+
+    updaterStage = "Finalizing " + finalizeFlows.size() + " error flows.";
+
+    // Kill error flows
+    for (ExecutableFlow flow : finalizeFlows) {
+      finalizeFlows(flow);
+    }
+
+    // the finished flows free up executor capacity
+    if (!finalizeFlows.isEmpty()) {
+      wakeUpQueueProcessor(true);
+    }
+  }
+
   private void finalizeFlows(ExecutableFlow flow) {
 
     int execId = flow.getExecutionId();
+    finishedFlowCache.invalidate(execId);
 
     updaterStage = "finalizing flow " + execId;
     // First we check if the execution in the datastore is complete
@@ -1426,10 +1836,15 @@ public class ExecutorManager extends EventHandler implements
       runningFlows.remove(execId);
       fireEventListeners(Event.create(dsFlow, Type.FLOW_FINISHED));
       recentlyFinished.put(execId, dsFlow);
+      finishedFlowCache.put(dsFlow);
 
     } catch (ExecutorManagerException e) {
       logger.error(e);
     }
+    // a flow that failed to finalize stays running, as before
+    if (!runningFlows.containsKey(execId)) {
+      activeExecutions.remove(execId);
+    }
 
     // TODO append to the flow log that we forced killed this flow because the
     // target no longer had
@@ -1753,11 +2168,119 @@ public class ExecutorManager extends EventHandler implements
       executorLoader.unassignExecutor(exflow.getExecutionId());
       throw new ExecutorManagerException(ex);
     }
+    markDispatched(reference, exflow, choosenExecutor);
+  }
+
+  /**
+   * Dispatches the flows to the executor in a single request. Returns the
+   * flows the executor didn't take, their executor assignment is rolled back.
+   * The caller holds the locks of the flows.
+   */
+  @SuppressWarnings("unchecked")
+  private List<Pair<ExecutionReference, ExecutableFlow>> dispatchBatch(
+    Executor choosenExecutor,
+    List<Pair<ExecutionReference, ExecutableFlow>> dispatches) {
+    List<Pair<ExecutionReference, ExecutableFlow>> failedDispatches =
+      new ArrayList<Pair<ExecutionReference, ExecutableFlow>>();
+    List<Pair<ExecutionReference, ExecutableFlow>> assigned =
+      new ArrayList<Pair<ExecutionReference, ExecutableFlow>>();
+    List<Integer> executionIds = new ArrayList<Integer>();
+    for (Pair<ExecutionReference, ExecutableFlow> pair : dispatches) {
+      ExecutableFlow exflow = pair.getSecond();
+      exflow.setUpdateTime(System.currentTimeMillis());
+      try {
+        executorLoader.assignExecutor(choosenExecutor.getId(),
+          exflow.getExecutionId());
+        assigned.add(pair);
+        executionIds.add(exflow.getExecutionId());
+      } catch (ExecutorManagerException e) {
+        logger.error("Failed to assign executor " + choosenExecutor
+          + " to exec " + exflow.getExecutionId(), e);
+        failedDispatches.add(pair);
+      }
+    }
+    if (assigned.isEmpty()) {
+      return failedDispatches;
+    }
+
+    // null if it isn't known which flows the executor took
+    Map<String, Object> failedFlows = null;
+    try {
+      Map<String, Object> response =
+        callExecutorServer(choosenExecutor.getHost(),
+          choosenExecutor.getPort(), ConnectorParams.EXECUTE_BATCH_ACTION,
+          null, null, new Pair<String, String>(
+            ConnectorParams.EXEC_ID_LIST_PARAM, JSONUtils.toJSON(executionIds)));
+      failedFlows =
+        (Map<String, Object>) response.get(ConnectorParams.RESPONSE_FAILED_FLOWS);
+    } catch (IOException e) {
+      logger.error("Batch dispatch to executor " + choosenExecutor
+        + " failed for execution ids:" + executionIds, e);
+    }
+
+    for (Pair<ExecutionReference, ExecutableFlow> pair : assigned) {
+      ExecutableFlow exflow = pair.getSecond();
+      String execId = String.valueOf(exflow.getExecutionId());
+      Boolean accepted;
+      if (failedFlows != null) {
+        accepted = !failedFlows.containsKey(execId);
+        if (!accepted) {
+          logger.error("Executor " + choosenExecutor + " failed to accept exec "
+            + execId + ": " + failedFlows.get(execId));
+        }
+      } else {
+        // the executor may have started some of them before the call failed
+        accepted = isFlowOnExecutor(choosenExecutor, exflow.getExecutionId());
+      }
+
+      if (accepted == null || accepted) {
+        // an unknown flow is treated as dispatched, the updater finalizes it
+        // if the executor turns out not to have it
+        markDispatched(pair.getFirst(), exflow, choosenExecutor);
+        continue;
+      }
+
+      logger.error("Rolling back executor assignment for execution id:"
+        + execId);
+      try {
+        executorLoader.unassignExecutor(exflow.getExecutionId());
+      } catch (ExecutorManagerException e) {
+        logger.error("Failed to roll back executor assignment of exec "
+          + execId, e);
+      }
+      failedDispatches.add(pair);
+    }
+    return failedDispatches;
+  }
+
+  /**
+   * Asks the executor whether it has the flow.
+   *
+   * @return null if the executor can't be reached either
+   */
+  private Boolean isFlowOnExecutor(Executor executor, int execId) {
+    try {
+      Map<String, Object> response =
+        callExecutorServer(executor.getHost(), executor.getPort(),
+          ConnectorParams.STATUS_ACTION, execId, null,
+          (Pair<String, String>[]) null);
+      return !ConnectorParams.RESPONSE_NOTFOUND.equals(response
+        .get(ConnectorParams.STATUS_PARAM));
+    } catch (IOException e) {
+      logger.error("Failed to get the status of exec " + execId + " from "
+        + executor, e);
+      return null;
+    }
+  }
+
+  private void markDispatched(ExecutionReference reference,
+    ExecutableFlow exflow, Executor choosenExecutor) {
     reference.setExecutor(choosenExecutor);
 
     // move from flow to running flows
     runningFlows.put(exflow.getExecutionId(),
       new Pair<ExecutionReference, ExecutableFlow>(reference, exflow));
+    activeExecutions.put(reference, exflow);
 
     logger.info(String.format(
       "Successfully dispatched exec %d with error count %d",
@@ -1773,6 +2296,14 @@ public class ExecutorManager extends EventHandler implements
     private final int maxDispatchingErrors;
     private final long activeExecutorRefreshWindowInMilisec;
     private final int activeExecutorRefreshWindowInFlows;
+    private final int dispatchBatchSize;
+    /** 过滤器均为系统级别，与任务流无关，可用于判断所有执行节点是否都已繁忙 */
+    private final ExecutorFilter systemFilter;
+
+    /** 执行节点繁忙时，等待新任务流提交或执行节点容量变化 */
+    private final Object wakeUpLock = new Object();
+    private boolean wokenUp = false;
+    private boolean capacityChanged = false;
 
     private volatile boolean shutdown = false;
     private volatile boolean isActive = true;
@@ -1780,13 +2311,18 @@ public class ExecutorManager extends EventHandler implements
     public QueueProcessorThread(boolean isActive,
       long activeExecutorRefreshWindowInTime,
       int activeExecutorRefreshWindowInFlows,
-      int maxDispatchingErrors) {
+      int maxDispatchingErrors,
+      int dispatchBatchSize) {
       setActive(isActive);
       this.maxDispatchingErrors = maxDispatchingErrors;
+      this.dispatchBatchSize = dispatchBatchSize;
       this.activeExecutorRefreshWindowInFlows =
         activeExecutorRefreshWindowInFlows;
       this.activeExecutorRefreshWindowInMilisec =
         activeExecutorRefreshWindowInTime;
+      this.systemFilter =
+        filterList == null || filterList.isEmpty() ? null : new ExecutorFilter(
+          filterList);
       this.setName("AzkabanWebServer-QueueProcessor-Thread");
     }
 
@@ -1804,13 +2340,73 @@ public class ExecutorManager extends EventHandler implements
       this.interrupt();
     }
 
+    /**
+     * Wakes the processor if it is parked because all the executors are busy.
+     * capacityChanged makes it refresh the executors before the next dispatch.
+     */
+    public void wakeUp(boolean capacityChanged) {
+      synchronized (wakeUpLock) {
+        this.wokenUp = true;
+        this.capacityChanged |= capacityChanged;
+        wakeUpLock.notifyAll();
+      }
+    }
+
+    /*
+     * Parks till woken up or till the timeout, returns whether the executors'
+     * capacity changed meanwhile
+     */
+    private boolean park(long timeoutMs) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + timeoutMs;
+      synchronized (wakeUpLock) {
+        long remaining = timeoutMs;
+        while (!wokenUp && remaining > 0) {
+          wakeUpLock.wait(remaining);
+          remaining = deadline - System.currentTimeMillis();
+        }
+        boolean changed = capacityChanged;
+        wokenUp = false;
+        capacityChanged = false;
+        return changed;
+      }
+    }
+
+    /*
+     * Global system busy state. The filters don't look at the flow, so when
+     * no active executor passes them no flow can be dispatched till the
+     * executors' capacity changes.
+     */
+    private boolean isSystemBusy() {
+      synchronized (activeExecutors) {
+        if (systemFilter == null) {
+          return activeExecutors.isEmpty();
+        }
+        for (Executor executor : activeExecutors) {
+          if (systemFilter.filterTarget(executor, null)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    }
+
+    /* Flows pinned to an executor skip the filters, busy or not */
+    private boolean isExecutorSpecified(ExecutableFlow exflow) {
+      ExecutionOptions options = exflow.getExecutionOptions();
+      return options != null && options.getFlowParameters() != null
+        && options.getFlowParameters().containsKey(ExecutionOptions.USE_EXECUTOR);
+    }
+
     public void run() {
       // Loops till QueueProcessorThread is shutdown
       while (!shutdown) {
         synchronized (this) {
           try {
             // start processing queue if active, other wait for sometime
-            if (isActive) {
+            if (isActive && dispatchBatchSize > 1) {
+              processQueuedFlowsInBatch(activeExecutorRefreshWindowInMilisec,
+                activeExecutorRefreshWindowInFlows);
+            } else if (isActive) {
               processQueuedFlows(activeExecutorRefreshWindowInMilisec,
                 activeExecutorRefreshWindowInFlows);
             }
@@ -1830,6 +2426,7 @@ public class ExecutorManager extends EventHandler implements
       long lastExecutorRefreshTime = 0;
       Pair<ExecutionReference, ExecutableFlow> runningCandidate;
       int currentContinuousFlowProcessed = 0;
+      boolean systemBusy = false;
 
       while (isActive() && (runningCandidate = queuedFlows.fetchHead()) != null) {
         ExecutionReference reference = runningCandidate.getFirst();
@@ -1846,33 +2443,28 @@ public class ExecutorManager extends EventHandler implements
           refreshExecutors();
           lastExecutorRefreshTime = currentTime;
           currentContinuousFlowProcessed = 0;
+          systemBusy = isSystemBusy();
         }
 
-        /**
-         * <pre>
-         *  TODO: Work around till we improve Filters to have a notion of GlobalSystemState.
-         *        Currently we try each queued flow once to infer a global busy state
-         * Possible improvements:-
-         *   1. Move system level filters in refreshExecutors and sleep if we have all executors busy after refresh
-         *   2. Implement GlobalSystemState in selector or in a third place to manage system filters. Basically
-         *      taking out all the filters which do not depend on the flow but are still being part of Selector.
-         * Assumptions:-
-         *   1. no one else except QueueProcessor is updating ExecutableFlow update time
-         *   2. re-attempting a flow (which has been tried before) is considered as all executors are busy
-         * </pre>
-         */
-        if(exflow.getUpdateTime() > lastExecutorRefreshTime) {
-          // put back in the queue
+        if (systemBusy && !isExecutorSpecified(exflow)) {
+          // put back in the queue, and park till a flow finishes, the
+          // executors change, a new flow comes in or the refresh window ends
           queuedFlows.enqueue(exflow, reference);
-          long sleepInterval =
-            activeExecutorsRefreshWindow
-              - (currentTime - lastExecutorRefreshTime);
-          // wait till next executor refresh
-          sleep(sleepInterval);
-        } else {
-          exflow.setUpdateTime(currentTime);
-          // process flow with current snapshot of activeExecutors
-          selectExecutorAndDispatchFlow(reference, exflow, new HashSet<Executor>(activeExecutors));
+          if (park(activeExecutorsRefreshWindow
+            - (currentTime - lastExecutorRefreshTime))) {
+            // refresh right away
+            lastExecutorRefreshTime = 0;
+          }
+          systemBusy = isSystemBusy();
+          continue;
+        }
+
+        exflow.setUpdateTime(currentTime);
+        // process flow with current snapshot of activeExecutors
+        if (!selectExecutorAndDispatchFlow(reference, exflow,
+          new HashSet<Executor>(activeExecutors))) {
+          // the snapshot is stale, all executors got busy since the refresh
+          systemBusy = true;
         }
 
         // do not count failed flow processsing (flows still in queue)
@@ -1882,8 +2474,138 @@ public class ExecutorManager extends EventHandler implements
       }
     }
 
-    /* process flow with a snapshot of available Executors */
-    private void selectExecutorAndDispatchFlow(ExecutionReference reference,
+    /*
+     * Method responsible for dispatching the non-dispatched flows in batches.
+     * Each batch is matched against one snapshot of the executors, the
+     * capacity assigned to an executor is taken off its snapshot right away.
+     */
+    private void processQueuedFlowsInBatch(long activeExecutorsRefreshWindow,
+      int maxContinuousFlowProcessed) throws InterruptedException,
+      ExecutorManagerException {
+      long lastExecutorRefreshTime = 0;
+      int currentContinuousFlowProcessed = 0;
+      boolean systemBusy = false;
+
+      while (isActive()) {
+        List<Pair<ExecutionReference, ExecutableFlow>> batch =
+          queuedFlows.fetchHeads(dispatchBatchSize);
+        if (batch.isEmpty()) {
+          // nothing to dispatch, that doesn't make the executors busy
+          continue;
+        }
+
+        long currentTime = System.currentTimeMillis();
+        if (currentTime - lastExecutorRefreshTime > activeExecutorsRefreshWindow
+          || currentContinuousFlowProcessed >= maxContinuousFlowProcessed) {
+          // Refresh executorInfo for all activeExecutors
+          refreshExecutors();
+          lastExecutorRefreshTime = currentTime;
+          currentContinuousFlowProcessed = 0;
+          systemBusy = isSystemBusy();
+        }
+
+        Set<Executor> availableExecutors = new HashSet<Executor>(activeExecutors);
+        ExecutorSelector selector =
+          new ExecutorSelector(filterList, comparatorWeightsMap);
+        Map<Executor, List<Pair<ExecutionReference, ExecutableFlow>>> assignments =
+          new HashMap<Executor, List<Pair<ExecutionReference, ExecutableFlow>>>();
+        int numUnassigned = 0;
+
+        for (Pair<ExecutionReference, ExecutableFlow> pair : batch) {
+          ExecutableFlow exflow = pair.getSecond();
+          if (systemBusy && !isExecutorSpecified(exflow)) {
+            numUnassigned++;
+            queuedFlows.enqueue(exflow, pair.getFirst());
+            continue;
+          }
+
+          Executor selectedExecutor;
+          synchronized (exflow) {
+            exflow.setUpdateTime(currentTime);
+            selectedExecutor =
+              selectExecutor(exflow, availableExecutors, selector);
+            if (selectedExecutor == null) {
+              numUnassigned++;
+              handleNoExecutorSelectedCase(pair.getFirst(), exflow);
+              continue;
+            }
+          }
+
+          reserveCapacity(selectedExecutor);
+          systemBusy = isSystemBusy();
+          List<Pair<ExecutionReference, ExecutableFlow>> dispatches =
+            assignments.get(selectedExecutor);
+          if (dispatches == null) {
+            dispatches = new ArrayList<Pair<ExecutionReference, ExecutableFlow>>();
+            assignments.put(selectedExecutor, dispatches);
+          }
+          dispatches.add(pair);
+        }
+
+        for (Map.Entry<Executor, List<Pair<ExecutionReference, ExecutableFlow>>> entry : assignments
+          .entrySet()) {
+          dispatchBatchLocked(entry.getKey(), entry.getValue(), 0,
+            availableExecutors);
+        }
+        currentContinuousFlowProcessed += batch.size() - numUnassigned;
+
+        // None of the flows found an executor, so all of them are busy. Park
+        // instead of cycling through the queue.
+        if (numUnassigned == batch.size()) {
+          if (park(activeExecutorsRefreshWindow
+            - (System.currentTimeMillis() - lastExecutorRefreshTime))) {
+            lastExecutorRefreshTime = 0;
+          }
+          // woken up by a new flow the executors may have room again
+          systemBusy = isSystemBusy();
+        }
+      }
+    }
+
+    /*
+     * Takes the locks of the flows one by one, then dispatches them. Like
+     * selectExecutorAndDispatchFlow, a flow isn't cancelled or submitted
+     * again while it is dispatched.
+     */
+    private void dispatchBatchLocked(Executor executor,
+      List<Pair<ExecutionReference, ExecutableFlow>> dispatches, int index,
+      Set<Executor> availableExecutors) {
+      if (index < dispatches.size()) {
+        synchronized (dispatches.get(index).getSecond()) {
+          dispatchBatchLocked(executor, dispatches, index + 1,
+            availableExecutors);
+        }
+        return;
+      }
+
+      for (Pair<ExecutionReference, ExecutableFlow> failed : dispatchBatch(
+        executor, dispatches)) {
+        // fall back to dispatching the flow on its own to other executors
+        try {
+          handleDispatchExceptionCase(failed.getFirst(), failed.getSecond(),
+            executor, new HashSet<Executor>(availableExecutors));
+        } catch (ExecutorManagerException e) {
+          logger.error("Failed to dispatch exec "
+            + failed.getSecond().getExecutionId(), e);
+        }
+      }
+    }
+
+    /* Take a dispatched flow off the executor's capacity till the next refresh */
+    private void reserveCapacity(Executor executor) {
+      ExecutorInfo info = executor.getExecutorInfo();
+      if (info != null) {
+        info.setRemainingFlowCapacity(info.getRemainingFlowCapacity() - 1);
+        info.setNumberOfAssignedFlows(info.getNumberOfAssignedFlows() + 1);
+        info.setLastDispatchedTime(System.currentTimeMillis());
+      }
+    }
+
+    /*
+     * process flow with a snapshot of available Executors, returns false if
+     * no executor could be selected
+     */
+    private boolean selectExecutorAndDispatchFlow(ExecutionReference reference,
       ExecutableFlow exflow, Set<Executor> availableExecutors)
       throws ExecutorManagerException {
       synchronized (exflow) {
@@ -1891,6 +2613,7 @@ public class ExecutorManager extends EventHandler implements
         if (selectedExecutor != null) {
           try {
             dispatch(reference, exflow, selectedExecutor);
+            reserveCapacity(selectedExecutor);
           } catch (ExecutorManagerException e) {
             logger.warn(String.format(
               "Executor %s responded with exception for exec: %d",
@@ -1898,8 +2621,10 @@ public class ExecutorManager extends EventHandler implements
             handleDispatchExceptionCase(reference, exflow, selectedExecutor,
               availableExecutors);
           }
+          return true;
         } else {
           handleNoExecutorSelectedCase(reference, exflow);
+          return false;
         }
       }
     }
@@ -1944,6 +2669,13 @@ public class ExecutorManager extends EventHandler implements
     /* Choose Executor for exflow among the available executors */
     private Executor selectExecutor(ExecutableFlow exflow,
       Set<Executor> availableExecutors) {
+      //创建执行节点选择器，并选择最优的执行节点执行任务
+      return selectExecutor(exflow, availableExecutors, new ExecutorSelector(
+        filterList, comparatorWeightsMap));
+    }
+
+    private Executor selectExecutor(ExecutableFlow exflow,
+      Set<Executor> availableExecutors, ExecutorSelector selector) {
       Executor choosenExecutor =
         getUserSpecifiedExecutor(exflow.getExecutionOptions(),
           exflow.getExecutionId());
@@ -1952,13 +2684,36 @@ public class ExecutorManager extends EventHandler implements
       if (choosenExecutor == null) {
         logger.info("Using dispatcher for execution id :"
           + exflow.getExecutionId());
-        //创建执行节点选择器，并选择最优的执行节点执行任务
-        ExecutorSelector selector = new ExecutorSelector(filterList, comparatorWeightsMap);
-        choosenExecutor = selector.getBest(availableExecutors, exflow);
+        // executors with the project files set up start the flow sooner
+        Set<Executor> warmExecutors = getWarmExecutors(exflow, availableExecutors);
+        if (!warmExecutors.isEmpty()
+          && warmExecutors.size() < availableExecutors.size()) {
+          choosenExecutor = selector.getBest(warmExecutors, exflow);
+        }
+        if (choosenExecutor == null) {
+          choosenExecutor = selector.getBest(availableExecutors, exflow);
+        }
       }
       return choosenExecutor;
     }
 
+    private Set<Executor> getWarmExecutors(ExecutableFlow exflow,
+      Set<Executor> availableExecutors) {
+      Set<Executor> warmExecutors = new HashSet<Executor>();
+      if (!azkProps.getBoolean(AZKABAN_EXECUTOR_SELECTOR_PREFER_WARM, true)) {
+        return warmExecutors;
+      }
+      for (Executor executor : availableExecutors) {
+        ExecutorInfo info = executor.getExecutorInfo();
+        if (info != null
+          && info.isProjectVersionWarm(exflow.getProjectId(),
+            exflow.getVersion())) {
+          warmExecutors.add(executor);
+        }
+      }
+      return warmExecutors;
+    }
+
     private void handleDispatchExceptionCase(ExecutionReference reference,
       ExecutableFlow exflow, Executor lastSelectedExecutor,
       Set<Executor> remainingExecutors) throws ExecutorManagerException {
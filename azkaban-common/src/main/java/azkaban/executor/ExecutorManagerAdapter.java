@@ -17,6 +17,7 @@
 package azkaban.executor;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.Thread.State;
 import java.util.Collection;
 import java.util.List;
@@ -126,6 +127,32 @@ public interface ExecutorManagerAdapter {
   public List<ExecutableFlow> getExecutableFlows(int projectId, String flowId,
       int from, int length, Status status) throws ExecutorManagerException;
 
+  /**
+   * <pre>
+   * 以下方法与getExecutableFlows相同，但只返回执行的摘要信息，
+   * 不从数据库中读取和解析任务流数据
+   * Note:
+   * prefer these for the list views, they don't decode the flow data
+   * </pre>
+   */
+  public List<ExecutionSummary> getExecutionSummaries(int skip, int size)
+      throws ExecutorManagerException;
+
+  public List<ExecutionSummary> getExecutionSummaries(String flowIdContains,
+      int skip, int size) throws ExecutorManagerException;
+
+  public List<ExecutionSummary> getExecutionSummaries(String projContain,
+      String flowContain, String userContain, int status, long begin, long end,
+      int skip, int size) throws ExecutorManagerException;
+
+  public int getExecutionSummaries(int projectId, String flowId, int from,
+      int length, List<ExecutionSummary> outputList)
+      throws ExecutorManagerException;
+
+  public List<ExecutionSummary> getExecutionSummaries(int projectId,
+      String flowId, int from, int length, Status status)
+      throws ExecutorManagerException;
+
   public List<ExecutableJobInfo> getExecutableJobs(Project project,
       String jobId, int skip, int size) throws ExecutorManagerException;
 
@@ -141,6 +168,21 @@ public interface ExecutorManagerAdapter {
   public LogData getExecutionJobLog(ExecutableFlow exFlow, String jobId,
       int offset, int length, int attempt) throws ExecutorManagerException;
 
+  /**
+   * 将任务流日志以纯文本写入输出流，不经过json，
+   * 负数的length表示读到日志末尾
+   */
+  public void streamExecutableFlowLog(ExecutableFlow exFlow, int offset,
+      int length, OutputStream stream) throws ExecutorManagerException;
+
+  /**
+   * 将作业日志以纯文本写入输出流，不经过json，
+   * 负数的length表示读到日志末尾
+   */
+  public void streamExecutionJobLog(ExecutableFlow exFlow, String jobId,
+      int offset, int length, int attempt, OutputStream stream)
+      throws ExecutorManagerException;
+
   public List<Object> getExecutionJobStats(ExecutableFlow exflow, String jobId,
       int attempt) throws ExecutorManagerException;
 
@@ -181,6 +223,20 @@ public interface ExecutorManagerAdapter {
   public String submitExecutableFlow(ExecutableFlow exflow, String userId)
       throws ExecutorManagerException;
 
+  /**
+   * <pre>
+   * 批量提交任务流，用于同一时刻触发的多个调度
+   * Note:
+   * 1. each flow is submitted as by {@link #submitExecutableFlow}, under its
+   *    own lock and in its own transaction, so one failure doesn't fail the
+   *    others
+   * 2. returns one message per flow, in order. A flow that fails gets the
+   *    error as its message and no id
+   * </pre>
+   */
+  public List<String> submitExecutableFlows(List<ExecutableFlow> exflows,
+      String userId);
+
   /**
    * Manage servlet call for stats servlet in Azkaban execution server
    * Action can take any of the following values
@@ -265,4 +321,32 @@ public interface ExecutorManagerAdapter {
     * @throws ExecutorManagerException
     */
    public void disableQueueProcessorThread() throws ExecutorManagerException;
+
+   /**
+    * <pre>
+    * Apply execution updates pushed by an executor
+    * Note:
+    * 1. each update has the same format as the ones returned by
+    *    {@link azkaban.executor.ConnectorParams#UPDATE_ACTION}
+    * 2. updates of flows which are not running anymore are ignored
+    * 3. an update is only applied if it comes from the host of the executor
+    *    the flow is assigned to, the others are rejected
+    * </pre>
+    *
+    * @param remoteAddress the ip address the updates came from
+    * @return the execution ids of the rejected updates
+    */
+   public List<Integer> applyPushedUpdates(String remoteAddress,
+       List<Map<String, Object>> executionUpdates);
+
+   /**
+    * <pre>
+    * Ask the active executors to set up a newly uploaded project version
+    * Note:
+    * 1. the executors download and unpack the version in the background,
+    *    this call doesn't wait for them
+    * 2. dispatch prefers executors reporting the version as warm
+    * </pre>
+    */
+   public void prewarmProjectVersion(int projectId, int version);
 }
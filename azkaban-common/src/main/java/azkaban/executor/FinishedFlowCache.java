@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.JsonGenerator;
+
+import azkaban.utils.JSONUtils;
+
+/**
+ * <pre>
+ * 已完成任务流的LRU缓存，按序列化后的字节数限制大小，
+ * 避免查看已完成任务流时反复从数据库读取并解压flow_data
+ * Note:
+ * 1. only finished flows are cached, they don't change any more unless the
+ *    web server finalizes them, which invalidates the entry
+ * 2. the size of a flow is the length of its serialized json
+ * 3. a max size of 0 disables the cache
+ * </pre>
+ */
+public class FinishedFlowCache {
+  private static final Logger logger = Logger.getLogger(FinishedFlowCache.class);
+
+  private final long maxBytes;
+  private long currentBytes = 0;
+  private final LinkedHashMap<Integer, CachedFlow> flows =
+      new LinkedHashMap<Integer, CachedFlow>(16, 0.75f, true);
+
+  private final AtomicLong hits = new AtomicLong(0);
+  private final AtomicLong misses = new AtomicLong(0);
+  private final AtomicLong evictions = new AtomicLong(0);
+
+  public FinishedFlowCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns the cached flow, or null if it isn't cached.
+   */
+  public ExecutableFlow get(int execId) {
+    CachedFlow cached;
+    synchronized (flows) {
+      cached = flows.get(execId);
+    }
+
+    if (cached == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return cached.flow;
+  }
+
+  /**
+   * Caches the flow if it is finished and fits the cache.
+   */
+  public void put(ExecutableFlow flow) {
+    if (maxBytes <= 0 || !Status.isStatusFinished(flow.getStatus())) {
+      return;
+    }
+
+    long size;
+    try {
+      // only the length is needed, the json itself is discarded
+      CountingOutputStream counter =
+          new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+      JsonGenerator generator = JSONUtils.createJsonGenerator(counter);
+      flow.writeJson(generator);
+      generator.close();
+      size = counter.getByteCount();
+    } catch (IOException e) {
+      logger.error("Failed to size flow " + flow.getExecutionId(), e);
+      return;
+    }
+    if (size > maxBytes) {
+      return;
+    }
+
+    synchronized (flows) {
+      CachedFlow old = flows.put(flow.getExecutionId(), new CachedFlow(flow, size));
+      if (old != null) {
+        currentBytes -= old.size;
+      }
+      currentBytes += size;
+
+      Iterator<Map.Entry<Integer, CachedFlow>> iter =
+          flows.entrySet().iterator();
+      while (currentBytes > maxBytes && iter.hasNext()) {
+        CachedFlow eldest = iter.next().getValue();
+        iter.remove();
+        currentBytes -= eldest.size;
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  public void invalidate(int execId) {
+    synchronized (flows) {
+      CachedFlow old = flows.remove(execId);
+      if (old != null) {
+        currentBytes -= old.size;
+      }
+    }
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  public int getNumFlows() {
+    synchronized (flows) {
+      return flows.size();
+    }
+  }
+
+  public long getSizeInBytes() {
+    synchronized (flows) {
+      return currentBytes;
+    }
+  }
+
+  private static class CachedFlow {
+    private final ExecutableFlow flow;
+    private final long size;
+
+    public CachedFlow(ExecutableFlow flow, long size) {
+      this.flow = flow;
+      this.size = size;
+    }
+  }
+}
@@ -21,12 +21,15 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
 import java.lang.annotation.Inherited;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -39,12 +42,13 @@ import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
+import org.codehaus.jackson.JsonGenerator;
 import org.joda.time.DateTime;
 
 import azkaban.database.AbstractJdbcLoader;
 import azkaban.executor.ExecutorLogEvent.EventType;
-import azkaban.utils.FileIOUtils;
 import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.FileIOUtils.Utf8RangeWriter;
 import azkaban.utils.GZIPUtils;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
@@ -66,62 +70,139 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
 //  private EncodingType defaultEncodingType = EncodingType.GZIP;
     private EncodingType defaultEncodingType = EncodingType.PLAIN;
     //modified end
+  /** execution_flows和execution_flow_updates写入时的编码 */
+  private EncodingType flowEncodingType;
+  /** execution_logs写入时的编码 */
+  private EncodingType logEncodingType;
+  private static final String LOG_CHUNK_CACHE_MAX_BYTES =
+      "azkaban.log.chunk.cache.max.bytes";
+  /** 一次查询增量更新的最大执行数 */
+  private static final int FLOW_UPDATES_BATCH_SIZE = 500;
+
+  private final LogChunkCache logChunkCache;
+
   public JdbcExecutorLoader(Props props) {
     super(props);
+    flowEncodingType =
+        getTableEncodingType(props, "execution_flows", defaultEncodingType);
+    logEncodingType =
+        getTableEncodingType(props, "execution_logs", defaultEncodingType);
+    logChunkCache =
+        new LogChunkCache(props.getLong(LOG_CHUNK_CACHE_MAX_BYTES,
+            16 * 1024 * 1024));
   }
 
   public EncodingType getDefaultEncodingType() {
     return defaultEncodingType;
   }
 
+  /**
+   * Sets the encoding of all the tables, overriding the configured ones.
+   */
   public void setDefaultEncodingType(EncodingType defaultEncodingType) {
     this.defaultEncodingType = defaultEncodingType;
+    this.flowEncodingType = defaultEncodingType;
+    this.logEncodingType = defaultEncodingType;
   }
 
   @Override
-  public synchronized void uploadExecutableFlow(ExecutableFlow flow)
+  public void uploadExecutableFlow(ExecutableFlow flow)
       throws ExecutorManagerException {
     Connection connection = getConnection();
+    boolean committed = false;
     try {
-      uploadExecutableFlow(connection, flow, defaultEncodingType);
-    } catch (IOException e) {
-      throw new ExecutorManagerException("Error uploading flow", e);
+      uploadExecutableFlow(connection, flow, flowEncodingType);
+      connection.commit();
+      committed = true;
+    } catch (SQLException e) {
+      throw new ExecutorManagerException("Error creating execution.", e);
     } finally {
+      // whatever failed, the id of a rolled back insert is never used
+      if (!committed) {
+        try {
+          connection.rollback();
+        } catch (SQLException e) {
+          logger.error("Failed to roll back the flow upload", e);
+        }
+        flow.setExecutionId(-1);
+      }
       DbUtils.closeQuietly(connection);
     }
   }
 
-  private synchronized void uploadExecutableFlow(Connection connection,
-      ExecutableFlow flow, EncodingType encType)
-      throws ExecutorManagerException, IOException {
+  /**
+   * <pre>
+   * 插入一条执行记录，flow_data与标量列在同一条语句中写入，
+   * 执行id取自自增主键
+   * Note:
+   * 1. not synchronized, the id comes from the generated keys of this very
+   *    statement, not from a LAST_INSERT_ID query that has to follow it
+   * 2. the flow is encoded before its id is known, so the flow_data holds
+   *    an execution id of -1 until the next update. The fetch handlers take
+   *    the id from the exec_id column
+   * 3. the caller commits
+   * </pre>
+   */
+  private void uploadExecutableFlow(Connection connection,
+      ExecutableFlow flow, EncodingType encType) throws SQLException,
+      ExecutorManagerException {
     final String INSERT_EXECUTABLE_FLOW =
         "INSERT INTO execution_flows "
-            + "(project_id, flow_id, version, status, submit_time, submit_user, update_time) "
-            + "values (?,?,?,?,?,?,?)";
-    QueryRunner runner = new QueryRunner();
+            + "(project_id, flow_id, version, status, submit_time, submit_user, update_time, "
+            + "start_time, end_time, schedule_id, enc_type, flow_data) "
+            + "values (?,?,?,?,?,?,?,?,?,?,?,?)";
     long submitTime = System.currentTimeMillis();
+    flow.setStatus(Status.PREPARING);
+    byte[] data = encodeExecutableFlow(flow, encType);
 
-    long id;
+    PreparedStatement statement =
+        connection.prepareStatement(INSERT_EXECUTABLE_FLOW,
+            Statement.RETURN_GENERATED_KEYS);
     try {
-      flow.setStatus(Status.PREPARING);
-      runner.update(connection, INSERT_EXECUTABLE_FLOW, flow.getProjectId(),
-          flow.getFlowId(), flow.getVersion(), Status.PREPARING.getNumVal(),
-          submitTime, flow.getSubmitUser(), submitTime);
-      connection.commit();
-      id =
-          runner.query(connection, LastInsertID.LAST_INSERT_ID,
-              new LastInsertID());
-
-      if (id == -1L) {
-        throw new ExecutorManagerException(
-            "Execution id is not properly created.");
+      statement.setInt(1, flow.getProjectId());
+      statement.setString(2, flow.getFlowId());
+      statement.setInt(3, flow.getVersion());
+      statement.setInt(4, Status.PREPARING.getNumVal());
+      statement.setLong(5, submitTime);
+      statement.setString(6, flow.getSubmitUser());
+      statement.setLong(7, submitTime);
+      statement.setLong(8, flow.getStartTime());
+      statement.setLong(9, flow.getEndTime());
+      statement.setInt(10, flow.getScheduleId());
+      statement.setInt(11, encType.getNumVal());
+      statement.setBytes(12, data);
+      statement.executeUpdate();
+
+      ResultSet keys = statement.getGeneratedKeys();
+      try {
+        if (!keys.next()) {
+          throw new ExecutorManagerException(
+              "Execution id is not properly created.");
+        }
+        flow.setExecutionId(keys.getInt(1));
+      } finally {
+        keys.close();
       }
-      logger.info("Flow given " + flow.getFlowId() + " given id " + id);
-      flow.setExecutionId((int) id);
+    } finally {
+      statement.close();
+    }
+    logger.info("Flow given " + flow.getFlowId() + " given id "
+        + flow.getExecutionId());
+  }
 
-      updateExecutableFlow(connection, flow, encType);
-    } catch (SQLException e) {
-      throw new ExecutorManagerException("Error creating execution.", e);
+  private byte[] encodeExecutableFlow(ExecutableFlow flow,
+      EncodingType encType) throws ExecutorManagerException {
+    try {
+      if (encType.isBinaryFormat()) {
+        return encType.encodeObject(flow.toObject());
+      }
+      ByteArrayOutputStream json = new ByteArrayOutputStream();
+      JsonGenerator generator = JSONUtils.createJsonGenerator(json);
+      flow.writeJson(generator);
+      generator.close();
+      return encType.encode(json.toByteArray());
+    } catch (IOException e) {
+      throw new ExecutorManagerException("Error encoding the execution flow.");
     }
   }
 
@@ -136,7 +217,7 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
     Connection connection = this.getConnection();
 
     try {
-      updateExecutableFlow(connection, flow, defaultEncodingType);
+      updateExecutableFlow(connection, flow, flowEncodingType);
     } finally {
       DbUtils.closeQuietly(connection);
     }
@@ -153,30 +234,73 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
       EncodingType encType) throws ExecutorManagerException {
     final String UPDATE_EXECUTABLE_FLOW_DATA =
         "UPDATE execution_flows "
-            + "SET status=?,update_time=?,start_time=?,end_time=?,enc_type=?,flow_data=? "
+            + "SET status=?,update_time=?,start_time=?,end_time=?,enc_type=?,flow_data=?,"
+            + "submit_user=?,schedule_id=? "
             + "WHERE exec_id=?";
     QueryRunner runner = new QueryRunner();
 
-    String json = JSONUtils.toJSON(flow.toObject());
-    byte[] data = null;
+    byte[] data = encodeExecutableFlow(flow, encType);
+
+    final String DELETE_EXECUTABLE_FLOW_UPDATES =
+        "DELETE FROM execution_flow_updates WHERE exec_id=?";
+
     try {
-      byte[] stringData = json.getBytes("UTF-8");
-      data = stringData;
+      runner.update(connection, UPDATE_EXECUTABLE_FLOW_DATA, flow.getStatus()
+          .getNumVal(), flow.getUpdateTime(), flow.getStartTime(), flow
+          .getEndTime(), encType.getNumVal(), data, flow.getSubmitUser(), flow
+          .getScheduleId(), flow.getExecutionId());
+      // The full flow data supersedes any appended update.
+      runner.update(connection, DELETE_EXECUTABLE_FLOW_UPDATES,
+          flow.getExecutionId());
+      connection.commit();
+    } catch (SQLException e) {
+      throw new ExecutorManagerException("Error updating flow.", e);
+    }
+  }
+
+  @Override
+  public void appendExecutableFlowUpdate(ExecutableFlow flow,
+      long lastUpdateTime) throws ExecutorManagerException {
+    final String INSERT_EXECUTABLE_FLOW_UPDATE =
+        "INSERT INTO execution_flow_updates "
+            + "(exec_id, update_time, enc_type, update_data) values (?,?,?,?)";
+    final String UPDATE_EXECUTABLE_FLOW_STATUS =
+        "UPDATE execution_flows "
+            + "SET status=?,update_time=?,start_time=?,end_time=? "
+            + "WHERE exec_id=?";
 
-      if (encType == EncodingType.GZIP) {
-        data = GZIPUtils.gzipBytes(stringData);
+    byte[] data = null;
+    try {
+      if (flowEncodingType.isBinaryFormat()) {
+        data =
+            flowEncodingType.encodeObject(flow.toUpdateObject(lastUpdateTime));
+      } else {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        JsonGenerator generator = JSONUtils.createJsonGenerator(json);
+        flow.writeUpdateJson(generator, lastUpdateTime);
+        generator.close();
+        data = flowEncodingType.encode(json.toByteArray());
       }
     } catch (IOException e) {
-      throw new ExecutorManagerException("Error encoding the execution flow.");
+      throw new ExecutorManagerException(
+          "Error encoding the execution flow update.");
     }
 
+    Connection connection = getConnection();
+    QueryRunner runner = new QueryRunner();
     try {
-      runner.update(connection, UPDATE_EXECUTABLE_FLOW_DATA, flow.getStatus()
-          .getNumVal(), flow.getUpdateTime(), flow.getStartTime(), flow
-          .getEndTime(), encType.getNumVal(), data, flow.getExecutionId());
+      runner.update(connection, INSERT_EXECUTABLE_FLOW_UPDATE,
+          flow.getExecutionId(), flow.getUpdateTime(),
+          flowEncodingType.getNumVal(), data);
+      // Keep the scalar columns current, the history pages read them.
+      runner.update(connection, UPDATE_EXECUTABLE_FLOW_STATUS, flow
+          .getStatus().getNumVal(), flow.getUpdateTime(), flow.getStartTime(),
+          flow.getEndTime(), flow.getExecutionId());
       connection.commit();
     } catch (SQLException e) {
-      throw new ExecutorManagerException("Error updating flow.", e);
+      throw new ExecutorManagerException("Error appending flow update.", e);
+    } finally {
+      DbUtils.closeQuietly(connection);
     }
   }
 
@@ -198,14 +322,61 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
               id);
       if (properties.isEmpty()) {
         return null;
-      } else {
-        return properties.get(0);
       }
+
+      ExecutableFlow flow = properties.get(0);
+      applyExecutableFlowUpdates(runner, properties);
+      return flow;
     } catch (SQLException e) {
       throw new ExecutorManagerException("Error fetching flow id " + id, e);
     }
   }
 
+    /**
+     * <pre>
+     * 在读出的流上重放上次完整写入之后追加的增量更新，所有读取flow_data的地方都要经过这里
+     * Note:
+     * the updates of all the flows are fetched by exec_id in batches of
+     * FLOW_UPDATES_BATCH_SIZE, instead of one query per flow
+     * </pre>
+     * @param runner
+     * @param flows
+     * @throws SQLException
+     */
+  private void applyExecutableFlowUpdates(QueryRunner runner,
+      List<ExecutableFlow> flows) throws SQLException {
+    for (int start = 0; start < flows.size(); start += FLOW_UPDATES_BATCH_SIZE) {
+      List<ExecutableFlow> batch =
+          flows.subList(start,
+              Math.min(start + FLOW_UPDATES_BATCH_SIZE, flows.size()));
+
+      StringBuilder query =
+          new StringBuilder(FetchExecutableFlowUpdates.FETCH_BASE_FLOW_UPDATES);
+      Object[] execIds = new Object[batch.size()];
+      for (int i = 0; i < batch.size(); i++) {
+        query.append(i == 0 ? "?" : ",?");
+        execIds[i] = batch.get(i).getExecutionId();
+      }
+      query.append(") ORDER BY update_id");
+
+      Map<Integer, List<Map<String, Object>>> updates =
+          runner.query(query.toString(), new FetchExecutableFlowUpdates(),
+              execIds);
+      if (updates.isEmpty()) {
+        continue;
+      }
+      for (ExecutableFlow flow : batch) {
+        List<Map<String, Object>> flowUpdates =
+            updates.get(flow.getExecutionId());
+        if (flowUpdates != null) {
+          for (Map<String, Object> updateData : flowUpdates) {
+            flow.applyUpdateObject(updateData);
+          }
+        }
+      }
+    }
+  }
+
   /**
    * 获取那些还没有被分发出去的任务组成的队列
    * {@inheritDoc}
@@ -221,6 +392,11 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
       List<Pair<ExecutionReference, ExecutableFlow>> flows =
         runner.query(FetchQueuedExecutableFlows.FETCH_QUEUED_EXECUTABLE_FLOW,
           flowHandler);
+      List<ExecutableFlow> execFlows = new ArrayList<ExecutableFlow>();
+      for (Pair<ExecutionReference, ExecutableFlow> pair : flows) {
+        execFlows.add(pair.getSecond());
+      }
+      applyExecutableFlowUpdates(runner, execFlows);
       return flows;
     } catch (SQLException e) {
       throw new ExecutorManagerException("Error fetching active flows", e);
@@ -237,6 +413,13 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
       Map<Integer, Pair<ExecutionReference, ExecutableFlow>> properties =
           runner.query(FetchActiveExecutableFlows.FETCH_ACTIVE_EXECUTABLE_FLOW,
               flowHandler);
+      List<ExecutableFlow> execFlows = new ArrayList<ExecutableFlow>();
+      for (Pair<ExecutionReference, ExecutableFlow> pair : properties.values()) {
+        if (pair != null) {
+          execFlows.add(pair.getSecond());
+        }
+      }
+      applyExecutableFlowUpdates(runner, execFlows);
       return properties;
     } catch (SQLException e) {
       throw new ExecutorManagerException("Error fetching active flows", e);
@@ -298,6 +481,7 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
       List<ExecutableFlow> properties =
           runner.query(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_HISTORY,
               flowHandler, projectId, flowId, skip, num);
+      applyExecutableFlowUpdates(runner, properties);
       return properties;
     } catch (SQLException e) {
       throw new ExecutorManagerException("Error fetching active flows", e);
@@ -314,6 +498,7 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
       List<ExecutableFlow> properties =
           runner.query(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_BY_STATUS,
               flowHandler, projectId, flowId, status.getNumVal(), skip, num);
+      applyExecutableFlowUpdates(runner, properties);
       return properties;
     } catch (SQLException e) {
       throw new ExecutorManagerException("Error fetching active flows", e);
@@ -331,6 +516,7 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
       List<ExecutableFlow> properties =
           runner.query(FetchExecutableFlows.FETCH_ALL_EXECUTABLE_FLOW_HISTORY,
               flowHandler, skip, num);
+      applyExecutableFlowUpdates(runner, properties);
       return properties;
     } catch (SQLException e) {
       throw new ExecutorManagerException("Error fetching active flows", e);
@@ -341,12 +527,36 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
   public List<ExecutableFlow> fetchFlowHistory(String projContain,
       String flowContains, String userNameContains, int status, long startTime,
       long endTime, int skip, int num) throws ExecutorManagerException {
-    String query = FetchExecutableFlows.FETCH_BASE_EXECUTABLE_FLOW_QUERY;
     ArrayList<Object> params = new ArrayList<Object>();
+    String query =
+        createFlowHistoryQuery(
+            FetchExecutableFlows.FETCH_BASE_EXECUTABLE_FLOW_QUERY, projContain,
+            flowContains, userNameContains, status, startTime, endTime, skip,
+            num, params);
+
+    QueryRunner runner = createQueryRunner();
+    FetchExecutableFlows flowHandler = new FetchExecutableFlows();
+
+    try {
+      List<ExecutableFlow> properties =
+          runner.query(query, flowHandler, params.toArray());
+      applyExecutableFlowUpdates(runner, properties);
+      return properties;
+    } catch (SQLException e) {
+      throw new ExecutorManagerException("Error fetching active flows", e);
+    }
+  }
 
+  /**
+   * Appends the filters of the flow history search to the base query, and
+   * their values to params. The base query selects from "execution_flows ef".
+   */
+  private String createFlowHistoryQuery(String query, String projContain,
+      String flowContains, String userNameContains, int status, long startTime,
+      long endTime, int skip, int num, List<Object> params) {
     boolean first = true;
     if (projContain != null && !projContain.isEmpty()) {
-      query += " ef JOIN projects p ON ef.project_id = p.id WHERE name LIKE ?";
+      query += " JOIN projects p ON ef.project_id = p.id WHERE name LIKE ?";
       params.add('%' + projContain + '%');
       first = false;
     }
@@ -413,15 +623,73 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
       params.add(num);
     }
 
+    return query;
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(int skip, int num)
+      throws ExecutorManagerException {
     QueryRunner runner = createQueryRunner();
-    FetchExecutableFlows flowHandler = new FetchExecutableFlows();
+    FetchExecutionSummaries summaryHandler = new FetchExecutionSummaries();
 
     try {
-      List<ExecutableFlow> properties =
-          runner.query(query, flowHandler, params.toArray());
-      return properties;
+      return runner.query(FetchExecutionSummaries.FETCH_ALL_SUMMARIES,
+          summaryHandler, skip, num);
     } catch (SQLException e) {
-      throw new ExecutorManagerException("Error fetching active flows", e);
+      throw new ExecutorManagerException("Error fetching execution summaries",
+          e);
+    }
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(int projectId,
+      String flowId, int skip, int num) throws ExecutorManagerException {
+    QueryRunner runner = createQueryRunner();
+    FetchExecutionSummaries summaryHandler = new FetchExecutionSummaries();
+
+    try {
+      return runner.query(FetchExecutionSummaries.FETCH_FLOW_SUMMARIES,
+          summaryHandler, projectId, flowId, skip, num);
+    } catch (SQLException e) {
+      throw new ExecutorManagerException("Error fetching execution summaries",
+          e);
+    }
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(int projectId,
+      String flowId, int skip, int num, Status status)
+      throws ExecutorManagerException {
+    QueryRunner runner = createQueryRunner();
+    FetchExecutionSummaries summaryHandler = new FetchExecutionSummaries();
+
+    try {
+      return runner.query(FetchExecutionSummaries.FETCH_FLOW_SUMMARIES_BY_STATUS,
+          summaryHandler, projectId, flowId, status.getNumVal(), skip, num);
+    } catch (SQLException e) {
+      throw new ExecutorManagerException("Error fetching execution summaries",
+          e);
+    }
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(String projContain,
+      String flowContains, String userNameContains, int status, long startTime,
+      long endTime, int skip, int num) throws ExecutorManagerException {
+    ArrayList<Object> params = new ArrayList<Object>();
+    String query =
+        createFlowHistoryQuery(FetchExecutionSummaries.FETCH_BASE_SUMMARY_QUERY,
+            projContain, flowContains, userNameContains, status, startTime,
+            endTime, skip, num, params);
+
+    QueryRunner runner = createQueryRunner();
+    FetchExecutionSummaries summaryHandler = new FetchExecutionSummaries();
+
+    try {
+      return runner.query(query, summaryHandler, params.toArray());
+    } catch (SQLException e) {
+      throw new ExecutorManagerException("Error fetching execution summaries",
+          e);
     }
   }
 
@@ -647,19 +915,93 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
   @Override
   public LogData fetchLogs(int execId, String name, int attempt, int startByte,
       int length) throws ExecutorManagerException {
+    ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+    Pair<Integer, Integer> range =
+        streamLogs(execId, name, attempt, startByte, length, byteStream);
+    if (range == null) {
+      return null;
+    }
+
+    try {
+      return new LogData(range.getFirst(), range.getSecond(),
+          byteStream.toString("UTF-8"));
+    } catch (UnsupportedEncodingException e) {
+      throw new ExecutorManagerException("Error decoding logs " + execId
+          + " : " + name, e);
+    }
+  }
+
+  /**
+   * 先按start_byte查出与范围相交的日志块，再逐块读取、解压并写出，
+   * 占用的内存只和块的大小有关
+   */
+  @Override
+  public Pair<Integer, Integer> streamLogs(int execId, String name,
+      int attempt, int startByte, int length, OutputStream stream)
+      throws ExecutorManagerException {
     QueryRunner runner = createQueryRunner();
+    int endByte =
+        length < 0 ? Integer.MAX_VALUE : (int) Math.min(Integer.MAX_VALUE,
+            (long) startByte + length);
 
-    FetchLogsHandler handler =
-        new FetchLogsHandler(startByte, length + startByte);
     try {
-      LogData result =
-          runner.query(FetchLogsHandler.FETCH_LOGS, handler, execId, name,
-              attempt, startByte, startByte + length);
-      return result;
+      List<Pair<Integer, Integer>> chunks =
+          runner.query(FetchLogChunksHandler.FETCH_LOG_CHUNKS,
+              new FetchLogChunksHandler(), execId, name, attempt, startByte,
+              endByte);
+      if (chunks.isEmpty()) {
+        return null;
+      }
+
+      Utf8RangeWriter writer = null;
+      for (Pair<Integer, Integer> chunkRange : chunks) {
+        int chunkStart = chunkRange.getFirst();
+        byte[] chunk =
+            fetchLogChunk(runner, execId, name, attempt, chunkStart);
+        if (chunk == null) {
+          continue;
+        }
+
+        int offset = Math.max(0, startByte - chunkStart);
+        int end = (int) Math.min(chunk.length, (long) endByte - chunkStart);
+        if (end <= offset) {
+          continue;
+        }
+        if (writer == null) {
+          writer = new Utf8RangeWriter(stream, chunkStart + offset);
+        }
+        writer.write(chunk, offset, end - offset);
+      }
+
+      if (writer == null) {
+        return new Pair<Integer, Integer>(startByte, 0);
+      }
+      return writer.finish();
     } catch (SQLException e) {
       throw new ExecutorManagerException("Error fetching logs " + execId
           + " : " + name, e);
+    } catch (IOException e) {
+      throw new ExecutorManagerException("Error streaming logs " + execId
+          + " : " + name, e);
+    }
+  }
+
+  private byte[] fetchLogChunk(QueryRunner runner, int execId, String name,
+      int attempt, int startByte) throws SQLException {
+    byte[] chunk = logChunkCache.get(execId, name, attempt, startByte);
+    if (chunk == null) {
+      chunk =
+          runner.query(FetchLogChunkHandler.FETCH_LOG_CHUNK,
+              new FetchLogChunkHandler(), execId, name, attempt, startByte);
+      if (chunk != null) {
+        logChunkCache.put(execId, name, attempt, startByte, chunk);
+      }
     }
+    return chunk;
+  }
+
+  public LogChunkCache getLogChunkCache() {
+    return logChunkCache;
   }
 
   @Override
@@ -705,7 +1047,7 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
     Connection connection = getConnection();
     try {
       uploadLogFile(connection, execId, name, attempt, files,
-          defaultEncodingType);
+          logEncodingType);
       connection.commit();
     } catch (SQLException e) {
       throw new ExecutorManagerException("Error committing log", e);
@@ -716,6 +1058,30 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
     }
   }
 
+  @Override
+  public void uploadLogChunks(List<LogChunk> chunks)
+      throws ExecutorManagerException {
+    if (chunks.isEmpty()) {
+      return;
+    }
+
+    Connection connection = getConnection();
+    try {
+      for (LogChunk chunk : chunks) {
+        uploadLogPart(connection, chunk.getExecId(), chunk.getName(),
+            chunk.getAttempt(), chunk.getStartByte(), chunk.getEndByte(),
+            logEncodingType, chunk.getData(), chunk.getData().length);
+      }
+      connection.commit();
+    } catch (SQLException e) {
+      throw new ExecutorManagerException("Error committing log chunks", e);
+    } catch (IOException e) {
+      throw new ExecutorManagerException("Error committing log chunks", e);
+    } finally {
+      DbUtils.closeQuietly(connection);
+    }
+  }
+
   private void uploadLogFile(Connection connection, int execId, String name,
       int attempt, File[] files, EncodingType encType)
       throws ExecutorManagerException, IOException {
@@ -775,12 +1141,7 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
             + "log, upload_time) VALUES (?,?,?,?,?,?,?,?)";
 
     QueryRunner runner = new QueryRunner();
-    byte[] buf = buffer;
-    if (encType == EncodingType.GZIP) {
-      buf = GZIPUtils.gzipBytes(buf, 0, length);
-    } else if (length < buf.length) {
-      buf = Arrays.copyOf(buffer, length);
-    }
+    byte[] buf = encType.encode(buffer, 0, length);
 
     runner.update(connection, INSERT_EXECUTION_LOGS, execId, name, attempt,
         encType.getNumVal(), startByte, startByte + length, buf, DateTime.now()
@@ -1095,76 +1456,53 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
     return executor;
   }
 
-  private static class LastInsertID implements ResultSetHandler<Long> {
-    private static String LAST_INSERT_ID = "SELECT LAST_INSERT_ID()";
+  /**
+   * 与字节范围相交的日志块的起止位置
+   */
+  private static class FetchLogChunksHandler implements
+      ResultSetHandler<List<Pair<Integer, Integer>>> {
+    private static String FETCH_LOG_CHUNKS =
+        "SELECT start_byte, end_byte FROM execution_logs "
+            + "WHERE exec_id=? AND name=? AND attempt=? AND end_byte > ? "
+            + "AND start_byte < ? ORDER BY start_byte";
 
     @Override
-    public Long handle(ResultSet rs) throws SQLException {
-      if (!rs.next()) {
-        return -1L;
+    public List<Pair<Integer, Integer>> handle(ResultSet rs)
+        throws SQLException {
+      List<Pair<Integer, Integer>> chunks =
+          new ArrayList<Pair<Integer, Integer>>();
+      while (rs.next()) {
+        chunks.add(new Pair<Integer, Integer>(rs.getInt(1), rs.getInt(2)));
       }
-      long id = rs.getLong(1);
-      return id;
+      return chunks;
     }
   }
 
-  private static class FetchLogsHandler implements ResultSetHandler<LogData> {
-    private static String FETCH_LOGS =
-        "SELECT exec_id, name, attempt, enc_type, start_byte, end_byte, log "
-            + "FROM execution_logs "
-            + "WHERE exec_id=? AND name=? AND attempt=? AND end_byte > ? "
-            + "AND start_byte <= ? ORDER BY start_byte";
-
-    private int startByte;
-    private int endByte;
-
-    public FetchLogsHandler(int startByte, int endByte) {
-      this.startByte = startByte;
-      this.endByte = endByte;
-    }
+  /**
+   * 读取并解压单个日志块
+   */
+  private static class FetchLogChunkHandler implements
+      ResultSetHandler<byte[]> {
+    private static String FETCH_LOG_CHUNK =
+        "SELECT enc_type, log FROM execution_logs "
+            + "WHERE exec_id=? AND name=? AND attempt=? AND start_byte=?";
 
     @Override
-    public LogData handle(ResultSet rs) throws SQLException {
+    public byte[] handle(ResultSet rs) throws SQLException {
       if (!rs.next()) {
         return null;
       }
 
-      ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-
-      do {
-        // int execId = rs.getInt(1);
-        // String name = rs.getString(2);
-        @SuppressWarnings("unused")
-        int attempt = rs.getInt(3);
-        EncodingType encType = EncodingType.fromInteger(rs.getInt(4));
-        int startByte = rs.getInt(5);
-        int endByte = rs.getInt(6);
-
-        byte[] data = rs.getBytes(7);
-
-        int offset =
-            this.startByte > startByte ? this.startByte - startByte : 0;
-        int length =
-            this.endByte < endByte ? this.endByte - startByte - offset
-                : endByte - startByte - offset;
-        try {
-          byte[] buffer = data;
-          if (encType == EncodingType.GZIP) {
-            buffer = GZIPUtils.unGzipBytes(data);
-          }
-
-          byteStream.write(buffer, offset, length);
-        } catch (IOException e) {
-          throw new SQLException(e);
-        }
-      } while (rs.next());
-
-      byte[] buffer = byteStream.toByteArray();
-      Pair<Integer, Integer> result =
-          FileIOUtils.getUtf8Range(buffer, 0, buffer.length);
-
-      return new LogData(startByte + result.getFirst(), result.getSecond(),
-          new String(buffer, result.getFirst(), result.getSecond()));
+      EncodingType encType = EncodingType.fromInteger(rs.getInt(1));
+      byte[] data = rs.getBytes(2);
+      if (data == null) {
+        return new byte[0];
+      }
+      try {
+        return encType.decode(data);
+      } catch (IOException e) {
+        throw new SQLException(e);
+      }
     }
   }
 
@@ -1332,19 +1670,11 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
           EncodingType encType = EncodingType.fromInteger(encodingType);
           Object flowObj;
           try {
-            // Convoluted way to inflate strings. Should find common package or
-            // helper function.
-            if (encType == EncodingType.GZIP) {
-              // Decompress the sucker.
-              String jsonString = GZIPUtils.unGzipString(data, "UTF-8");
-              flowObj = JSONUtils.parseJSONFromString(jsonString);
-            } else {
-              String jsonString = new String(data, "UTF-8");
-              flowObj = JSONUtils.parseJSONFromString(jsonString);
-            }
+            flowObj = encType.decodeObject(data);
 
             ExecutableFlow exFlow =
               ExecutableFlow.createExecutableFlowFromObject(flowObj);
+            exFlow.setExecutionId(id);
             ExecutionReference ref = new ExecutionReference(id);
             ref.setUpdateTime(updateTime);
 
@@ -1398,19 +1728,12 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
           EncodingType encType = EncodingType.fromInteger(encodingType);
           Object flowObj;
           try {
-            // Convoluted way to inflate strings. Should find common package or
-            // helper function.
-            if (encType == EncodingType.GZIP) {
-              // Decompress the sucker.
-              String jsonString = GZIPUtils.unGzipString(data, "UTF-8");
-              flowObj = JSONUtils.parseJSONFromString(jsonString);
-            } else {
-              String jsonString = new String(data, "UTF-8");
-              flowObj = JSONUtils.parseJSONFromString(jsonString);
-            }
+            flowObj = encType.decodeObject(data);
 
             ExecutableFlow exFlow =
                 ExecutableFlow.createExecutableFlowFromObject(flowObj);
+            // the flow_data of a flow never updated since its upload has no id
+            exFlow.setExecutionId(id);
             Executor executor = new Executor(executorId, host, port, executorStatus);
             ExecutionReference ref = new ExecutionReference(id, executor);
             ref.setUpdateTime(updateTime);
@@ -1427,10 +1750,122 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
     }
   }
 
+  /**
+   * 获取任务流在上次完整写入之后追加的增量更新，以执行id为key，按写入顺序排列
+   */
+  private static class FetchExecutableFlowUpdates implements
+      ResultSetHandler<Map<Integer, List<Map<String, Object>>>> {
+    private static String FETCH_BASE_FLOW_UPDATES =
+        "SELECT exec_id, update_id, enc_type, update_data "
+            + "FROM execution_flow_updates WHERE exec_id IN (";
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<Integer, List<Map<String, Object>>> handle(ResultSet rs)
+        throws SQLException {
+      if (!rs.next()) {
+        return Collections.<Integer, List<Map<String, Object>>> emptyMap();
+      }
+
+      Map<Integer, List<Map<String, Object>>> updates =
+          new HashMap<Integer, List<Map<String, Object>>>();
+      do {
+        int execId = rs.getInt(1);
+        long id = rs.getLong(2);
+        EncodingType encType = EncodingType.fromInteger(rs.getInt(3));
+        byte[] data = rs.getBytes(4);
+
+        if (data != null) {
+          List<Map<String, Object>> flowUpdates = updates.get(execId);
+          if (flowUpdates == null) {
+            flowUpdates = new ArrayList<Map<String, Object>>();
+            updates.put(execId, flowUpdates);
+          }
+          try {
+            flowUpdates.add((Map<String, Object>) encType.decodeObject(data));
+          } catch (IOException e) {
+            throw new SQLException("Error retrieving flow update " + id, e);
+          }
+        }
+      } while (rs.next());
+
+      return updates;
+    }
+  }
+
+  /**
+   * <pre>
+   * 只读取execution_flows表中的标量列，不解压flow_data
+   * Note:
+   * rows written before schedule_id became a column have it null, for those
+   * only the flow data is read to recover the schedule id
+   * </pre>
+   */
+  private static class FetchExecutionSummaries implements
+      ResultSetHandler<List<ExecutionSummary>> {
+    private static String FETCH_BASE_SUMMARY_QUERY =
+        "SELECT ef.exec_id, ef.project_id, ef.version, ef.flow_id, ef.status, "
+            + "ef.submit_user, ef.submit_time, ef.update_time, ef.start_time, "
+            + "ef.end_time, ef.schedule_id, "
+            + "CASE WHEN ef.schedule_id IS NULL THEN ef.enc_type END, "
+            + "CASE WHEN ef.schedule_id IS NULL THEN ef.flow_data END "
+            + "FROM execution_flows ef ";
+    private static String FETCH_ALL_SUMMARIES = FETCH_BASE_SUMMARY_QUERY
+        + "ORDER BY exec_id DESC LIMIT ?, ?";
+    private static String FETCH_FLOW_SUMMARIES = FETCH_BASE_SUMMARY_QUERY
+        + "WHERE project_id=? AND flow_id=? "
+        + "ORDER BY exec_id DESC LIMIT ?, ?";
+    private static String FETCH_FLOW_SUMMARIES_BY_STATUS =
+        FETCH_BASE_SUMMARY_QUERY
+            + "WHERE project_id=? AND flow_id=? AND status=? "
+            + "ORDER BY exec_id DESC LIMIT ?, ?";
+
+    @Override
+    public List<ExecutionSummary> handle(ResultSet rs) throws SQLException {
+      if (!rs.next()) {
+        return Collections.<ExecutionSummary> emptyList();
+      }
+
+      List<ExecutionSummary> summaries = new ArrayList<ExecutionSummary>();
+      do {
+        int id = rs.getInt(1);
+        int scheduleId = rs.getInt(11);
+        if (rs.wasNull()) {
+          scheduleId = fetchLegacyScheduleId(id, rs.getInt(12), rs.getBytes(13));
+        }
+
+        summaries.add(new ExecutionSummary(id, rs.getInt(2), rs.getInt(3), rs
+            .getString(4), Status.fromInteger(rs.getInt(5)), rs.getString(6),
+            rs.getLong(7), rs.getLong(8), rs.getLong(9), rs.getLong(10),
+            scheduleId));
+      } while (rs.next());
+
+      return summaries;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int fetchLegacyScheduleId(int id, int encodingType, byte[] data)
+        throws SQLException {
+      if (data == null) {
+        return -1;
+      }
+
+      try {
+        Map<String, Object> flowObj =
+            (Map<String, Object>) EncodingType.fromInteger(encodingType)
+                .decodeObject(data);
+        Object scheduleId = flowObj.get(ExecutableFlow.SCHEDULEID_PARAM);
+        return scheduleId == null ? -1 : ((Number) scheduleId).intValue();
+      } catch (IOException e) {
+        throw new SQLException("Error retrieving flow data " + id, e);
+      }
+    }
+  }
+
   private static class FetchExecutableFlows implements
       ResultSetHandler<List<ExecutableFlow>> {
     private static String FETCH_BASE_EXECUTABLE_FLOW_QUERY =
-        "SELECT exec_id, enc_type, flow_data FROM execution_flows ";
+        "SELECT ef.exec_id, ef.enc_type, ef.flow_data FROM execution_flows ef ";
     private static String FETCH_EXECUTABLE_FLOW =
         "SELECT exec_id, enc_type, flow_data FROM execution_flows "
             + "WHERE exec_id=?";
@@ -1467,19 +1902,11 @@ public class JdbcExecutorLoader extends AbstractJdbcLoader implements
           EncodingType encType = EncodingType.fromInteger(encodingType);
           Object flowObj;
           try {
-            // Convoluted way to inflate strings. Should find common package
-            // or helper function.
-            if (encType == EncodingType.GZIP) {
-              // Decompress the sucker.
-              String jsonString = GZIPUtils.unGzipString(data, "UTF-8");
-              flowObj = JSONUtils.parseJSONFromString(jsonString);
-            } else {
-              String jsonString = new String(data, "UTF-8");
-              flowObj = JSONUtils.parseJSONFromString(jsonString);
-            }
+            flowObj = encType.decodeObject(data);
 
             ExecutableFlow exFlow =
                 ExecutableFlow.createExecutableFlowFromObject(flowObj);
+            exFlow.setExecutionId(id);
             execFlows.add(exFlow);
           } catch (IOException e) {
             throw new SQLException("Error retrieving flow data " + id, e);
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+/**
+ * 日志中的一块连续字节，对应execution_logs表中的一行
+ */
+public class LogChunk {
+  private final int execId;
+  private final String name;
+  private final int attempt;
+  private final int startByte;
+  private final byte[] data;
+
+  public LogChunk(int execId, String name, int attempt, int startByte,
+      byte[] data) {
+    this.execId = execId;
+    this.name = name;
+    this.attempt = attempt;
+    this.startByte = startByte;
+    this.data = data;
+  }
+
+  public int getExecId() {
+    return execId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getAttempt() {
+    return attempt;
+  }
+
+  public int getStartByte() {
+    return startByte;
+  }
+
+  public int getEndByte() {
+    return startByte + data.length;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+}
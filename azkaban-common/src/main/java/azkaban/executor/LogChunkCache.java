@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ * 已解压日志块的LRU缓存，按字节数限制大小，
+ * 翻页查看同一份日志时不必重复读取和解压相同的块
+ * Note:
+ * 1. a chunk is keyed on its execution, name, attempt and start byte, the
+ *    primary key of execution_logs. Uploaded chunks are never rewritten, so
+ *    the entries don't need invalidating
+ * 2. a max size of 0 disables the cache
+ * </pre>
+ */
+public class LogChunkCache {
+  private final long maxBytes;
+  private long currentBytes = 0;
+  private final LinkedHashMap<String, byte[]> chunks =
+      new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+
+  private final AtomicLong hits = new AtomicLong(0);
+  private final AtomicLong misses = new AtomicLong(0);
+
+  public LogChunkCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns the decompressed chunk, or null if it isn't cached.
+   */
+  public byte[] get(int execId, String name, int attempt, int startByte) {
+    byte[] chunk;
+    synchronized (chunks) {
+      chunk = chunks.get(getKey(execId, name, attempt, startByte));
+    }
+
+    if (chunk == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return chunk;
+  }
+
+  public void put(int execId, String name, int attempt, int startByte,
+      byte[] chunk) {
+    if (chunk.length > maxBytes) {
+      return;
+    }
+
+    synchronized (chunks) {
+      byte[] old =
+          chunks.put(getKey(execId, name, attempt, startByte), chunk);
+      if (old != null) {
+        currentBytes -= old.length;
+      }
+      currentBytes += chunk.length;
+
+      Iterator<Map.Entry<String, byte[]>> iter = chunks.entrySet().iterator();
+      while (currentBytes > maxBytes && iter.hasNext()) {
+        byte[] eldest = iter.next().getValue();
+        iter.remove();
+        currentBytes -= eldest.length;
+      }
+    }
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getSizeInBytes() {
+    synchronized (chunks) {
+      return currentBytes;
+    }
+  }
+
+  private String getKey(int execId, String name, int attempt, int startByte) {
+    return execId + "/" + name + "/" + attempt + "/" + startByte;
+  }
+}
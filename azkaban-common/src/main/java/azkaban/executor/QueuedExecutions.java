@@ -1,7 +1,9 @@
 package azkaban.executor;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.PriorityBlockingQueue;
@@ -51,6 +53,34 @@ public class QueuedExecutions {
     return pair;
   }
 
+  /**
+   * <pre>
+   * Fetches up to maxNum flows from the head of the queue, in priority order
+   * Note:
+   * 1. blocks till at least one flow is queued
+   * 2. does not wait for more flows once the first one is fetched
+   * </pre>
+   *
+   * @param maxNum
+   * @return
+   * @throws InterruptedException
+   */
+  public List<Pair<ExecutionReference, ExecutableFlow>> fetchHeads(int maxNum)
+    throws InterruptedException {
+    List<Pair<ExecutionReference, ExecutableFlow>> pairs =
+      new ArrayList<Pair<ExecutionReference, ExecutableFlow>>();
+    pairs.add(fetchHead());
+    if (maxNum > 1) {
+      queuedFlowList.drainTo(pairs, maxNum - 1);
+      for (Pair<ExecutionReference, ExecutableFlow> pair : pairs) {
+        if (pair != null && pair.getFirst() != null) {
+          queuedFlowMap.remove(pair.getFirst().getExecId());
+        }
+      }
+    }
+    return pairs;
+  }
+
   /**
    * Helper method to have a single point of deletion in the queued flows
    *
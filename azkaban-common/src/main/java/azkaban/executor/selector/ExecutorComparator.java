@@ -51,6 +51,8 @@ public class ExecutorComparator extends CandidateComparator<Executor> {
     private static final String LSTDISPATCHED_COMPARATOR_NAME = "LastDispatched";
     //CPU使用率，越小越好
     private static final String CPUUSAGE_COMPARATOR_NAME = "CpuUsage";
+    //空闲的任务槽位，越多越好
+    private static final String JOBSLOTS_COMPARATOR_NAME = "RemainingJobSlots";
 
   /**
    * static initializer of the class.
@@ -75,6 +77,10 @@ public class ExecutorComparator extends CandidateComparator<Executor> {
     // register the creator for CPU Usage comparator.
     comparatorCreatorRepository.put(CPUUSAGE_COMPARATOR_NAME, new ComparatorCreator(){
       public FactorComparator<Executor> create(int weight) { return getCpuUsageComparator(weight); }});
+
+    // register the creator for remaining job slots comparator.
+    comparatorCreatorRepository.put(JOBSLOTS_COMPARATOR_NAME, new ComparatorCreator(){
+      public FactorComparator<Executor> create(int weight) { return getRemainingJobSlotsComparator(weight); }});
   }
 
 
@@ -199,6 +205,36 @@ public class ExecutorComparator extends CandidateComparator<Executor> {
   }
 
 
+  /**<pre>
+   * function defines the remaining job slots comparator.
+   * Note: an executor without a job limit (-1) ranks above the limited ones, between two limited executors
+   *       the one with more free slots wins, and the one with less queued jobs on a tie.
+   * </pre>
+   * @param weight weight of the comparator.
+   * @return
+   * */
+  private static FactorComparator<Executor> getRemainingJobSlotsComparator(int weight){
+    return FactorComparator.create(JOBSLOTS_COMPARATOR_NAME, weight, new Comparator<Executor>(){
+
+      @Override
+      public int compare(Executor o1, Executor o2) {
+        ExecutorInfo stat1 = o1.getExecutorInfo();
+        ExecutorInfo stat2 = o2.getExecutorInfo();
+
+        int result = 0;
+        if (statisticsObjectCheck(stat1,stat2,JOBSLOTS_COMPARATOR_NAME,result)){
+          return result;
+        }
+
+        int slots1 = stat1.getRemainingJobSlots() < 0 ? Integer.MAX_VALUE : stat1.getRemainingJobSlots();
+        int slots2 = stat2.getRemainingJobSlots() < 0 ? Integer.MAX_VALUE : stat2.getRemainingJobSlots();
+        if (slots1 != slots2){
+          return slots1 > slots2 ? 1:-1;
+        }
+        return ((Integer)stat2.getNumberOfQueuedJobs()).compareTo(stat1.getNumberOfQueuedJobs());
+      }});
+  }
+
   /**
    * function defines the last dispatched time comparator.
    * @param weight weight of the comparator.
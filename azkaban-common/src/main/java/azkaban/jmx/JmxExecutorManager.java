@@ -19,6 +19,7 @@ package azkaban.jmx;
 import java.util.ArrayList;
 import java.util.List;
 
+import azkaban.executor.ExecutorApiClient;
 import azkaban.executor.ExecutorManager;
 
 /**
@@ -96,4 +97,39 @@ public class JmxExecutorManager implements JmxExecutorManagerMBean {
     return manager.getLastSuccessfulExecutorInfoRefresh();
   }
 
+  @Override
+  public int getExecutorClientLeasedConnections() {
+    return ExecutorApiClient.getInstance().getPoolStats().getLeased();
+  }
+
+  @Override
+  public int getExecutorClientAvailableConnections() {
+    return ExecutorApiClient.getInstance().getPoolStats().getAvailable();
+  }
+
+  @Override
+  public int getExecutorClientPendingRequests() {
+    return ExecutorApiClient.getInstance().getPoolStats().getPending();
+  }
+
+  @Override
+  public long getFinishedFlowCacheHits() {
+    return manager.getFinishedFlowCache().getHits();
+  }
+
+  @Override
+  public long getFinishedFlowCacheMisses() {
+    return manager.getFinishedFlowCache().getMisses();
+  }
+
+  @Override
+  public long getFinishedFlowCacheEvictions() {
+    return manager.getFinishedFlowCache().getEvictions();
+  }
+
+  @Override
+  public long getFinishedFlowCacheSizeInBytes() {
+    return manager.getFinishedFlowCache().getSizeInBytes();
+  }
+
 }
@@ -106,4 +106,53 @@ public interface JmxExecutorManagerMBean {
   @DisplayName("OPERATION: getLastSuccessfulExecutorInfoRefresh")
   long getLastSuccessfulExecutorInfoRefresh();
 
+    /**
+     * 获取到执行器的连接池中正在使用的连接数量
+     * @return
+     */
+  @DisplayName("OPERATION: getExecutorClientLeasedConnections")
+  int getExecutorClientLeasedConnections();
+
+    /**
+     * 获取到执行器的连接池中空闲的连接数量
+     * @return
+     */
+  @DisplayName("OPERATION: getExecutorClientAvailableConnections")
+  int getExecutorClientAvailableConnections();
+
+    /**
+     * 获取等待连接池分配连接的请求数量
+     * @return
+     */
+  @DisplayName("OPERATION: getExecutorClientPendingRequests")
+  int getExecutorClientPendingRequests();
+
+    /**
+     * 已完成任务流缓存的命中次数
+     * @return
+     */
+  @DisplayName("OPERATION: getFinishedFlowCacheHits")
+  long getFinishedFlowCacheHits();
+
+    /**
+     * 已完成任务流缓存的未命中次数
+     * @return
+     */
+  @DisplayName("OPERATION: getFinishedFlowCacheMisses")
+  long getFinishedFlowCacheMisses();
+
+    /**
+     * 已完成任务流缓存的淘汰次数
+     * @return
+     */
+  @DisplayName("OPERATION: getFinishedFlowCacheEvictions")
+  long getFinishedFlowCacheEvictions();
+
+    /**
+     * 已完成任务流缓存占用的字节数
+     * @return
+     */
+  @DisplayName("OPERATION: getFinishedFlowCacheSizeInBytes")
+  long getFinishedFlowCacheSizeInBytes();
+
 }
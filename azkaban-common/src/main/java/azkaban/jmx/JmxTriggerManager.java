@@ -73,4 +73,14 @@ public class JmxTriggerManager implements JmxTriggerManagerMBean {
   public String getScannerThreadStage() {
     return jmxStats.getScannerThreadStage();
   }
+
+  @Override
+  public int getNumPendingTriggerActions() {
+    return jmxStats.getNumPendingTriggerActions();
+  }
+
+  @Override
+  public String getTriggerFireLatencyHistogram() {
+    return jmxStats.getTriggerFireLatencyHistogram();
+  }
 }
@@ -79,4 +79,18 @@ public interface JmxTriggerManagerMBean {
      */
   @DisplayName("OPERATION: getScannerThreadStage")
   public String getScannerThreadStage();
+
+    /**
+     * 获取尚未执行完的触发数量
+     * @return
+     */
+  @DisplayName("OPERATION: getNumPendingTriggerActions")
+  public int getNumPendingTriggerActions();
+
+    /**
+     * 获取触发延迟（到期到开始执行动作）的直方图
+     * @return
+     */
+  @DisplayName("OPERATION: getTriggerFireLatencyHistogram")
+  public String getTriggerFireLatencyHistogram();
 }
@@ -18,7 +18,6 @@ package azkaban.jobExecutor.utils.process;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.lang.reflect.Field;
 import java.util.List;
 import java.util.Map;
@@ -29,16 +28,14 @@ import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
-import azkaban.utils.LogGobbler;
-
 import com.google.common.base.Joiner;
 
 /**
  * java.lang.Process的升级版
  * An improved version of java.lang.Process.
  * 
- * Output is read by separate threads to avoid deadlock and logged to log4j
- * loggers.
+ * Output is read by the shared {@link ProcessOutputPump} to avoid deadlock and
+ * logged to log4j loggers.
  */
 public class AzkabanProcess {
   
@@ -101,15 +98,11 @@ public class AzkabanProcess {
 
       this.startupLatch.countDown();
 
-      LogGobbler outputGobbler =
-          new LogGobbler(new InputStreamReader(process.getInputStream()),
-              logger, Level.INFO, 30);
-      LogGobbler errorGobbler =
-          new LogGobbler(new InputStreamReader(process.getErrorStream()),
-              logger, Level.ERROR, 30);
+      // stderr is redirected to stdout, so there is a single pipe to read
+      ProcessOutputPump.Pipe output =
+          ProcessOutputPump.getInstance().register(process,
+              process.getInputStream(), logger, Level.INFO, 30);
 
-      outputGobbler.start();
-      errorGobbler.start();
       int exitCode = -1;
       try {
         exitCode = process.waitFor();
@@ -120,16 +113,13 @@ public class AzkabanProcess {
       completeLatch.countDown();
 
       // try to wait for everything to get logged out before exiting
-      outputGobbler.awaitCompletion(5000);
-      errorGobbler.awaitCompletion(5000);
+      output.awaitCompletion(5000);
 
       if (exitCode != 0) {
-        String output =
-            new StringBuilder().append("Stdout:\n")
-                .append(outputGobbler.getRecentLog()).append("\n\n")
-                .append("Stderr:\n").append(errorGobbler.getRecentLog())
-                .append("\n").toString();
-        throw new ProcessFailureException(exitCode, output);
+        String recentOutput =
+            new StringBuilder().append("Output:\n")
+                .append(output.getRecentLog()).append("\n").toString();
+        throw new ProcessFailureException(exitCode, recentOutput);
       }
 
     } finally {
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package azkaban.jobExecutor.utils.process;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import azkaban.utils.VirtualThreads;
+
+/**
+ * <pre>
+ * 子进程输出的共享读取服务，由少量线程轮流读取所有子进程的输出管道，
+ * 取代每个子进程各自的读取线程
+ * Note:
+ * 1. process pipes can't be registered with a selector, so a pump thread
+ *    only reads what available() reports and never blocks in read. A pass
+ *    over its pipes that reads nothing backs the thread off for up to
+ *    MAX_IDLE_MS
+ * 2. a pipe is read in blocks of up to BLOCK_SIZE bytes per pass, so one
+ *    chatty process doesn't starve the others. Lines are cut out of the
+ *    block as bytes and each one is logged to the job logger
+ * 3. the recent output is kept as raw bytes in a ring buffer, the last
+ *    lines are only decoded when the process fails
+ * 4. a pipe of an exited process with nothing available is read to its end
+ *    in a thread of its own, as a child left behind by the process can hold
+ *    it open and the reads may block. It usually ends right away. The job
+ *    bounds how long it waits for it with {@link Pipe#awaitCompletion}.
+ *    The thread is virtual if virtual threads are enabled
+ * </pre>
+ */
+public class ProcessOutputPump {
+  private static final Logger logger = Logger.getLogger(ProcessOutputPump.class);
+
+  private static final int DEFAULT_NUM_THREADS = 2;
+  private static final int BLOCK_SIZE = 64 * 1024;
+  private static final int RECENT_OUTPUT_BYTES = 64 * 1024;
+  /** 单行的最大长度，超出部分作为新的一行记录 */
+  private static final int MAX_LINE_BYTES = 1024 * 1024;
+  private static final long MAX_IDLE_MS = 50;
+
+  private static int numThreads = DEFAULT_NUM_THREADS;
+  private static ProcessOutputPump instance;
+
+  private final PumpThread[] threads;
+  /** 虚拟线程关闭时为null */
+  private final ThreadFactory drainThreadFactory;
+
+  private ProcessOutputPump(int numThreads) {
+    drainThreadFactory =
+        VirtualThreads.newThreadFactory("ProcessOutputDrain-");
+    threads = new PumpThread[Math.max(1, numThreads)];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new PumpThread(i);
+      threads[i].start();
+    }
+  }
+
+  /**
+   * Sets the number of pump threads, only has effect before the pump is first
+   * used.
+   */
+  public static synchronized void setNumThreads(int threads) {
+    if (instance != null) {
+      logger.warn("Process output pump already started with "
+          + instance.threads.length + " threads");
+      return;
+    }
+    numThreads = threads;
+  }
+
+  public static synchronized ProcessOutputPump getInstance() {
+    if (instance == null) {
+      instance = new ProcessOutputPump(numThreads);
+    }
+    return instance;
+  }
+
+  /**
+   * Starts pumping the output of the process to the logger.
+   *
+   * @param recentLines the number of lines {@link Pipe#getRecentLog} returns
+   */
+  public Pipe register(Process process, InputStream output, Logger jobLogger,
+      Level level, int recentLines) {
+    Pipe pipe =
+        new Pipe(process, output, jobLogger, level, recentLines,
+            drainThreadFactory);
+
+    PumpThread target = threads[0];
+    for (PumpThread thread : threads) {
+      if (thread.getNumPipes() < target.getNumPipes()) {
+        target = thread;
+      }
+    }
+    target.add(pipe);
+    return pipe;
+  }
+
+  public int getNumPipes() {
+    int num = 0;
+    for (PumpThread thread : threads) {
+      num += thread.getNumPipes();
+    }
+    return num;
+  }
+
+  /**
+   * 一个子进程的输出管道
+   */
+  public static class Pipe {
+    private final Process process;
+    private final InputStream output;
+    private final Logger jobLogger;
+    private final Level level;
+    private final int recentLines;
+    private final ThreadFactory drainThreadFactory;
+
+    /** 跨越两次读取的不完整行 */
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+    private final byte[] recent = new byte[RECENT_OUTPUT_BYTES];
+    private long recentWritten = 0;
+    private final CountDownLatch doneLatch = new CountDownLatch(1);
+
+    private Pipe(Process process, InputStream output, Logger jobLogger,
+        Level level, int recentLines, ThreadFactory drainThreadFactory) {
+      this.process = process;
+      this.output = output;
+      this.jobLogger = jobLogger;
+      this.level = level;
+      this.recentLines = recentLines;
+      this.drainThreadFactory = drainThreadFactory;
+    }
+
+    /**
+     * Waits up to waitMs for the whole output to be logged.
+     */
+    public void awaitCompletion(long waitMs) {
+      try {
+        if (!doneLatch.await(waitMs, TimeUnit.MILLISECONDS)) {
+          jobLogger.warn("Output still not logged after " + waitMs + " ms");
+        }
+      } catch (InterruptedException e) {
+        jobLogger.info("Interrupted waiting for the output.", e);
+      }
+    }
+
+    public boolean isDone() {
+      return doneLatch.getCount() == 0;
+    }
+
+    /**
+     * Returns the last lines of the output, as far as they fit the ring
+     * buffer.
+     */
+    public synchronized String getRecentLog() {
+      int length = (int) Math.min(recentWritten, recent.length);
+      int start = (int) ((recentWritten - length) % recent.length);
+      byte[] bytes = new byte[length];
+      int firstPart = Math.min(length, recent.length - start);
+      System.arraycopy(recent, start, bytes, 0, firstPart);
+      System.arraycopy(recent, 0, bytes, firstPart, length - firstPart);
+
+      String[] lines = new String(bytes).split("\r?\n");
+      // the oldest line was partly overwritten if the ring wrapped
+      int first = recentWritten > recent.length ? 1 : 0;
+      first = Math.max(first, lines.length - recentLines);
+      StringBuilder log = new StringBuilder();
+      for (int i = first; i < lines.length; i++) {
+        if (log.length() > 0) {
+          log.append(System.getProperty("line.separator"));
+        }
+        log.append(lines[i]);
+      }
+      return log.toString();
+    }
+
+    /**
+     * Reads what is available without blocking.
+     *
+     * @return the number of bytes read, -1 when the pump is done with the pipe
+     */
+    private int pump(byte[] block) {
+      try {
+        // checked first, so nothing written before exit can be missed
+        boolean exited = !process.isAlive();
+        int available = output.available();
+        if (available <= 0) {
+          if (exited) {
+            drain();
+            return -1;
+          }
+          return 0;
+        }
+
+        int read = output.read(block, 0, Math.min(available, block.length));
+        if (read < 0) {
+          finish();
+          return -1;
+        }
+        record(block, read);
+        logLines(block, read);
+        return read;
+      } catch (IOException e) {
+        jobLogger.error("Error reading from logging stream:", e);
+        finish();
+        return -1;
+      }
+    }
+
+    /**
+     * Reads the rest of the output of the exited process till the end of the
+     * pipe, off the pump thread.
+     */
+    private void drain() {
+      Runnable drainer = new Runnable() {
+        @Override
+        public void run() {
+          byte[] block = new byte[BLOCK_SIZE];
+          try {
+            int read;
+            while ((read = output.read(block)) >= 0) {
+              record(block, read);
+              logLines(block, read);
+            }
+          } catch (IOException e) {
+            jobLogger.error("Error reading from logging stream:", e);
+          }
+          finish();
+        }
+      };
+
+      Thread thread;
+      if (drainThreadFactory != null) {
+        thread = drainThreadFactory.newThread(drainer);
+      } else {
+        thread = new Thread(drainer);
+        thread.setName("ProcessOutputDrain");
+        thread.setDaemon(true);
+      }
+      thread.start();
+    }
+
+    private synchronized void record(byte[] block, int length) {
+      int offset = Math.max(0, length - recent.length);
+      for (int i = offset; i < length;) {
+        int pos = (int) (recentWritten % recent.length);
+        int count = Math.min(length - i, recent.length - pos);
+        System.arraycopy(block, i, recent, pos, count);
+        recentWritten += count;
+        i += count;
+      }
+    }
+
+    private void logLines(byte[] block, int length) {
+      int lineStart = 0;
+      for (int i = 0; i < length; i++) {
+        if (block[i] != '\n') {
+          continue;
+        }
+        if (partialLine.size() > 0) {
+          partialLine.write(block, lineStart, i - lineStart);
+          logLine(partialLine.toByteArray(), 0, partialLine.size());
+          partialLine.reset();
+        } else {
+          logLine(block, lineStart, i - lineStart);
+        }
+        lineStart = i + 1;
+      }
+
+      partialLine.write(block, lineStart, length - lineStart);
+      if (partialLine.size() >= MAX_LINE_BYTES) {
+        logLine(partialLine.toByteArray(), 0, partialLine.size());
+        partialLine.reset();
+      }
+    }
+
+    private void logLine(byte[] bytes, int offset, int length) {
+      if (length > 0 && bytes[offset + length - 1] == '\r') {
+        length--;
+      }
+      jobLogger.log(level, new String(bytes, offset, length));
+    }
+
+    private void finish() {
+      if (partialLine.size() > 0) {
+        logLine(partialLine.toByteArray(), 0, partialLine.size());
+        partialLine.reset();
+      }
+      doneLatch.countDown();
+    }
+  }
+
+  /**
+   * 读取线程，负责一部分子进程的输出管道
+   */
+  private static class PumpThread extends Thread {
+    private final List<Pipe> pipes = new LinkedList<Pipe>();
+    private final byte[] block = new byte[BLOCK_SIZE];
+
+    public PumpThread(int index) {
+      this.setName("ProcessOutputPump-" + index);
+      this.setDaemon(true);
+    }
+
+    public synchronized void add(Pipe pipe) {
+      pipes.add(pipe);
+      this.notify();
+    }
+
+    public synchronized int getNumPipes() {
+      return pipes.size();
+    }
+
+    @Override
+    public void run() {
+      long idleMs = 1;
+      while (true) {
+        List<Pipe> current;
+        synchronized (this) {
+          while (pipes.isEmpty()) {
+            try {
+              this.wait();
+            } catch (InterruptedException e) {
+              logger.info("Interrupted. Probably to shut down.");
+            }
+          }
+          current = new ArrayList<Pipe>(pipes);
+        }
+
+        boolean readAny = false;
+        List<Pipe> done = new ArrayList<Pipe>();
+        for (Pipe pipe : current) {
+          try {
+            int read = pipe.pump(block);
+            if (read < 0) {
+              done.add(pipe);
+            } else if (read > 0) {
+              readAny = true;
+            }
+          } catch (RuntimeException e) {
+            logger.error("Failed to pump process output", e);
+            pipe.finish();
+            done.add(pipe);
+          }
+        }
+
+        if (!done.isEmpty()) {
+          synchronized (this) {
+            pipes.removeAll(done);
+          }
+        }
+
+        if (readAny) {
+          idleMs = 1;
+        } else {
+          try {
+            Thread.sleep(idleMs);
+          } catch (InterruptedException e) {
+            logger.info("Interrupted. Probably to shut down.");
+          }
+          idleMs = Math.min(MAX_IDLE_MS, idleMs * 2);
+        }
+      }
+    }
+  }
+}
@@ -22,6 +22,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -44,8 +48,6 @@ import azkaban.flow.Flow;
 import azkaban.project.ProjectLogEvent.EventType;
 import azkaban.user.Permission;
 import azkaban.user.User;
-import azkaban.utils.GZIPUtils;
-import azkaban.utils.JSONUtils;
 import azkaban.utils.Md5Hasher;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
@@ -61,6 +63,7 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
       .getLogger(JdbcProjectLoader.class);
 
   private static final int CHUCK_SIZE = 1024 * 1024 * 10;
+  private static final int STREAM_BUFFER_SIZE = 64 * 1024;
   private File tempDir;
 
     //modified start----------------
@@ -69,9 +72,19 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
 //  private EncodingType defaultEncodingType = EncodingType.GZIP;
     private EncodingType defaultEncodingType = EncodingType.PLAIN;
     //modified end
+  /** 各表写入时的编码，未配置时使用defaultEncodingType */
+  private EncodingType projectEncodingType;
+  private EncodingType flowEncodingType;
+  private EncodingType propertyEncodingType;
 
   public JdbcProjectLoader(Props props) {
     super(props);
+    projectEncodingType =
+        getTableEncodingType(props, "projects", defaultEncodingType);
+    flowEncodingType =
+        getTableEncodingType(props, "project_flows", defaultEncodingType);
+    propertyEncodingType =
+        getTableEncodingType(props, "project_properties", defaultEncodingType);
     tempDir = new File(props.getString("project.temp.dir", "temp"));
     if (!tempDir.exists()) {
       tempDir.mkdirs();
@@ -311,7 +324,7 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
       int i =
           runner.update(connection, INSERT_PROJECT, name, true, time, time,
               null, creator.getUserId(), description,
-              defaultEncodingType.getNumVal(), null);
+              projectEncodingType.getNumVal(), null);
       if (i == 0) {
         throw new ProjectManagerException("No projects have been inserted.");
       }
@@ -467,7 +480,18 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
     return handler;
   }
 
-  private ProjectFileHandler getUploadedFile(Connection connection,
+  @Override
+  public ProjectFileHandler fetchProjectMetaData(int projectId, int version)
+      throws ProjectManagerException {
+    Connection connection = getConnection();
+    try {
+      return fetchProjectMetaData(connection, projectId, version);
+    } finally {
+      DbUtils.closeQuietly(connection);
+    }
+  }
+
+  private ProjectFileHandler fetchProjectMetaData(Connection connection,
       int projectId, int version) throws ProjectManagerException {
     QueryRunner runner = new QueryRunner();
     ProjectVersionResultHandler pfHandler = new ProjectVersionResultHandler();
@@ -486,9 +510,29 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
     if (projectFiles == null || projectFiles.isEmpty()) {
       return null;
     }
+    return projectFiles.get(0);
+  }
+
+  /**
+   * <pre>
+   * 将上传的文件从数据库流式写入临时文件，写入的同时计算md5
+   * Note:
+   * 1. a chunk is copied from its blob stream straight to the file, the
+   *    chunks of a query are not collected in memory first
+   * 2. the md5 is checked without reading the file back
+   * </pre>
+   */
+  private ProjectFileHandler getUploadedFile(Connection connection,
+      int projectId, int version) throws ProjectManagerException {
+    ProjectFileHandler projHandler =
+        fetchProjectMetaData(connection, projectId, version);
+    if (projHandler == null) {
+      return null;
+    }
 
-    ProjectFileHandler projHandler = projectFiles.get(0);
+    QueryRunner runner = new QueryRunner();
     int numChunks = projHandler.getNumChunks();
+    MessageDigest digest = Md5Hasher.getMd5Digest();
     BufferedOutputStream bStream = null;
     File file = null;
     try {
@@ -497,57 +541,48 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
             File.createTempFile(projHandler.getFileName(),
                 String.valueOf(version), tempDir);
 
-        bStream = new BufferedOutputStream(new FileOutputStream(file));
+        bStream =
+            new BufferedOutputStream(new FileOutputStream(file),
+                STREAM_BUFFER_SIZE);
       } catch (IOException e) {
         throw new ProjectManagerException(
             "Error creating temp file for stream.");
       }
 
+      ProjectFileChunkStreamHandler chunkHandler =
+          new ProjectFileChunkStreamHandler(bStream, digest);
       int collect = 5;
       int fromChunk = 0;
       int toChunk = collect;
       do {
-        ProjectFileChunkResultHandler chunkHandler =
-            new ProjectFileChunkResultHandler();
-        List<byte[]> data = null;
         try {
-          data =
-              runner.query(connection,
-                  ProjectFileChunkResultHandler.SELECT_PROJECT_CHUNKS_FILE,
-                  chunkHandler, projectId, version, fromChunk, toChunk);
+          runner.query(connection,
+              ProjectFileChunkStreamHandler.SELECT_PROJECT_CHUNKS_FILE,
+              chunkHandler, projectId, version, fromChunk, toChunk);
         } catch (SQLException e) {
           logger.error(e);
+          file.delete();
           throw new ProjectManagerException("Query for uploaded file for "
               + projectId + " failed.", e);
         }
 
-        try {
-          for (byte[] d : data) {
-            bStream.write(d);
-          }
-        } catch (IOException e) {
-          throw new ProjectManagerException("Error writing file", e);
-        }
-
-        // Add all the bytes to the stream.
         fromChunk += collect;
         toChunk += collect;
       } while (fromChunk <= numChunks);
+
+      bStream.flush();
+    } catch (IOException e) {
+      file.delete();
+      throw new ProjectManagerException("Error writing file", e);
     } finally {
       IOUtils.closeQuietly(bStream);
     }
 
     // Check md5.
-    byte[] md5 = null;
-    try {
-      md5 = Md5Hasher.md5Hash(file);
-    } catch (IOException e) {
-      throw new ProjectManagerException("Error getting md5 hash.", e);
-    }
-
-    if (Arrays.equals(projHandler.getMd5Hash(), md5)) {
+    if (Arrays.equals(projHandler.getMd5Hash(), digest.digest())) {
       logger.info("Md5 Hash is valid");
     } else {
+      file.delete();
       throw new ProjectManagerException("Md5 Hash failed on retrieval of file");
     }
 
@@ -622,7 +657,7 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
       throws ProjectManagerException {
     Connection connection = getConnection();
     try {
-      updateProjectSettings(connection, project, defaultEncodingType);
+      updateProjectSettings(connection, project, projectEncodingType);
       connection.commit();
     } catch (SQLException e) {
       throw new ProjectManagerException("Error updating project settings", e);
@@ -637,17 +672,10 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
     final String UPDATE_PROJECT_SETTINGS =
         "UPDATE projects SET enc_type=?, settings_blob=? WHERE id=?";
 
-    String json = JSONUtils.toJSON(project.toObject());
     byte[] data = null;
     try {
-      byte[] stringData = json.getBytes("UTF-8");
-      data = stringData;
-
-      if (encType == EncodingType.GZIP) {
-        data = GZIPUtils.gzipBytes(stringData);
-      }
-      logger.debug("NumChars: " + json.length() + " UTF-8:" + stringData.length
-          + " Gzip:" + data.length);
+      data = encType.encodeObject(project.toObject());
+      logger.debug("Encoded project settings: " + data.length + " bytes");
     } catch (IOException e) {
       throw new ProjectManagerException("Failed to encode. ", e);
     }
@@ -840,7 +868,7 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
 
     try {
       for (Flow flow : flows) {
-        uploadFlow(connection, project, version, flow, defaultEncodingType);
+        uploadFlow(connection, project, version, flow, flowEncodingType);
       }
       connection.commit();
     } catch (IOException e) {
@@ -866,7 +894,7 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
     Connection connection = getConnection();
 
     try {
-      uploadFlow(connection, project, version, flow, defaultEncodingType);
+      uploadFlow(connection, project, version, flow, flowEncodingType);
       connection.commit();
     } catch (IOException e) {
       throw new ProjectManagerException("Flow Upload failed.", e);
@@ -892,20 +920,14 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
 
     try {
       QueryRunner runner = new QueryRunner();
-      String json = JSONUtils.toJSON(flow.toObject());
-      byte[] stringData = json.getBytes("UTF-8");
-      byte[] data = stringData;
-
-      if (defaultEncodingType == EncodingType.GZIP) {
-        data = GZIPUtils.gzipBytes(stringData);
-      }
+      byte[] data = flowEncodingType.encodeObject(flow.toObject());
 
       logger.info("Flow upload " + flow.getId() + " is byte size "
           + data.length);
       final String UPDATE_FLOW =
           "UPDATE project_flows SET encoding_type=?,json=? WHERE project_id=? AND version=? AND flow_id=?";
       try {
-        runner.update(connection, UPDATE_FLOW, defaultEncodingType.getNumVal(),
+        runner.update(connection, UPDATE_FLOW, flowEncodingType.getNumVal(),
             data, project.getId(), version, flow.getId());
       } catch (SQLException e) {
         e.printStackTrace();
@@ -926,21 +948,21 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
     return defaultEncodingType;
   }
 
+  /**
+   * Sets the encoding of all the tables, overriding the configured ones.
+   */
   public void setDefaultEncodingType(EncodingType defaultEncodingType) {
     this.defaultEncodingType = defaultEncodingType;
+    this.projectEncodingType = defaultEncodingType;
+    this.flowEncodingType = defaultEncodingType;
+    this.propertyEncodingType = defaultEncodingType;
   }
 
   private void uploadFlow(Connection connection, Project project, int version,
       Flow flow, EncodingType encType) throws ProjectManagerException,
       IOException {
     QueryRunner runner = new QueryRunner();
-    String json = JSONUtils.toJSON(flow.toObject());
-    byte[] stringData = json.getBytes("UTF-8");
-    byte[] data = stringData;
-
-    if (encType == EncodingType.GZIP) {
-      data = GZIPUtils.gzipBytes(stringData);
-    }
+    byte[] data = encType.encodeObject(flow.toObject());
 
     logger.info("Flow upload " + flow.getId() + " is byte size " + data.length);
     final String INSERT_FLOW =
@@ -1085,16 +1107,14 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
       String name, Props props) throws ProjectManagerException, IOException {
     QueryRunner runner = new QueryRunner();
     final String UPDATE_PROPERTIES =
-        "UPDATE project_properties SET property=? WHERE project_id=? AND version=? AND name=?";
+        "UPDATE project_properties SET encoding_type=?, property=? WHERE project_id=? AND version=? AND name=?";
 
-    String propertyJSON = PropsUtils.toJSONString(props, true);
-    byte[] data = propertyJSON.getBytes("UTF-8");
-    if (defaultEncodingType == EncodingType.GZIP) {
-      data = GZIPUtils.gzipBytes(data);
-    }
+    byte[] data =
+        propertyEncodingType.encodeObject(PropsUtils.toStringMap(props, true));
 
     try {
-      runner.update(connection, UPDATE_PROPERTIES, data, project.getId(),
+      runner.update(connection, UPDATE_PROPERTIES,
+          propertyEncodingType.getNumVal(), data, project.getId(),
           project.getVersion(), name);
       connection.commit();
     } catch (SQLException e) {
@@ -1109,16 +1129,13 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
     final String INSERT_PROPERTIES =
         "INSERT INTO project_properties (project_id, version, name, modified_time, encoding_type, property) values (?,?,?,?,?,?)";
 
-    String propertyJSON = PropsUtils.toJSONString(props, true);
-    byte[] data = propertyJSON.getBytes("UTF-8");
-    if (defaultEncodingType == EncodingType.GZIP) {
-      data = GZIPUtils.gzipBytes(data);
-    }
+    byte[] data =
+        propertyEncodingType.encodeObject(PropsUtils.toStringMap(props, true));
 
     try {
       runner.update(connection, INSERT_PROPERTIES, project.getId(),
           project.getVersion(), name, System.currentTimeMillis(),
-          defaultEncodingType.getNumVal(), data);
+          propertyEncodingType.getNumVal(), data);
       connection.commit();
     } catch (SQLException e) {
       throw new ProjectManagerException("Error uploading project properties "
@@ -1338,16 +1355,7 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
           EncodingType encType = EncodingType.fromInteger(encodingType);
           Object blobObj;
           try {
-            // Convoluted way to inflate strings. Should find common package or
-            // helper function.
-            if (encType == EncodingType.GZIP) {
-              // Decompress the sucker.
-              String jsonString = GZIPUtils.unGzipString(data, "UTF-8");
-              blobObj = JSONUtils.parseJSONFromString(jsonString);
-            } else {
-              String jsonString = new String(data, "UTF-8");
-              blobObj = JSONUtils.parseJSONFromString(jsonString);
-            }
+            blobObj = encType.decodeObject(data);
             project = Project.projectFromObject(blobObj);
           } catch (IOException e) {
             throw new SQLException("Failed to get project.", e);
@@ -1428,16 +1436,7 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
 
         Object flowObj = null;
         try {
-          // Convoluted way to inflate strings. Should find common package or
-          // helper function.
-          if (encType == EncodingType.GZIP) {
-            // Decompress the sucker.
-            String jsonString = GZIPUtils.unGzipString(dataBytes, "UTF-8");
-            flowObj = JSONUtils.parseJSONFromString(jsonString);
-          } else {
-            String jsonString = new String(dataBytes, "UTF-8");
-            flowObj = JSONUtils.parseJSONFromString(jsonString);
-          }
+          flowObj = encType.decodeObject(dataBytes);
 
           Flow flow = Flow.flowFromObject(flowObj);
           flows.add(flow);
@@ -1473,17 +1472,14 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
         byte[] dataBytes = rs.getBytes(6);
 
         EncodingType encType = EncodingType.fromInteger(eventType);
-        String propertyString = null;
 
         try {
-          if (encType == EncodingType.GZIP) {
-            // Decompress the sucker.
-            propertyString = GZIPUtils.unGzipString(dataBytes, "UTF-8");
-          } else {
-            propertyString = new String(dataBytes, "UTF-8");
-          }
+          @SuppressWarnings("unchecked")
+          Map<String, String> propertyMap =
+              (Map<String, String>) encType.decodeObject(dataBytes);
 
-          Props props = PropsUtils.fromJSONString(propertyString);
+          Props props = new Props();
+          props.putAll(propertyMap);
           props.setSource(name);
           properties.add(new Pair<String, Props>(name, props));
         } catch (IOException e) {
@@ -1524,27 +1520,47 @@ public class JdbcProjectLoader extends AbstractJdbcLoader implements
     }
   }
 
-  private static class ProjectFileChunkResultHandler implements
-      ResultSetHandler<List<byte[]>> {
+  /**
+   * 将查询到的文件块依次写入输出流，并更新md5
+   */
+  private static class ProjectFileChunkStreamHandler implements
+      ResultSetHandler<Integer> {
     private static String SELECT_PROJECT_CHUNKS_FILE =
         "SELECT project_id, version, chunk, size, file FROM project_files WHERE project_id=? AND version=? AND chunk >= ? AND chunk < ? ORDER BY chunk ASC";
 
-    @Override
-    public List<byte[]> handle(ResultSet rs) throws SQLException {
-      if (!rs.next()) {
-        return Collections.<byte[]> emptyList();
-      }
-
-      ArrayList<byte[]> data = new ArrayList<byte[]>();
-      do {
-        byte[] bytes = rs.getBytes(5);
+    private final OutputStream output;
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[STREAM_BUFFER_SIZE];
 
-        data.add(bytes);
-      } while (rs.next());
-
-      return data;
+    public ProjectFileChunkStreamHandler(OutputStream output,
+        MessageDigest digest) {
+      this.output = output;
+      this.digest = digest;
     }
 
+    @Override
+    public Integer handle(ResultSet rs) throws SQLException {
+      int numChunks = 0;
+      while (rs.next()) {
+        InputStream chunk = rs.getBinaryStream(5);
+        if (chunk == null) {
+          continue;
+        }
+        InputStream blob = new DigestInputStream(chunk, digest);
+        try {
+          int read;
+          while ((read = blob.read(buffer)) > 0) {
+            output.write(buffer, 0, read);
+          }
+        } catch (IOException e) {
+          throw new SQLException("Error writing file chunk", e);
+        } finally {
+          IOUtils.closeQuietly(blob);
+        }
+        numChunks++;
+      }
+      return numChunks;
+    }
   }
 
   private static class ProjectVersionResultHandler implements
@@ -154,6 +154,15 @@ public interface ProjectLoader {
   public ProjectFileHandler getUploadedFile(int projectId, int version)
       throws ProjectManagerException;
 
+  /**
+   * Get the file type, name, md5 and number of chunks of an uploaded version,
+   * without fetching the file.
+   *
+   * @return null if the version doesn't exist
+   */
+  public ProjectFileHandler fetchProjectMetaData(int projectId, int version)
+      throws ProjectManagerException;
+
   /**
    * Changes and commits different project version.
    *
@@ -25,7 +25,9 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.JsonGenerator;
+
+import azkaban.utils.JSONUtils;
 
 public class AbstractServiceServlet extends HttpServlet {
 
@@ -49,9 +51,10 @@ public class AbstractServiceServlet extends HttpServlet {
   protected void writeJSON(HttpServletResponse resp, Object obj)
       throws IOException {
     resp.setContentType(JSON_MIME_TYPE);
-    ObjectMapper mapper = new ObjectMapper();
     OutputStream stream = resp.getOutputStream();
-    mapper.writeValue(stream, obj);
+    JsonGenerator generator = JSONUtils.createJsonGenerator(stream);
+    generator.writeObject(obj);
+    generator.close();
   }
 
   public boolean hasParam(HttpServletRequest request, String param) {
@@ -21,12 +21,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.jexl2.Expression;
 import org.apache.commons.jexl2.JexlEngine;
 import org.apache.commons.jexl2.MapContext;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 
+import azkaban.trigger.ConditionCompiler.CompiledExpression;
+
 /**
  * 触发器开始和结束的条件
  */
@@ -39,7 +40,8 @@ public class Condition {
      */
   private static JexlEngine jexl = new JexlEngine();
   private static CheckerTypeLoader checkerLoader = null;
-  private Expression expression;
+  /** 编译后的表达式，相同文本的表达式共享同一个对象 */
+  private CompiledExpression expression;
   private Map<String, ConditionChecker> checkers =
       new HashMap<String, ConditionChecker>();
   private MapContext context = new MapContext();
@@ -47,7 +49,7 @@ public class Condition {
 
   public Condition(Map<String, ConditionChecker> checkers, String expr) {
     setCheckers(checkers);
-    this.expression = jexl.createExpression(expr);
+    this.expression = ConditionCompiler.compile(jexl, expr);
     updateNextCheckTime();
   }
 
@@ -55,11 +57,12 @@ public class Condition {
       long nextCheckTime) {
     this.nextCheckTime = nextCheckTime;
     setCheckers(checkers);
-    this.expression = jexl.createExpression(expr);
+    this.expression = ConditionCompiler.compile(jexl, expr);
   }
 
   public synchronized static void setJexlEngine(JexlEngine jexl) {
     Condition.jexl = jexl;
+    ConditionCompiler.clearCache();
   }
 
   public synchronized static void setCheckerLoader(CheckerTypeLoader loader) {
@@ -126,14 +129,14 @@ public class Condition {
   }
 
   public void setExpression(String expr) {
-    this.expression = jexl.createExpression(expr);
+    this.expression = ConditionCompiler.compile(jexl, expr);
   }
 
   public boolean isMet() {
     if (logger.isDebugEnabled()) {
       logger.debug("Testing condition " + expression);
     }
-    return expression.evaluate(context).equals(Boolean.TRUE);
+    return expression.evaluate(checkers, context);
   }
 
   public Object toJson() {
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.trigger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.jexl2.Expression;
+import org.apache.commons.jexl2.JexlContext;
+import org.apache.commons.jexl2.JexlEngine;
+import org.apache.log4j.Logger;
+
+/**
+ * <pre>
+ * 条件表达式编译器，将常见的检查器调用及其布尔组合编译为直接的java调用，
+ * 其余表达式仍由JEXL计算
+ * Compiles the condition expressions of the triggers.
+ * Note:
+ * 1. the fast path covers calls of no-arg checker methods, e.g.
+ *    "BasicTimeChecker_1.eval()", combined with !, &&, ||, not, and, or
+ *    and parentheses
+ * 2. compiled expressions are stateless and shared by all the conditions
+ *    with the same text, the checkers are looked up on every evaluation
+ * 3. an expression outside the fast path, or referring to a checker that
+ *    is not registered, is evaluated by JEXL as before
+ * </pre>
+ */
+public class ConditionCompiler {
+  private static Logger logger = Logger.getLogger(ConditionCompiler.class);
+
+  private static final int MAX_CACHED_EXPRESSIONS = 10000;
+
+  private static final Map<String, CompiledExpression> expressions =
+      new ConcurrentHashMap<String, CompiledExpression>();
+  private static final Map<String, Method> methods =
+      new ConcurrentHashMap<String, Method>();
+
+  /**
+   * Returns the shared compiled form of the expression.
+   */
+  public static CompiledExpression compile(JexlEngine jexl, String expr) {
+    CompiledExpression compiled = expressions.get(expr);
+    if (compiled == null) {
+      compiled =
+          new CompiledExpression(jexl.createExpression(expr), new Parser(expr)
+              .parse());
+      if (expressions.size() < MAX_CACHED_EXPRESSIONS) {
+        expressions.put(expr, compiled);
+      }
+    }
+    return compiled;
+  }
+
+  /**
+   * Drops the compiled expressions, e.g. when the jexl engine is replaced.
+   */
+  public static void clearCache() {
+    expressions.clear();
+  }
+
+  /**
+   * 编译后的条件表达式
+   */
+  public static class CompiledExpression {
+    private final Expression jexlExpression;
+    private final Node fastPath;
+
+    private CompiledExpression(Expression jexlExpression, Node fastPath) {
+      this.jexlExpression = jexlExpression;
+      this.fastPath = fastPath;
+    }
+
+    public String getExpression() {
+      return jexlExpression.getExpression();
+    }
+
+    public boolean isCompiled() {
+      return fastPath != null;
+    }
+
+    /**
+     * @param checkers the checkers of the condition, keyed on their ids
+     * @param context the jexl context holding the same checkers
+     */
+    public boolean evaluate(Map<String, ConditionChecker> checkers,
+        JexlContext context) {
+      if (fastPath != null) {
+        try {
+          return fastPath.evaluate(checkers);
+        } catch (UnresolvedCallException e) {
+          logger.debug("Falling back to jexl for " + getExpression() + ": "
+              + e.getMessage());
+        }
+      }
+      return jexlExpression.evaluate(context).equals(Boolean.TRUE);
+    }
+
+    @Override
+    public String toString() {
+      return getExpression();
+    }
+  }
+
+  private interface Node {
+    boolean evaluate(Map<String, ConditionChecker> checkers);
+  }
+
+  private static class CallNode implements Node {
+    private final String checkerId;
+    private final String methodName;
+
+    public CallNode(String checkerId, String methodName) {
+      this.checkerId = checkerId;
+      this.methodName = methodName;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, ConditionChecker> checkers) {
+      ConditionChecker checker = checkers.get(checkerId);
+      if (checker == null) {
+        throw new UnresolvedCallException("No checker " + checkerId);
+      }
+      if (methodName.equals("eval")) {
+        return Boolean.TRUE.equals(checker.eval());
+      }
+
+      Method method = getMethod(checker.getClass(), methodName);
+      try {
+        return Boolean.TRUE.equals(method.invoke(checker));
+      } catch (InvocationTargetException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new RuntimeException(e.getCause());
+      } catch (IllegalAccessException e) {
+        throw new UnresolvedCallException(e.getMessage());
+      }
+    }
+  }
+
+  private static class NotNode implements Node {
+    private final Node operand;
+
+    public NotNode(Node operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, ConditionChecker> checkers) {
+      return !operand.evaluate(checkers);
+    }
+  }
+
+  private static class AndNode implements Node {
+    private final List<Node> operands;
+
+    public AndNode(List<Node> operands) {
+      this.operands = operands;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, ConditionChecker> checkers) {
+      for (Node operand : operands) {
+        if (!operand.evaluate(checkers)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static class OrNode implements Node {
+    private final List<Node> operands;
+
+    public OrNode(List<Node> operands) {
+      this.operands = operands;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, ConditionChecker> checkers) {
+      for (Node operand : operands) {
+        if (operand.evaluate(checkers)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static Method getMethod(Class<?> type, String methodName) {
+    String key = type.getName() + "#" + methodName;
+    Method method = methods.get(key);
+    if (method == null) {
+      try {
+        method = type.getMethod(methodName);
+      } catch (NoSuchMethodException e) {
+        throw new UnresolvedCallException("No method " + key);
+      }
+      methods.put(key, method);
+    }
+    return method;
+  }
+
+  /**
+   * Signals a call the fast path can't resolve, the jexl expression decides.
+   */
+  private static class UnresolvedCallException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UnresolvedCallException(String message) {
+      super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+
+  /**
+   * <pre>
+   * 递归下降解析器，无法识别的表达式返回null
+   * or    := and (("||" | "or") and)*
+   * and   := unary (("&&" | "and") unary)*
+   * unary := ("!" | "not") unary | "(" or ")" | id "." id "(" ")"
+   * </pre>
+   */
+  private static class Parser {
+    private final List<String> tokens = new ArrayList<String>();
+    private int pos = 0;
+
+    public Parser(String expr) {
+      tokenize(expr == null ? "" : expr);
+    }
+
+    public Node parse() {
+      if (tokens.isEmpty()) {
+        return null;
+      }
+      Node node = parseOr();
+      return pos == tokens.size() ? node : null;
+    }
+
+    private void tokenize(String expr) {
+      int i = 0;
+      while (i < expr.length()) {
+        char c = expr.charAt(i);
+        if (Character.isWhitespace(c)) {
+          i++;
+        } else if (Character.isJavaIdentifierStart(c)) {
+          int start = i;
+          while (i < expr.length()
+              && Character.isJavaIdentifierPart(expr.charAt(i))) {
+            i++;
+          }
+          tokens.add(expr.substring(start, i));
+        } else if (expr.startsWith("&&", i) || expr.startsWith("||", i)) {
+          tokens.add(expr.substring(i, i + 2));
+          i += 2;
+        } else if (c == '!' && !expr.startsWith("!=", i) || c == '.'
+            || c == '(' || c == ')') {
+          tokens.add(String.valueOf(c));
+          i++;
+        } else {
+          // anything else is left to jexl
+          tokens.clear();
+          return;
+        }
+      }
+    }
+
+    private String peek() {
+      return pos < tokens.size() ? tokens.get(pos) : null;
+    }
+
+    private boolean accept(String token) {
+      if (token.equals(peek())) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    private Node parseOr() {
+      List<Node> operands = new ArrayList<Node>();
+      Node operand = parseAnd();
+      if (operand == null) {
+        return null;
+      }
+      operands.add(operand);
+      while (accept("||") || accept("or")) {
+        operand = parseAnd();
+        if (operand == null) {
+          return null;
+        }
+        operands.add(operand);
+      }
+      return operands.size() == 1 ? operands.get(0) : new OrNode(operands);
+    }
+
+    private Node parseAnd() {
+      List<Node> operands = new ArrayList<Node>();
+      Node operand = parseUnary();
+      if (operand == null) {
+        return null;
+      }
+      operands.add(operand);
+      while (accept("&&") || accept("and")) {
+        operand = parseUnary();
+        if (operand == null) {
+          return null;
+        }
+        operands.add(operand);
+      }
+      return operands.size() == 1 ? operands.get(0) : new AndNode(operands);
+    }
+
+    private Node parseUnary() {
+      if (accept("!") || accept("not")) {
+        Node operand = parseUnary();
+        return operand == null ? null : new NotNode(operand);
+      }
+      if (accept("(")) {
+        Node node = parseOr();
+        return node != null && accept(")") ? node : null;
+      }
+
+      String checkerId = parseIdentifier();
+      if (checkerId == null || !accept(".")) {
+        return null;
+      }
+      String methodName = parseIdentifier();
+      if (methodName == null || !accept("(") || !accept(")")) {
+        return null;
+      }
+      return new CallNode(checkerId, methodName);
+    }
+
+    private String parseIdentifier() {
+      String token = peek();
+      if (token == null || !Character.isJavaIdentifierStart(token.charAt(0))
+          || isKeyword(token)) {
+        return null;
+      }
+      pos++;
+      return token;
+    }
+
+    private boolean isKeyword(String token) {
+      return token.equals("and") || token.equals("or") || token.equals("not")
+          || token.equals("true") || token.equals("false")
+          || token.equals("null");
+    }
+  }
+}
@@ -32,8 +32,6 @@ import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 
 import azkaban.database.AbstractJdbcLoader;
-import azkaban.utils.GZIPUtils;
-import azkaban.utils.JSONUtils;
 import azkaban.utils.Props;
 
 /**
@@ -82,6 +80,8 @@ public class JdbcTriggerLoader extends AbstractJdbcLoader implements
 
   public JdbcTriggerLoader(Props props) {
     super(props);
+    defaultEncodingType =
+        getTableEncodingType(props, triggerTblName, defaultEncodingType);
   }
 
   @Override
@@ -218,17 +218,11 @@ public class JdbcTriggerLoader extends AbstractJdbcLoader implements
   private void updateTrigger(Connection connection, Trigger t,
       EncodingType encType) throws TriggerLoaderException {
 
-    String json = JSONUtils.toJSON(t.toJson());
     byte[] data = null;
     try {
-      byte[] stringData = json.getBytes("UTF-8");
-      data = stringData;
-
-      if (encType == EncodingType.GZIP) {
-        data = GZIPUtils.gzipBytes(stringData);
-      }
-      logger.debug("NumChars: " + json.length() + " UTF-8:" + stringData.length
-          + " Gzip:" + data.length);
+      data = encType.encodeObject(t.toJson());
+      logger.debug("Encoded trigger " + t.getTriggerId() + ": " + data.length
+          + " bytes");
     } catch (IOException e) {
       throw new TriggerLoaderException("Error encoding the trigger "
           + t.toString());
@@ -290,16 +284,7 @@ public class JdbcTriggerLoader extends AbstractJdbcLoader implements
           EncodingType encType = EncodingType.fromInteger(encodingType);
 
           try {
-            // Convoluted way to inflate strings. Should find common package or
-            // helper function.
-            if (encType == EncodingType.GZIP) {
-              // Decompress the sucker.
-              String jsonString = GZIPUtils.unGzipString(data, "UTF-8");
-              jsonObj = JSONUtils.parseJSONFromString(jsonString);
-            } else {
-              String jsonString = new String(data, "UTF-8");
-              jsonObj = JSONUtils.parseJSONFromString(jsonString);
-            }
+            jsonObj = encType.decodeObject(data);
           } catch (IOException e) {
             throw new SQLException("Error reconstructing trigger data ");
           }
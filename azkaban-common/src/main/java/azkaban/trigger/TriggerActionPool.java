@@ -0,0 +1,246 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.trigger;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import azkaban.utils.LatencyHistogram;
+
+/**
+ * <pre>
+ * 触发器动作的执行线程池，使触发器扫描线程不被慢的动作阻塞
+ * Runs the actions of the fired triggers off the scanner thread.
+ * Note:
+ * 1. the actions of one firing run in order, and the firings of one trigger
+ *    run one after another
+ * 2. each action type may have a concurrency limit below the pool size. A
+ *    firing whose next action is over its limit waits outside the pool, and
+ *    is resubmitted when an action of that type completes
+ * 3. with a pool size of 0 the actions run inline in the calling thread
+ * 4. the callback of a firing runs in the same thread once all its actions
+ *    are done, before the next firing of the trigger starts
+ * </pre>
+ */
+public class TriggerActionPool {
+  private static Logger logger = Logger.getLogger(TriggerActionPool.class);
+
+  private final ExecutorService pool;
+  private final int defaultTypeLimit;
+  private final Map<String, Integer> typeLimits;
+
+  /** 每个触发器尚未完成的触发，队首为正在执行的 */
+  private final Map<Integer, LinkedList<Firing>> firingsByTrigger =
+      new HashMap<Integer, LinkedList<Firing>>();
+  private final Map<String, TypeSlots> slotsByType =
+      new HashMap<String, TypeSlots>();
+
+  private final AtomicInteger numPendingFirings = new AtomicInteger(0);
+  private final LatencyHistogram fireLatency = new LatencyHistogram();
+
+  /**
+   * @param poolSize the number of action threads, 0 to run actions inline
+   * @param typeLimits the max concurrent actions keyed on the action type,
+   *          types not listed are limited by the pool size only
+   */
+  public TriggerActionPool(int poolSize, Map<String, Integer> typeLimits) {
+    this.pool = poolSize > 0 ? Executors.newFixedThreadPool(poolSize) : null;
+    this.defaultTypeLimit = Math.max(poolSize, 1);
+    this.typeLimits = typeLimits;
+  }
+
+  /**
+   * Runs the actions of a trigger fired for the given due time, then the
+   * callback, if any.
+   */
+  public void fire(Trigger t, List<TriggerAction> actions, String kind,
+      long dueTime, Runnable onDone) {
+    Firing firing = new Firing(t, actions, kind, dueTime, onDone);
+    if (pool == null) {
+      firing.run();
+      return;
+    }
+
+    numPendingFirings.incrementAndGet();
+    boolean first;
+    synchronized (firingsByTrigger) {
+      LinkedList<Firing> firings = firingsByTrigger.get(t.getTriggerId());
+      if (firings == null) {
+        firings = new LinkedList<Firing>();
+        firingsByTrigger.put(t.getTriggerId(), firings);
+      }
+      firings.add(firing);
+      first = firings.size() == 1;
+    }
+
+    // a later firing starts when the earlier ones are done
+    if (first) {
+      pool.execute(firing);
+    }
+  }
+
+  public int getNumPendingFirings() {
+    return numPendingFirings.get();
+  }
+
+  public LatencyHistogram getFireLatency() {
+    return fireLatency;
+  }
+
+  public void shutdown() {
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+  private TypeSlots getSlots(String type) {
+    synchronized (slotsByType) {
+      TypeSlots slots = slotsByType.get(type);
+      if (slots == null) {
+        Integer limit = typeLimits.get(type);
+        slots = new TypeSlots(limit == null ? defaultTypeLimit : limit);
+        slotsByType.put(type, slots);
+      }
+      return slots;
+    }
+  }
+
+  private void complete(Firing firing) {
+    numPendingFirings.decrementAndGet();
+    Firing next = null;
+    synchronized (firingsByTrigger) {
+      int triggerId = firing.trigger.getTriggerId();
+      LinkedList<Firing> firings = firingsByTrigger.get(triggerId);
+      firings.removeFirst();
+      if (firings.isEmpty()) {
+        firingsByTrigger.remove(triggerId);
+      } else {
+        next = firings.getFirst();
+      }
+    }
+
+    if (next != null) {
+      pool.execute(next);
+    }
+  }
+
+  /**
+   * 某一动作类型的并发限制
+   */
+  private class TypeSlots {
+    private final int limit;
+    private int running = 0;
+    private final LinkedList<Firing> waiting = new LinkedList<Firing>();
+
+    public TypeSlots(int limit) {
+      this.limit = limit;
+    }
+
+    /* Takes a slot, or parks the firing till one is released */
+    public synchronized boolean acquire(Firing firing) {
+      if (running < limit) {
+        running++;
+        return true;
+      }
+      waiting.add(firing);
+      return false;
+    }
+
+    public void release() {
+      Firing next;
+      synchronized (this) {
+        running--;
+        next = waiting.poll();
+      }
+      if (next != null) {
+        pool.execute(next);
+      }
+    }
+  }
+
+  /**
+   * 一次触发，按顺序执行触发器的动作
+   */
+  private class Firing implements Runnable {
+    private final Trigger trigger;
+    private final List<TriggerAction> actions;
+    private final String kind;
+    private final long dueTime;
+    private final Runnable onDone;
+    private int nextAction = 0;
+
+    public Firing(Trigger trigger, List<TriggerAction> actions, String kind,
+        long dueTime, Runnable onDone) {
+      this.trigger = trigger;
+      this.actions = actions;
+      this.kind = kind;
+      this.dueTime = dueTime;
+      this.onDone = onDone;
+    }
+
+    @Override
+    public void run() {
+      if (nextAction == 0) {
+        fireLatency.record(Math.max(0, System.currentTimeMillis() - dueTime));
+      }
+
+      while (nextAction < actions.size()) {
+        TriggerAction action = actions.get(nextAction);
+        TypeSlots slots = pool == null ? null : getSlots(action.getType());
+        if (slots != null && !slots.acquire(this)) {
+          return;
+        }
+
+        try {
+          logger.info("Doing " + kind + " actions");
+          action.doAction();
+        } catch (Exception e) {
+          logger.error("Failed to do " + kind + " action "
+              + action.getDescription(), e);
+        } catch (Throwable th) {
+          logger.error("Failed to do " + kind + " action "
+              + action.getDescription(), th);
+        } finally {
+          nextAction++;
+          if (slots != null) {
+            slots.release();
+          }
+        }
+      }
+
+      if (onDone != null) {
+        try {
+          onDone.run();
+        } catch (Throwable th) {
+          logger.error("Failed to complete the " + kind + " of trigger "
+              + trigger.getTriggerId(), th);
+        }
+      }
+
+      if (pool != null) {
+        complete(this);
+      }
+    }
+  }
+}
@@ -17,15 +17,15 @@
 package azkaban.trigger;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 
@@ -41,6 +41,10 @@ public class TriggerManager extends EventHandler implements
     TriggerManagerAdapter {
   private static Logger logger = Logger.getLogger(TriggerManager.class);
   public static final long DEFAULT_SCANNER_INTERVAL_MS = 60000;
+  private static final String TRIGGER_ACTION_POOL_SIZE =
+      "trigger.action.pool.size";
+  private static final String TRIGGER_ACTION_MAX_CONCURRENT_PREFIX =
+      "trigger.action.max.concurrent.";
 
   private static Map<Integer, Trigger> triggerIdMap =
       new ConcurrentHashMap<Integer, Trigger>();
@@ -50,6 +54,7 @@ public class TriggerManager extends EventHandler implements
   private TriggerLoader triggerLoader;
 
   private final TriggerScannerThread runnerThread;
+  private final TriggerActionPool actionPool;
   private long lastRunnerThreadCheckTime = -1;
   private long runnerThreadIdleTime = -1;
   private LocalTriggerJMX jmxStats = new LocalTriggerJMX();
@@ -70,6 +75,15 @@ public class TriggerManager extends EventHandler implements
         props.getLong("trigger.scan.interval", DEFAULT_SCANNER_INTERVAL_MS);
     runnerThread = new TriggerScannerThread(scannerInterval);
 
+    Map<String, Integer> actionTypeLimits = new HashMap<String, Integer>();
+    for (Map.Entry<String, String> entry : props.getMapByPrefix(
+        TRIGGER_ACTION_MAX_CONCURRENT_PREFIX).entrySet()) {
+      actionTypeLimits.put(entry.getKey(), Integer.valueOf(entry.getValue()));
+    }
+    actionPool =
+        new TriggerActionPool(props.getInt(TRIGGER_ACTION_POOL_SIZE, 10),
+            actionTypeLimits);
+
     checkerTypeLoader = new CheckerTypeLoader();
     actionTypeLoader = new ActionTypeLoader();
 
@@ -186,19 +200,33 @@ public class TriggerManager extends EventHandler implements
   }
 
     /**
-     * 触发器扫描线程
+     * <pre>
+     * 触发器扫描线程，按下次检查时间排列触发器，只检查到期的触发器
+     * Note:
+     * 1. triggers without a next check time in the future, e.g. the ones
+     *    waiting on an execution, are checked every scanner interval
+     * 2. triggers monitoring an execution are checked as soon as it finishes
+     * 3. a fired trigger leaves the queue till its actions are done, then it
+     *    is reset or expired and scheduled again by the action pool
+     * 4. a deleted trigger is taken out of the queue right away, a rescheduled
+     *    one leaves its old entry behind, which is dropped once it is due as
+     *    it is no longer the scheduled entry of its id
+     * </pre>
      */
   private class TriggerScannerThread extends Thread {
-        /** 可阻塞等待的队列*/
-    private BlockingQueue<Trigger> triggers;
-        /** 记录最近完成的任务流*/
-    private Map<Integer, ExecutableFlow> justFinishedFlows;
+        /** 按到期时间排列的触发器*/
+    private final DelayQueue<ScheduledTrigger> dueTriggers;
+        /** 每个触发器当前有效的调度项*/
+    private final Map<Integer, ScheduledTrigger> scheduledTriggers;
+        /** 监控执行结束的触发器，以执行id为key*/
+    private final Map<Integer, Set<Trigger>> monitoringTriggers;
     private boolean shutdown = false;
     private final long scannerInterval;
 
     public TriggerScannerThread(long scannerInterval) {
-      triggers = new PriorityBlockingQueue<Trigger>(1, new TriggerComparator());
-      justFinishedFlows = new ConcurrentHashMap<Integer, ExecutableFlow>();
+      dueTriggers = new DelayQueue<ScheduledTrigger>();
+      scheduledTriggers = new ConcurrentHashMap<Integer, ScheduledTrigger>();
+      monitoringTriggers = new ConcurrentHashMap<Integer, Set<Trigger>>();
       this.setName("TriggerRunnerManager-Trigger-Scanner-Thread");
       this.scannerInterval = scannerInterval;
     }
@@ -211,34 +239,114 @@ public class TriggerManager extends EventHandler implements
 
     public void addJustFinishedFlow(ExecutableFlow flow) {
       synchronized (syncObj) {
-        justFinishedFlows.put(flow.getExecutionId(), flow);
+        Set<Trigger> monitors = monitoringTriggers.remove(flow.getExecutionId());
+        if (monitors == null) {
+          return;
+        }
+        for (Trigger t : monitors) {
+          logger.info("Monitored execution has finished. Checking trigger earlier "
+              + t.getTriggerId());
+          checkNow(t);
+        }
       }
     }
 
     public void addTrigger(Trigger t) {
       synchronized (syncObj) {
         t.updateNextCheckTime();
-        triggers.add(t);
+        schedule(t, Math.max(t.getNextCheckTime(), System.currentTimeMillis()));
+
+        Integer execId = getMonitoredExecution(t);
+        if (execId != null) {
+          Set<Trigger> monitors = monitoringTriggers.get(execId);
+          if (monitors == null) {
+            monitors = new HashSet<Trigger>();
+            monitoringTriggers.put(execId, monitors);
+          }
+          monitors.add(t);
+        }
       }
     }
 
     public void deleteTrigger(Trigger t) {
-      triggers.remove(t);
+      if (t == null) {
+        return;
+      }
+      synchronized (syncObj) {
+        ScheduledTrigger scheduled = scheduledTriggers.get(t.getTriggerId());
+        if (scheduled != null && scheduled.trigger == t) {
+          scheduledTriggers.remove(t.getTriggerId());
+          dueTriggers.remove(scheduled);
+        }
+
+        Integer execId = getMonitoredExecution(t);
+        if (execId != null) {
+          Set<Trigger> monitors = monitoringTriggers.get(execId);
+          if (monitors != null) {
+            monitors.remove(t);
+            if (monitors.isEmpty()) {
+              monitoringTriggers.remove(execId);
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Moves the trigger to the front, so that it is checked right away.
+     */
+    public void checkNow(Trigger t) {
+      synchronized (syncObj) {
+        if (scheduledTriggers.containsKey(t.getTriggerId())) {
+          schedule(t, System.currentTimeMillis());
+        }
+      }
+    }
+
+    private void schedule(Trigger t, long dueTime) {
+      ScheduledTrigger scheduled = new ScheduledTrigger(t, dueTime);
+      scheduledTriggers.put(t.getTriggerId(), scheduled);
+      dueTriggers.add(scheduled);
+    }
+
+    private Integer getMonitoredExecution(Trigger t) {
+      if (t.getInfo() != null
+          && t.getInfo().containsKey("monitored.finished.execution")) {
+        return Integer.valueOf((String) t.getInfo().get(
+            "monitored.finished.execution"));
+      }
+      return null;
     }
 
     public void run() {
       while (!shutdown) {
-        synchronized (syncObj) {
-          try {
+        try {
+          // blocks till the earliest trigger is due
+          ScheduledTrigger first = dueTriggers.take();
+
+          synchronized (syncObj) {
             lastRunnerThreadCheckTime = System.currentTimeMillis();
 
             scannerStage =
                 "Ready to start a new scan cycle at "
                     + lastRunnerThreadCheckTime;
 
+            if (lastRunnerThreadCheckTime - first.dueTime > scannerInterval) {
+              logger.error("Trigger manager thread " + this.getName()
+                  + " is too busy!");
+            }
+
+            List<ScheduledTrigger> triggers = new ArrayList<ScheduledTrigger>();
+            for (ScheduledTrigger scheduled = first; scheduled != null; scheduled =
+                dueTriggers.poll()) {
+              // skip the entries of deleted and rescheduled triggers
+              if (scheduledTriggers.get(scheduled.trigger.getTriggerId()) == scheduled) {
+                triggers.add(scheduled);
+              }
+            }
+
             try {
-              checkAllTriggers();
-              justFinishedFlows.clear();
+              checkDueTriggers(triggers);
             } catch (Exception e) {
               e.printStackTrace();
               logger.error(e.getMessage());
@@ -249,152 +357,171 @@ public class TriggerManager extends EventHandler implements
 
             scannerStage = "Done flipping all triggers.";
 
+            ScheduledTrigger next = dueTriggers.peek();
             runnerThreadIdleTime =
-                scannerInterval
-                    - (System.currentTimeMillis() - lastRunnerThreadCheckTime);
-
-            if (runnerThreadIdleTime < 0) {
-              logger.error("Trigger manager thread " + this.getName()
-                  + " is too busy!");
-            } else {
-              syncObj.wait(runnerThreadIdleTime);
-            }
-          } catch (InterruptedException e) {
-            logger.info("Interrupted. Probably to shut down.");
+                next == null ? scannerInterval : next
+                    .getDelay(TimeUnit.MILLISECONDS);
           }
+        } catch (InterruptedException e) {
+          logger.info("Interrupted. Probably to shut down.");
         }
       }
     }
 
         /**
-         * 遍历注册的触发器列表，检查各个触发器的状态。
-         * 对于达到触发条件的，执行触发动作，并更新下次检查时间；
+         * 检查到期的触发器。
+         * 对于达到触发条件的，执行触发动作，并按下次检查时间重新排列；
          * 对于达到过期条件的，执行过期触发动作，并移除触发器。
          * @throws TriggerManagerException
          */
-    private void checkAllTriggers() throws TriggerManagerException {
-      long now = System.currentTimeMillis();
-
-      // sweep through the rest of them
-      for (Trigger t : triggers) {
+    private void checkDueTriggers(List<ScheduledTrigger> triggers)
+        throws TriggerManagerException {
+      for (ScheduledTrigger scheduled : triggers) {
+        Trigger t = scheduled.trigger;
         try {
           scannerStage = "Checking for trigger " + t.getTriggerId();
 
-          boolean shouldSkip = true;
-          if (shouldSkip && t.getInfo() != null && t.getInfo().containsKey("monitored.finished.execution")) {
-            int execId = Integer.valueOf((String) t.getInfo().get("monitored.finished.execution"));
-            if (justFinishedFlows.containsKey(execId)) {
-              logger.info("Monitored execution has finished. Checking trigger earlier " + t.getTriggerId());
-              shouldSkip = false;
-            }
-          }
-          if (shouldSkip && t.getNextCheckTime() > now) {
-            shouldSkip = false;
-          }
-
-          if (shouldSkip) {
-            logger.info("Skipping trigger" + t.getTriggerId() + " until " + t.getNextCheckTime());
-          }
-
           if (logger.isDebugEnabled()) {
             logger.info("Checking trigger " + t.getTriggerId());
           }
           if (t.getStatus().equals(TriggerStatus.READY)) {
             if (t.triggerConditionMet()) {
-              onTriggerTrigger(t);
+              onTriggerTrigger(t, scheduled.dueTime);
+              continue;
             } else if (t.expireConditionMet()) {
-              onTriggerExpire(t);
+              onTriggerExpire(t, scheduled.dueTime);
+              continue;
             }
           }
           if (t.getStatus().equals(TriggerStatus.EXPIRED) && t.getSource().equals("azkaban")) {
             removeTrigger(t);
-          } else {
+          } else if (triggerIdMap.get(t.getTriggerId()) == t) {
             t.updateNextCheckTime();
+            schedule(t, getNextDueTime(t));
           }
         } catch (Throwable th) {
           //skip this trigger, moving on to the next one
           logger.error("Failed to process trigger with id : " + t.getTriggerId(), th);
+          if (triggerIdMap.get(t.getTriggerId()) == t) {
+            schedule(t, System.currentTimeMillis() + scannerInterval);
+          }
         }
       }
     }
 
         /**
-         * 触发单一触发器，并更新触发器
-         * @param t
-         * @throws TriggerManagerException
+         * 计算触发器重新排列的到期时间。
+         * 时间检查器只在检查时间严格早于当前时间时满足条件，因此到期时间至少要在检查时间之后1ms，
+         * 否则恰好在检查时间被检查的触发器要多等一个扫描间隔；
+         * 没有时间检查器的触发器（如等待执行结束的），以及时间已满足、在等其他条件的触发器，
+         * 每个扫描间隔检查一次，避免空转。
          */
-    private void onTriggerTrigger(Trigger t) throws TriggerManagerException {
-      List<TriggerAction> actions = t.getTriggerActions();
-      for (TriggerAction action : actions) {
-        try {
-          logger.info("Doing trigger actions");
-          action.doAction();
-        } catch (Exception e) {
-          logger.error("Failed to do action " + action.getDescription(), e);
-        } catch (Throwable th) {
-          logger.error("Failed to do action " + action.getDescription(), th);
-        }
-      }
-      if (t.isResetOnTrigger()) {
-        t.resetTriggerConditions();
-        t.resetExpireCondition();
-      } else {
-        t.setStatus(TriggerStatus.EXPIRED);
-      }
-      try {
-        triggerLoader.updateTrigger(t);
-      } catch (TriggerLoaderException e) {
-        throw new TriggerManagerException(e);
+    private long getNextDueTime(Trigger t) {
+      long now = System.currentTimeMillis();
+      long nextCheckTime = t.getNextCheckTime();
+      if (nextCheckTime <= 0 || nextCheckTime == Long.MAX_VALUE
+          || nextCheckTime < now) {
+        return now + scannerInterval;
       }
+      return Math.max(nextCheckTime + 1, now + 1);
     }
 
         /**
-         * 执行触发器的过期动作，并更新触发器
+         * 触发单一触发器，触发动作交由动作线程池执行，动作完成后再更新触发器
          * @param t
-         * @throws TriggerManagerException
+         * @param dueTime 触发器的到期时间，用于统计触发延迟
          */
-    private void onTriggerExpire(Trigger t) throws TriggerManagerException {
-      List<TriggerAction> expireActions = t.getExpireActions();
-      for (TriggerAction action : expireActions) {
+    private void onTriggerTrigger(final Trigger t, long dueTime) {
+      // not checked again, or checked early, till the actions are done
+      scheduledTriggers.remove(t.getTriggerId());
+      actionPool.fire(t, new ArrayList<TriggerAction>(t.getTriggerActions()),
+          "trigger", dueTime, new Runnable() {
+            @Override
+            public void run() {
+              finishFiring(t, t.isResetOnTrigger());
+            }
+          });
+    }
+
+        /**
+         * 执行触发器的过期动作，过期动作交由动作线程池执行，动作完成后再更新触发器
+         * @param t
+         * @param dueTime 触发器的到期时间，用于统计触发延迟
+         */
+    private void onTriggerExpire(final Trigger t, long dueTime) {
+      scheduledTriggers.remove(t.getTriggerId());
+      actionPool.fire(t, new ArrayList<TriggerAction>(t.getExpireActions()),
+          "expire", dueTime, new Runnable() {
+            @Override
+            public void run() {
+              finishFiring(t, t.isResetOnExpire());
+            }
+          });
+    }
+
+        /**
+         * 触发动作完成后，重置或者过期触发器，更新触发器并重新排列；
+         * 在动作线程池中执行，动作执行期间被删除或者替换的触发器不再处理
+         * @param t
+         * @param reset 是否重置触发器，否则置为过期
+         */
+    private void finishFiring(Trigger t, boolean reset) {
+      synchronized (syncObj) {
+        if (triggerIdMap.get(t.getTriggerId()) != t) {
+          return;
+        }
+
+        if (reset) {
+          t.resetTriggerConditions();
+          t.resetExpireCondition();
+        } else {
+          t.setStatus(TriggerStatus.EXPIRED);
+        }
         try {
-          logger.info("Doing expire actions");
-          action.doAction();
-        } catch (Exception e) {
-          logger.error("Failed to do expire action " + action.getDescription(),
-              e);
-        } catch (Throwable th) {
-          logger.error("Failed to do expire action " + action.getDescription(),
-              th);
+          triggerLoader.updateTrigger(t);
+        } catch (TriggerLoaderException e) {
+          logger.error("Failed to update trigger " + t.getTriggerId(), e);
+        }
+
+        if (t.getStatus().equals(TriggerStatus.EXPIRED)
+            && t.getSource().equals("azkaban")) {
+          try {
+            removeTrigger(t);
+          } catch (TriggerManagerException e) {
+            logger.error("Failed to remove trigger " + t.getTriggerId(), e);
+          }
+        } else {
+          t.updateNextCheckTime();
+          schedule(t, getNextDueTime(t));
         }
-      }
-      if (t.isResetOnExpire()) {
-        t.resetTriggerConditions();
-        t.resetExpireCondition();
-      } else {
-        t.setStatus(TriggerStatus.EXPIRED);
-      }
-      try {
-        triggerLoader.updateTrigger(t);
-      } catch (TriggerLoaderException e) {
-        throw new TriggerManagerException(e);
       }
     }
 
         /**
-         * 触发器比较算子，根据下次检查时间递增排序
+         * 触发器的调度项，到期时间为触发器的下次检查时间
          */
-    private class TriggerComparator implements Comparator<Trigger> {
+    private class ScheduledTrigger implements Delayed {
+      private final Trigger trigger;
+      private final long dueTime;
+
+      public ScheduledTrigger(Trigger trigger, long dueTime) {
+        this.trigger = trigger;
+        this.dueTime = dueTime;
+      }
+
       @Override
-      public int compare(Trigger arg0, Trigger arg1) {
-        long first = arg1.getNextCheckTime();
-        long second = arg0.getNextCheckTime();
+      public long getDelay(TimeUnit unit) {
+        return unit.convert(dueTime - System.currentTimeMillis(),
+            TimeUnit.MILLISECONDS);
+      }
 
-        if (first == second) {
+      @Override
+      public int compareTo(Delayed o) {
+        long other = ((ScheduledTrigger) o).dueTime;
+        if (dueTime == other) {
           return 0;
-        } else if (first < second) {
-          return 1;
         }
-        return -1;
+        return dueTime < other ? -1 : 1;
       }
     }
   }
@@ -408,6 +535,8 @@ public class TriggerManager extends EventHandler implements
   public void expireTrigger(int triggerId) {
     Trigger t = getTrigger(triggerId);
     t.setStatus(TriggerStatus.EXPIRED);
+    // let the scanner clean it up right away
+    runnerThread.checkNow(t);
   }
 
   @Override
@@ -482,6 +611,7 @@ public class TriggerManager extends EventHandler implements
   @Override
   public void shutdown() {
     runnerThread.shutdown();
+    actionPool.shutdown();
   }
 
   @Override
@@ -540,6 +670,16 @@ public class TriggerManager extends EventHandler implements
       return scannerStage;
     }
 
+    @Override
+    public int getNumPendingTriggerActions() {
+      return actionPool.getNumPendingFirings();
+    }
+
+    @Override
+    public String getTriggerFireLatencyHistogram() {
+      return actionPool.getFireLatency().toString();
+    }
+
   }
 
   @Override
@@ -121,6 +121,10 @@ public interface TriggerManagerAdapter {//对系统的触发器进行管理
     public Map<String, Object> getAllJMXMbeans();
 
     public String getScannerThreadStage();
+
+    public int getNumPendingTriggerActions();
+
+    public String getTriggerFireLatencyHistogram();
   }
 
 }
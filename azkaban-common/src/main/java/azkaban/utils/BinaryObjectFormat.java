@@ -0,0 +1,284 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package azkaban.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ * json对象树（map、list、字符串、数字、布尔值）的紧凑二进制格式，
+ * 用于数据库中任务流数据等重复键名很多的大字段
+ * Note:
+ * 1. the first byte is the format version, a reader refuses versions it
+ *    doesn't know
+ * 2. every distinct string, key or value, is written once and referred to by
+ *    its index afterwards. Key names, statuses and node ids cost a byte or
+ *    two after their first use, and the decoded tree shares one instance of
+ *    each
+ * 3. integers are zigzag varints, so timestamps take 6 bytes instead of 13
+ *    characters and -1 takes one
+ * 4. the decoded tree is what {@link JSONUtils#parseJSONFromString} returns
+ *    for the same object: HashMaps, ArrayLists, Integers where the value
+ *    fits, Longs otherwise
+ * </pre>
+ */
+public class BinaryObjectFormat {
+  public static final int FORMAT_VERSION = 1;
+
+  private static final int NULL = 0;
+  private static final int FALSE = 1;
+  private static final int TRUE = 2;
+  private static final int INTEGER = 3;
+  private static final int DOUBLE = 4;
+  private static final int STRING = 5;
+  private static final int STRING_REF = 6;
+  private static final int MAP = 7;
+  private static final int LIST = 8;
+
+  private BinaryObjectFormat() {
+  }
+
+  public static byte[] encode(Object obj) {
+    Writer writer = new Writer();
+    writer.writeByte(FORMAT_VERSION);
+    writer.writeValue(obj);
+    return writer.toByteArray();
+  }
+
+  public static Object decode(byte[] data) throws IOException {
+    if (data.length == 0) {
+      throw new IOException("Empty binary object.");
+    }
+    if (data[0] != FORMAT_VERSION) {
+      throw new IOException("Unknown binary object format version "
+          + data[0]);
+    }
+
+    Reader reader = new Reader(data, 1);
+    try {
+      Object obj = reader.readValue();
+      if (reader.pos != data.length) {
+        throw new IOException((data.length - reader.pos)
+            + " trailing bytes after the binary object.");
+      }
+      return obj;
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IOException("Truncated binary object.", e);
+    }
+  }
+
+  private static class Writer {
+    private byte[] buffer = new byte[1024];
+    private int pos = 0;
+    private final Map<String, Integer> strings =
+        new HashMap<String, Integer>();
+
+    private void writeValue(Object obj) {
+      if (obj == null) {
+        writeByte(NULL);
+      } else if (obj instanceof String) {
+        writeString((String) obj);
+      } else if (obj instanceof Boolean) {
+        writeByte((Boolean) obj ? TRUE : FALSE);
+      } else if (obj instanceof Integer || obj instanceof Long
+          || obj instanceof Short || obj instanceof Byte) {
+        writeByte(INTEGER);
+        long value = ((Number) obj).longValue();
+        writeVarLong((value << 1) ^ (value >> 63));
+      } else if (obj instanceof Double || obj instanceof Float) {
+        writeByte(DOUBLE);
+        long bits = Double.doubleToLongBits(((Number) obj).doubleValue());
+        for (int shift = 56; shift >= 0; shift -= 8) {
+          writeByte((int) (bits >>> shift));
+        }
+      } else if (obj instanceof Map) {
+        Map<?, ?> map = (Map<?, ?>) obj;
+        writeByte(MAP);
+        writeVarLong(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          writeString(String.valueOf(entry.getKey()));
+          writeValue(entry.getValue());
+        }
+      } else if (obj instanceof Collection) {
+        Collection<?> list = (Collection<?>) obj;
+        writeByte(LIST);
+        writeVarLong(list.size());
+        for (Object element : list) {
+          writeValue(element);
+        }
+      } else {
+        throw new IllegalArgumentException("Can't encode "
+            + obj.getClass().getName() + " as a binary object.");
+      }
+    }
+
+    private void writeString(String str) {
+      Integer index = strings.get(str);
+      if (index != null) {
+        writeByte(STRING_REF);
+        writeVarLong(index);
+        return;
+      }
+
+      strings.put(str, strings.size());
+      byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+      writeByte(STRING);
+      writeVarLong(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, pos, bytes.length);
+      pos += bytes.length;
+    }
+
+    private void writeVarLong(long value) {
+      while ((value & ~0x7FL) != 0) {
+        writeByte((int) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      writeByte((int) value);
+    }
+
+    private void writeByte(int b) {
+      ensureCapacity(1);
+      buffer[pos++] = (byte) b;
+    }
+
+    private void ensureCapacity(int length) {
+      if (pos + length > buffer.length) {
+        buffer =
+            Arrays.copyOf(buffer, Math.max(buffer.length * 2, pos + length));
+      }
+    }
+
+    private byte[] toByteArray() {
+      return Arrays.copyOf(buffer, pos);
+    }
+  }
+
+  private static class Reader {
+    private final byte[] data;
+    private int pos;
+    private final List<String> strings = new ArrayList<String>();
+
+    private Reader(byte[] data, int pos) {
+      this.data = data;
+      this.pos = pos;
+    }
+
+    private Object readValue() throws IOException {
+      int tag = data[pos++];
+      switch (tag) {
+      case NULL:
+        return null;
+      case FALSE:
+        return Boolean.FALSE;
+      case TRUE:
+        return Boolean.TRUE;
+      case INTEGER: {
+        long zigzag = readVarLong();
+        long value = (zigzag >>> 1) ^ -(zigzag & 1);
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+          return (int) value;
+        }
+        return value;
+      }
+      case DOUBLE: {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+          bits = (bits << 8) | (data[pos++] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+      }
+      case STRING:
+      case STRING_REF:
+        pos--;
+        return readString();
+      case MAP: {
+        int size = readLength();
+        HashMap<String, Object> map = new HashMap<String, Object>();
+        for (int i = 0; i < size; i++) {
+          String key = readString();
+          map.put(key, readValue());
+        }
+        return map;
+      }
+      case LIST: {
+        int size = readLength();
+        ArrayList<Object> list = new ArrayList<Object>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readValue());
+        }
+        return list;
+      }
+      default:
+        throw new IOException("Unknown binary object tag " + tag + " at "
+            + (pos - 1));
+      }
+    }
+
+    private String readString() throws IOException {
+      int tag = data[pos++];
+      if (tag == STRING_REF) {
+        int index = readLength();
+        if (index >= strings.size()) {
+          throw new IOException("Unknown string reference " + index);
+        }
+        return strings.get(index);
+      }
+      if (tag != STRING) {
+        throw new IOException("Expected a string at " + (pos - 1));
+      }
+
+      int length = readLength();
+      if (length > data.length - pos) {
+        throw new IOException("Truncated binary object.");
+      }
+      String str = new String(data, pos, length, StandardCharsets.UTF_8);
+      pos += length;
+      strings.add(str);
+      return str;
+    }
+
+    /** Sizes and indexes can't exceed the length of the data. */
+    private int readLength() throws IOException {
+      long length = readVarLong();
+      if (length < 0 || length > data.length) {
+        throw new IOException("Corrupt length " + length + " at " + pos);
+      }
+      return (int) length;
+    }
+
+    private long readVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        byte b = data[pos++];
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Malformed varint at " + pos);
+    }
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.io.IOException;
+
+/**
+ * 数据库中大字段的压缩算法
+ * A compression codec for the blobs stored in the db. Implementations are
+ * thread safe.
+ */
+public interface CompressionCodec {
+  public byte[] compress(byte[] bytes, int offset, int length)
+      throws IOException;
+
+  public byte[] decompress(byte[] bytes) throws IOException;
+}
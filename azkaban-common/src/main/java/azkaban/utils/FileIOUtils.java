@@ -17,19 +17,24 @@
 package azkaban.utils;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.commons.io.IOUtils;
 
@@ -38,6 +43,7 @@ import org.apache.commons.io.IOUtils;
  * future.
  */
 public class FileIOUtils {
+  private static final int STREAM_BUFFER_SIZE = 64 * 1024;
 
   public static class PrefixSuffixFileFilter implements FileFilter {
     private String prefix;
@@ -84,10 +90,41 @@ public class FileIOUtils {
   }
 
   /**
-   * Run a unix command that will symlink files, and recurse into directories.
+   * <pre>
+   * 执行目录中项目文件的放置方式
+   * SYMLINK: 链接到已安装的项目文件
+   * HARDLINK: 硬链接，不在同一文件系统时退化为复制
+   * COPY: 复制，作业修改文件不会影响已安装的项目
+   * </pre>
+   */
+  public static enum LinkMode {
+    SYMLINK, HARDLINK, COPY
+  }
+
+  /** 目录树的并行遍历线程池 */
+  private static final ForkJoinPool LINK_POOL = new ForkJoinPool(Math.max(4,
+      Runtime.getRuntime().availableProcessors()));
+
+  /**
+   * Symlinks the files of the source tree into the destination, and
+   * recreates the directories.
    */
   public static void createDeepSymlink(File sourceDir, File destDir)
       throws IOException {
+    createDeepLinks(sourceDir, destDir, LinkMode.SYMLINK);
+  }
+
+  /**
+   * <pre>
+   * 在目标目录中重建源目录的目录结构，并按mode放置其中的文件
+   * Note:
+   * 1. the directories are walked in parallel, without forking a shell
+   * 2. hidden files are skipped, as the "ln -s dir/*" this replaces did.
+   *    Hidden directories are recreated
+   * </pre>
+   */
+  public static void createDeepLinks(File sourceDir, File destDir,
+      LinkMode mode) throws IOException {
     if (!sourceDir.exists()) {
       throw new IOException("Source directory " + sourceDir.getPath()
           + " doesn't exist");
@@ -98,135 +135,123 @@ public class FileIOUtils {
       throw new IOException("Source or Destination is not a directory.");
     }
 
-    Set<String> paths = new HashSet<String>();
-    createDirsFindFiles(sourceDir, sourceDir, destDir, paths);
-
-    StringBuffer buffer = new StringBuffer();
-    for (String path : paths) {
-      File sourceLink = new File(sourceDir, path);
-      path = "." + path;
-
-      buffer.append("ln -s ").append(sourceLink.getAbsolutePath()).append("/*")
-          .append(" ").append(path).append(";");
-    }
-
-    String command = buffer.toString();
-    ProcessBuilder builder = new ProcessBuilder().command("sh", "-c", command);
-    builder.directory(destDir);
-
-    // XXX what about stopping threads ??
-    Process process = builder.start();
     try {
-      NullLogger errorLogger = new NullLogger(process.getErrorStream());
-      NullLogger inputLogger = new NullLogger(process.getInputStream());
-      errorLogger.start();
-      inputLogger.start();
-
-      try {
-        if (process.waitFor() < 0) {
-          // Assume that the error will be in standard out. Otherwise it'll be
-          // in standard in.
-          String errorMessage = errorLogger.getLastMessages();
-          if (errorMessage.isEmpty()) {
-            errorMessage = inputLogger.getLastMessages();
-          }
-
-          throw new IOException(errorMessage);
-        }
-
-        // System.out.println(errorLogger.getLastMessages());
-      } catch (InterruptedException e) {
-        e.printStackTrace();
-      }
-    } finally {
-      IOUtils.closeQuietly(process.getInputStream());
-      IOUtils.closeQuietly(process.getOutputStream());
-      IOUtils.closeQuietly(process.getErrorStream());
+      LINK_POOL.invoke(new LinkDirTask(sourceDir.getAbsoluteFile().toPath(),
+          destDir.toPath(), mode));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
     }
   }
 
-  private static void createDirsFindFiles(File baseDir, File sourceDir,
-      File destDir, Set<String> paths) {
-    File[] srcList = sourceDir.listFiles();
-    String path = getRelativePath(baseDir, sourceDir);
-    paths.add(path);
-
-    for (File file : srcList) {
-      if (file.isDirectory()) {
-        File newDestDir = new File(destDir, file.getName());
-        newDestDir.mkdirs();
-        createDirsFindFiles(baseDir, file, newDestDir, paths);
-      }
-    }
-  }
-
-  private static String getRelativePath(File basePath, File sourceDir) {
-    return sourceDir.getPath().substring(basePath.getPath().length());
-  }
+  private static class LinkDirTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
 
-  private static class NullLogger extends Thread {
-    private final BufferedReader inputReader;
-    private CircularBuffer<String> buffer = new CircularBuffer<String>(5);
+    private final Path sourceDir;
+    private final Path destDir;
+    private final LinkMode mode;
 
-    public NullLogger(InputStream stream) {
-      inputReader = new BufferedReader(new InputStreamReader(stream));
+    public LinkDirTask(Path sourceDir, Path destDir, LinkMode mode) {
+      this.sourceDir = sourceDir;
+      this.destDir = destDir;
+      this.mode = mode;
     }
 
-    public void run() {
+    @Override
+    protected void compute() {
+      List<LinkDirTask> subDirs = new ArrayList<LinkDirTask>();
       try {
-        while (!Thread.currentThread().isInterrupted()) {
-          String line = inputReader.readLine();
-          if (line == null) {
-            return;
+        DirectoryStream<Path> entries = Files.newDirectoryStream(sourceDir);
+        try {
+          for (Path source : entries) {
+            Path dest = destDir.resolve(source.getFileName().toString());
+            if (Files.isDirectory(source)) {
+              Files.createDirectories(dest);
+              subDirs.add(new LinkDirTask(source, dest, mode));
+            } else if (!source.getFileName().toString().startsWith(".")) {
+              link(source, dest);
+            }
           }
-          buffer.append(line);
+        } finally {
+          entries.close();
         }
       } catch (IOException e) {
-        e.printStackTrace();
+        throw new UncheckedIOException(e);
       }
+      invokeAll(subDirs);
     }
 
-    public String getLastMessages() {
-      StringBuffer messageBuffer = new StringBuffer();
-      for (String message : buffer) {
-        messageBuffer.append(message);
-        messageBuffer.append("\n");
+    private void link(Path source, Path dest) throws IOException {
+      switch (mode) {
+      case HARDLINK:
+        try {
+          Files.createLink(dest, source);
+          return;
+        } catch (IOException e) {
+          // most likely another file system, copy instead
+        }
+        Files.copy(source, dest, StandardCopyOption.COPY_ATTRIBUTES);
+        break;
+      case COPY:
+        Files.copy(source, dest, StandardCopyOption.COPY_ATTRIBUTES);
+        break;
+      default:
+        Files.createSymbolicLink(dest, source);
       }
-
-      return messageBuffer.toString();
     }
   }
 
+  /**
+   * Copies the utf-8 range of the file to the stream a buffer at a time, so
+   * the memory used doesn't grow with the length. A negative length copies
+   * up to the end of the file.
+   *
+   * @return the offset and the length of the bytes written
+   */
   public static Pair<Integer, Integer> readUtf8File(File file, int offset,
       int length, OutputStream stream) throws IOException {
-    byte[] buffer = new byte[length];
-
-    FileInputStream fileStream = new FileInputStream(file);
+    return readUtf8File(new FileInputStream(file), offset, length, stream);
+  }
 
+  /**
+   * Same as {@link #readUtf8File(File, int, int, OutputStream)}, reading from
+   * a stream opened on the file. The stream is closed.
+   */
+  public static Pair<Integer, Integer> readUtf8File(InputStream fileStream,
+      int offset, int length, OutputStream stream) throws IOException {
     long skipped = fileStream.skip(offset);
     if (skipped < offset) {
       fileStream.close();
       return new Pair<Integer, Integer>(0, 0);
     }
 
+    Utf8RangeWriter writer = new Utf8RangeWriter(stream, offset);
+    int remaining = length < 0 ? Integer.MAX_VALUE : length;
+    byte[] buffer = new byte[Math.min(remaining, STREAM_BUFFER_SIZE)];
     BufferedInputStream inputStream = null;
     try {
       inputStream = new BufferedInputStream(fileStream);
-      inputStream.read(buffer);
+      while (remaining > 0) {
+        int read =
+            inputStream.read(buffer, 0, Math.min(remaining, buffer.length));
+        if (read < 0) {
+          break;
+        }
+        writer.write(buffer, 0, read);
+        remaining -= read;
+      }
     } finally {
       IOUtils.closeQuietly(inputStream);
     }
 
-    Pair<Integer, Integer> utf8Range = getUtf8Range(buffer, 0, length);
-    stream.write(buffer, utf8Range.getFirst(), utf8Range.getSecond());
-
-    return new Pair<Integer, Integer>(offset + utf8Range.getFirst(),
-        utf8Range.getSecond());
+    return writer.finish();
   }
 
   public static LogData readUtf8File(File file, int fileOffset, int length)
       throws IOException {
-    byte[] buffer = new byte[length];
+    // don't allocate more than what is left of the file
+    byte[] buffer =
+        new byte[(int) Math.max(0,
+            Math.min(length, file.length() - fileOffset))];
     FileInputStream fileStream = new FileInputStream(file);
 
     long skipped = fileStream.skip(fileOffset);
@@ -354,6 +379,73 @@ public class FileIOUtils {
     return offset;
   }
 
+  /**
+   * <pre>
+   * 按顺序写出一段utf-8字节流的多个片段，并像{@link #getUtf8Range}一样
+   * 去掉范围两端不完整的字符
+   * Note:
+   * 1. the slices must be consecutive, the first one starting at the given
+   *    byte position
+   * 2. only the last slice is held back, copied, until the next one or
+   *    {@link #finish()} tells whether it ends the range
+   * </pre>
+   */
+  public static class Utf8RangeWriter {
+    private final OutputStream stream;
+    private int offset;
+    private int length = 0;
+    private boolean started = false;
+
+    private byte[] pending = new byte[0];
+    private int pendingLength = 0;
+
+    public Utf8RangeWriter(OutputStream stream, int startByte) {
+      this.stream = stream;
+      this.offset = startByte;
+    }
+
+    public void write(byte[] buffer, int off, int len) throws IOException {
+      if (len <= 0) {
+        return;
+      }
+      if (!started) {
+        int start = Math.min(getUtf8ByteStart(buffer, off), off + len);
+        offset += start - off;
+        len -= start - off;
+        off = start;
+        started = true;
+      }
+
+      flushPending();
+      if (pending.length < len) {
+        pending = new byte[len];
+      }
+      System.arraycopy(buffer, off, pending, 0, len);
+      pendingLength = len;
+    }
+
+    /**
+     * Writes the rest of the range.
+     *
+     * @return the offset and the length of the bytes written
+     */
+    public Pair<Integer, Integer> finish() throws IOException {
+      if (pendingLength > 0) {
+        pendingLength = getUtf8ByteEnd(pending, pendingLength - 1) + 1;
+        flushPending();
+      }
+      return new Pair<Integer, Integer>(offset, length);
+    }
+
+    private void flushPending() throws IOException {
+      if (pendingLength > 0) {
+        stream.write(pending, 0, pendingLength);
+        length += pendingLength;
+        pendingLength = 0;
+      }
+    }
+  }
+
   public static class LogData {
     private int offset;
     private int length;
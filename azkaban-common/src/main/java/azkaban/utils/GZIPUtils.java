@@ -16,15 +16,17 @@
 
 package azkaban.utils;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
-
-import org.apache.commons.io.IOUtils;
 
+/**
+ * gzip helpers, backed by the pooled {@link GzipCodec}.
+ */
 public class GZIPUtils {
+  private static final GzipCodec codec = new GzipCodec();
+
+  public static GzipCodec getCodec() {
+    return codec;
+  }
 
   public static byte[] gzipString(String str, String encType)
       throws IOException {
@@ -39,24 +41,11 @@ public class GZIPUtils {
 
   public static byte[] gzipBytes(byte[] bytes, int offset, int length)
       throws IOException {
-    ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
-    GZIPOutputStream gzipStream = null;
-
-    gzipStream = new GZIPOutputStream(byteOutputStream);
-
-    gzipStream.write(bytes, offset, length);
-    gzipStream.close();
-    return byteOutputStream.toByteArray();
+    return codec.compress(bytes, offset, length);
   }
 
   public static byte[] unGzipBytes(byte[] bytes) throws IOException {
-    ByteArrayInputStream byteInputStream = new ByteArrayInputStream(bytes);
-    GZIPInputStream gzipInputStream = new GZIPInputStream(byteInputStream);
-
-    ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
-    IOUtils.copy(gzipInputStream, byteOutputStream);
-
-    return byteOutputStream.toByteArray();
+    return codec.decompress(bytes);
   }
 
   public static String unGzipString(byte[] bytes, String encType)
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * <pre>
+ * gzip压缩，每个线程复用自己的Deflater、Inflater和缓冲区，
+ * 不再为每次调用创建新的gzip流
+ * Note:
+ * 1. the output is the same gzip format as GZIPOutputStream's, the rows
+ *    written before stay readable both ways
+ * 2. a buffer that grew above MAX_POOLED_BUFFER is dropped after use, so a
+ *    single large flow doesn't pin its size on the thread
+ * </pre>
+ */
+public class GzipCodec implements CompressionCodec {
+  private static final int GZIP_MAGIC = 0x8b1f;
+  private static final int HEADER_SIZE = 10;
+  private static final int TRAILER_SIZE = 8;
+
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  private static final int INITIAL_BUFFER = 64 * 1024;
+  private static final int MAX_POOLED_BUFFER = 4 * 1024 * 1024;
+
+  private final ThreadLocal<Deflater> deflaters;
+  private final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+    @Override
+    protected Inflater initialValue() {
+      return new Inflater(true);
+    }
+  };
+  private final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[INITIAL_BUFFER];
+    }
+  };
+
+  public GzipCodec() {
+    this(Deflater.DEFAULT_COMPRESSION);
+  }
+
+  public GzipCodec(final int level) {
+    this.deflaters = new ThreadLocal<Deflater>() {
+      @Override
+      protected Deflater initialValue() {
+        return new Deflater(level, true);
+      }
+    };
+  }
+
+  @Override
+  public byte[] compress(byte[] bytes, int offset, int length)
+      throws IOException {
+    Deflater deflater = deflaters.get();
+    deflater.reset();
+    deflater.setInput(bytes, offset, length);
+    deflater.finish();
+
+    byte[] buffer = buffers.get();
+    // same header as GZIPOutputStream
+    buffer[0] = (byte) GZIP_MAGIC;
+    buffer[1] = (byte) (GZIP_MAGIC >> 8);
+    buffer[2] = Deflater.DEFLATED;
+    Arrays.fill(buffer, 3, HEADER_SIZE, (byte) 0);
+
+    int pos = HEADER_SIZE;
+    while (!deflater.finished()) {
+      if (pos == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+      pos += deflater.deflate(buffer, pos, buffer.length - pos);
+    }
+
+    if (buffer.length - pos < TRAILER_SIZE) {
+      buffer = Arrays.copyOf(buffer, pos + TRAILER_SIZE);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(bytes, offset, length);
+    writeInt(buffer, pos, (int) crc.getValue());
+    writeInt(buffer, pos + 4, length);
+    pos += TRAILER_SIZE;
+
+    byte[] result = Arrays.copyOf(buffer, pos);
+    release(buffer);
+    return result;
+  }
+
+  @Override
+  public byte[] decompress(byte[] bytes) throws IOException {
+    Inflater inflater = inflaters.get();
+    byte[] buffer = buffers.get();
+    int pos = 0;
+    int in = 0;
+
+    // concatenated members are read one after another, as GZIPInputStream
+    do {
+      in = readHeader(bytes, in);
+      inflater.reset();
+      inflater.setInput(bytes, in, bytes.length - in);
+
+      int start = pos;
+      try {
+        while (!inflater.finished()) {
+          if (pos == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+          }
+          int read = inflater.inflate(buffer, pos, buffer.length - pos);
+          if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            throw new EOFException("Unexpected end of gzip data");
+          }
+          pos += read;
+        }
+      } catch (DataFormatException e) {
+        throw new ZipException(e.getMessage());
+      }
+
+      in = bytes.length - inflater.getRemaining();
+      if (bytes.length - in < TRAILER_SIZE) {
+        throw new EOFException("Unexpected end of gzip trailer");
+      }
+      CRC32 crc = new CRC32();
+      crc.update(buffer, start, pos - start);
+      if (readInt(bytes, in) != (int) crc.getValue()
+          || readInt(bytes, in + 4) != pos - start) {
+        throw new ZipException("Corrupt gzip trailer");
+      }
+      in += TRAILER_SIZE;
+    } while (bytes.length - in >= HEADER_SIZE
+        && (readShort(bytes, in) == GZIP_MAGIC));
+
+    byte[] result = Arrays.copyOf(buffer, pos);
+    release(buffer);
+    return result;
+  }
+
+  private void release(byte[] buffer) {
+    buffers.set(buffer.length > MAX_POOLED_BUFFER ? new byte[INITIAL_BUFFER]
+        : buffer);
+  }
+
+  /*
+   * Returns the position of the deflated data of the member at pos
+   */
+  private int readHeader(byte[] bytes, int pos) throws IOException {
+    if (bytes.length - pos < HEADER_SIZE) {
+      throw new EOFException("Unexpected end of gzip header");
+    }
+    if (readShort(bytes, pos) != GZIP_MAGIC) {
+      throw new ZipException("Not in GZIP format");
+    }
+    if (bytes[pos + 2] != Deflater.DEFLATED) {
+      throw new ZipException("Unsupported compression method");
+    }
+
+    int flags = bytes[pos + 3] & 0xff;
+    pos += HEADER_SIZE;
+    if ((flags & FEXTRA) != 0) {
+      pos += 2 + readShort(bytes, pos);
+    }
+    if ((flags & FNAME) != 0) {
+      while (pos < bytes.length && bytes[pos++] != 0) {
+      }
+    }
+    if ((flags & FCOMMENT) != 0) {
+      while (pos < bytes.length && bytes[pos++] != 0) {
+      }
+    }
+    if ((flags & FHCRC) != 0) {
+      pos += 2;
+    }
+    if (pos > bytes.length) {
+      throw new EOFException("Unexpected end of gzip header");
+    }
+    return pos;
+  }
+
+  private static int readShort(byte[] bytes, int pos) {
+    return (bytes[pos] & 0xff) | ((bytes[pos + 1] & 0xff) << 8);
+  }
+
+  private static int readInt(byte[] bytes, int pos) {
+    return readShort(bytes, pos) | (readShort(bytes, pos + 2) << 16);
+  }
+
+  private static void writeInt(byte[] bytes, int pos, int value) {
+    bytes[pos] = (byte) value;
+    bytes[pos + 1] = (byte) (value >> 8);
+    bytes[pos + 2] = (byte) (value >> 16);
+    bytes[pos + 3] = (byte) (value >> 24);
+  }
+}
@@ -28,13 +28,31 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import org.codehaus.jackson.JsonEncoding;
 import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.JsonParser;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.map.ObjectWriter;
 
+/**
+ * <pre>
+ * json序列化与解析的工具类
+ * Note:
+ * 1. one mapper and its writers are shared by every call. They are
+ *    configured once here and never changed afterwards, which makes them
+ *    safe to use from any thread
+ * 2. the generators of {@link #createJsonGenerator} write through the shared
+ *    mapper, so writeObject works on them for maps and lists
+ * </pre>
+ */
 public class JSONUtils {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final JsonFactory FACTORY = MAPPER.getJsonFactory();
+  private static final ObjectWriter WRITER = MAPPER.writer();
+  private static final ObjectWriter PRETTY_WRITER = MAPPER
+      .writerWithDefaultPrettyPrinter();
 
   /**
    * The constructor. Cannot construct this class.
@@ -47,14 +65,8 @@ public class JSONUtils {
   }
 
   public static String toJSON(Object obj, boolean prettyPrint) {
-    ObjectMapper mapper = new ObjectMapper();
-
     try {
-      if (prettyPrint) {
-        ObjectWriter writer = mapper.writerWithDefaultPrettyPrinter();
-        return writer.writeValueAsString(obj);
-      }
-      return mapper.writeValueAsString(obj);
+      return getWriter(prettyPrint).writeValueAsString(obj);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -65,19 +77,36 @@ public class JSONUtils {
   }
 
   public static void toJSON(Object obj, OutputStream stream, boolean prettyPrint) {
-    ObjectMapper mapper = new ObjectMapper();
     try {
-      if (prettyPrint) {
-        ObjectWriter writer = mapper.writerWithDefaultPrettyPrinter();
-        writer.writeValue(stream, obj);
-        return;
-      }
-      mapper.writeValue(stream, obj);
+      getWriter(prettyPrint).writeValue(stream, obj);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
   }
 
+  private static ObjectWriter getWriter(boolean prettyPrint) {
+    return prettyPrint ? PRETTY_WRITER : WRITER;
+  }
+
+  /**
+   * Creates a UTF-8 generator on the stream, for the callers that write their
+   * json field by field. Closing the generator doesn't close the stream.
+   */
+  public static JsonGenerator createJsonGenerator(OutputStream stream)
+      throws IOException {
+    JsonGenerator generator =
+        FACTORY.createJsonGenerator(stream, JsonEncoding.UTF8);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    return generator;
+  }
+
+  public static JsonGenerator createJsonGenerator(Writer writer)
+      throws IOException {
+    JsonGenerator generator = FACTORY.createJsonGenerator(writer);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    return generator;
+  }
+
   public static void toJSON(Object obj, File file) throws IOException {
     toJSON(obj, file, false);
   }
@@ -103,28 +132,41 @@ public class JSONUtils {
   }
 
   public static Object parseJSONFromString(String json) throws IOException {
-    ObjectMapper mapper = new ObjectMapper();
-    JsonFactory factory = new JsonFactory();
-    JsonParser parser = factory.createJsonParser(json);
-    JsonNode node = mapper.readTree(parser);
+    JsonParser parser = FACTORY.createJsonParser(json);
+    JsonNode node;
+    try {
+      node = MAPPER.readTree(parser);
+    } finally {
+      parser.close();
+    }
 
     return toObjectFromJSONNode(node);
   }
 
+  /**
+   * Binds the json to a bean of the given class.
+   */
+  public static <T> T parseJSONFromString(String json, Class<T> clazz)
+      throws IOException {
+    return MAPPER.readValue(json, clazz);
+  }
+
   public static Object parseJSONFromFile(File file) throws IOException {
-    ObjectMapper mapper = new ObjectMapper();
-    JsonFactory factory = new JsonFactory();
-    JsonParser parser = factory.createJsonParser(file);
-    JsonNode node = mapper.readTree(parser);
+    JsonParser parser = FACTORY.createJsonParser(file);
+    JsonNode node;
+    try {
+      node = MAPPER.readTree(parser);
+    } finally {
+      parser.close();
+    }
 
     return toObjectFromJSONNode(node);
   }
 
   public static Object parseJSONFromReader(Reader reader) throws IOException {
-    ObjectMapper mapper = new ObjectMapper();
-    JsonFactory factory = new JsonFactory();
-    JsonParser parser = factory.createJsonParser(reader);
-    JsonNode node = mapper.readTree(parser);
+    // the reader belongs to the caller, it is left open
+    JsonParser parser = FACTORY.createJsonParser(reader);
+    JsonNode node = MAPPER.readTree(parser);
 
     return toObjectFromJSONNode(node);
   }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定区间的延迟直方图，线程安全
+ * A latency histogram over fixed millisecond buckets, cheap enough to be
+ * recorded on every event and read over JMX.
+ */
+public class LatencyHistogram {
+  private static final long[] DEFAULT_BOUNDS_MS = { 10, 50, 100, 500, 1000,
+      5000, 10000, 60000 };
+
+  private final long[] bounds;
+  // the last bucket counts everything above the largest bound
+  private final AtomicLongArray counts;
+
+  public LatencyHistogram() {
+    this(DEFAULT_BOUNDS_MS);
+  }
+
+  /**
+   * @param bounds the ascending upper bounds of the buckets, in millisecs
+   */
+  public LatencyHistogram(long[] bounds) {
+    this.bounds = bounds.clone();
+    this.counts = new AtomicLongArray(bounds.length + 1);
+  }
+
+  public void record(long latencyMs) {
+    int i = 0;
+    while (i < bounds.length && latencyMs > bounds[i]) {
+      i++;
+    }
+    counts.incrementAndGet(i);
+  }
+
+  public long getCount() {
+    long total = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      total += counts.get(i);
+    }
+    return total;
+  }
+
+  /**
+   * Returns the counts keyed on the bucket, e.g. "<=100ms" or ">60000ms".
+   */
+  public Map<String, Long> toMap() {
+    Map<String, Long> map = new LinkedHashMap<String, Long>();
+    for (int i = 0; i < bounds.length; i++) {
+      map.put("<=" + bounds[i] + "ms", counts.get(i));
+    }
+    map.put(">" + bounds[bounds.length - 1] + "ms", counts.get(bounds.length));
+    return map;
+  }
+
+  @Override
+  public String toString() {
+    return toMap().toString();
+  }
+}
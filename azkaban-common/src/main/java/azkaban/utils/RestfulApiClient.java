@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.http.HttpEntity;
@@ -28,6 +29,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.ParseException;
 import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
@@ -135,9 +137,28 @@ public abstract class RestfulApiClient<T> {
     return this.sendAndReturn(completeRequest(put, headerEntries, postingBody));
   }
 
+  /** function to return the client shared by all the requests.
+   *  Note: the default implementation returns null, in which case each
+   *        request creates and closes its own client.
+   * */
+  protected CloseableHttpClient getSharedClient(){
+    return null;
+  }
+
   /** function to dispatch the request and pass back the response.
    * */
   protected T sendAndReturn(HttpUriRequest request) throws IOException{
+    CloseableHttpClient sharedClient = this.getSharedClient();
+    if (null != sharedClient){
+      // closing the response hands the connection back to the shared client.
+      CloseableHttpResponse response = sharedClient.execute(request);
+      try {
+        return this.parseResponse(response);
+      }finally{
+        response.close();
+      }
+    }
+
     CloseableHttpClient client = HttpClients.createDefault();
     try {
       return this.parseResponse(client.execute(request));
@@ -157,6 +178,21 @@ public abstract class RestfulApiClient<T> {
    * */
   public static URI buildUri(String host, int port, String path,
       boolean isHttp, Pair<String, String>... params) throws IOException{
+    return buildUri(host, port, path, isHttp,
+        params == null ? null : Arrays.asList(params));
+  }
+
+  /** helper function to build a valid URI.
+   *  @param host   host name.
+   *  @param port   host port.
+   *  @param path   extra path after host.
+   *  @param isHttp indicates if whether Http or HTTPS should be used.
+   *  @param params extra query parameters, optional.
+   *  @return the URI built from the inputs.
+   *  @throws IOException
+   * */
+  public static URI buildUri(String host, int port, String path,
+      boolean isHttp, List<Pair<String, String>> params) throws IOException{
     URIBuilder builder = new URIBuilder();
     builder.setScheme(isHttp? "http" : "https").setHost(host).setPort(port);
 
@@ -232,7 +268,6 @@ public abstract class RestfulApiClient<T> {
       // dump the post body UTF-8 will be used as the default encoding type.
       if (null != postingBody && postingBody.length() > 0){
         HttpEntity entity = new ByteArrayEntity(postingBody.getBytes("UTF-8"));
-        request.setHeader("Content-Length",  Long.toString(entity.getContentLength()));
         request.setEntity(entity);
       }
     }
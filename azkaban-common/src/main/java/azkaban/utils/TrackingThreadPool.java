@@ -20,6 +20,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -55,7 +57,20 @@ public class TrackingThreadPool extends ThreadPoolExecutor {
   public TrackingThreadPool(int corePoolSize, int maximumPoolSize,
       long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue,
       ThreadPoolExecutingListener listener) {
-    super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+    this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+        listener, null);
+  }
+
+  /**
+   * @param threadFactory the factory of the pool threads, null for the
+   *          default one
+   */
+  public TrackingThreadPool(int corePoolSize, int maximumPoolSize,
+      long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue,
+      ThreadPoolExecutingListener listener, ThreadFactory threadFactory) {
+    super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+        threadFactory != null ? threadFactory : Executors
+            .defaultThreadFactory());
     if (listener != null) {
       executingListener = listener;
     }
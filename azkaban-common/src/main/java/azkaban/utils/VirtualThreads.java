@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package azkaban.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <pre>
+ * 虚拟线程的开关，开启后任务流、作业和日志读取线程都运行在虚拟线程上，
+ * 大量阻塞在子进程和IO上的线程只占用少量的载体线程
+ * Note:
+ * 1. the code is compiled for java 8, so Thread.ofVirtual() is looked up
+ *    by reflection. On a runtime without virtual threads enabling fails and
+ *    platform threads are used
+ * 2. the carrier pool is sized through the jdk.virtualThreadScheduler
+ *    system properties, which the jdk reads once, when the first virtual
+ *    thread is created. Enable before anything else starts one
+ * 3. up to java 23 a virtual thread blocked in a synchronized block or in
+ *    Object.wait pins its carrier, and the scheduler adds carriers up to the
+ *    max pool size to make up for it
+ * </pre>
+ */
+public class VirtualThreads {
+  private static final Logger logger = Logger.getLogger(VirtualThreads.class);
+
+  private static final String CARRIER_PARALLELISM_PROPERTY =
+      "jdk.virtualThreadScheduler.parallelism";
+  private static final String CARRIER_MAX_POOL_SIZE_PROPERTY =
+      "jdk.virtualThreadScheduler.maxPoolSize";
+
+  private static volatile boolean enabled = false;
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * Turns virtual threads on for the thread factories made afterwards.
+   *
+   * @param carrierParallelism the number of carriers, 0 for the jdk default
+   * @param carrierMaxPoolSize the max number of carriers, counting the ones
+   *          added for pinned threads, 0 for the jdk default
+   * @return false if the runtime doesn't have virtual threads
+   */
+  public static synchronized boolean enable(int carrierParallelism,
+      int carrierMaxPoolSize) {
+    if (enabled) {
+      return true;
+    }
+
+    try {
+      Thread.class.getMethod("ofVirtual");
+    } catch (NoSuchMethodException e) {
+      logger.warn("Virtual threads need java 21 or later, running on "
+          + System.getProperty("java.version") + ". Using platform threads.");
+      return false;
+    }
+
+    setIfAbsent(CARRIER_PARALLELISM_PROPERTY, carrierParallelism);
+    setIfAbsent(CARRIER_MAX_POOL_SIZE_PROPERTY, carrierMaxPoolSize);
+    enabled = true;
+    logger.info("Virtual threads enabled, carrier parallelism "
+        + System.getProperty(CARRIER_PARALLELISM_PROPERTY, "default")
+        + ", max pool size "
+        + System.getProperty(CARRIER_MAX_POOL_SIZE_PROPERTY, "default"));
+    return true;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns a factory of virtual threads named prefix0, prefix1, ... if
+   * virtual threads are enabled, else null.
+   */
+  public static ThreadFactory newThreadFactory(String namePrefix) {
+    if (!enabled) {
+      return null;
+    }
+
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass =
+          Class.forName("java.lang.Thread$Builder$OfVirtual");
+      builderClass.getMethod("name", String.class, long.class).invoke(
+          builder, namePrefix, 0L);
+      Method factory = builderClass.getMethod("factory");
+      return (ThreadFactory) factory.invoke(builder);
+    } catch (Exception e) {
+      throw new IllegalStateException("Failed to create virtual thread factory",
+          e);
+    }
+  }
+
+  private static void setIfAbsent(String property, int value) {
+    if (value > 0 && System.getProperty(property) == null) {
+      System.setProperty(property, String.valueOf(value));
+    }
+  }
+}
@@ -44,10 +44,14 @@ import azkaban.execapp.event.JobCallbackManager;
 import azkaban.execapp.jmx.JmxFlowRunnerManager;
 import azkaban.execapp.jmx.JmxJobMBeanManager;
 import azkaban.execapp.metric.NumFailedFlowMetric;
+import azkaban.execapp.metric.JobQueueWaitMetric;
 import azkaban.execapp.metric.NumFailedJobMetric;
+import azkaban.execapp.metric.NumPendingUpdateMetric;
 import azkaban.execapp.metric.NumQueuedFlowMetric;
+import azkaban.execapp.metric.NumQueuedJobMetric;
 import azkaban.execapp.metric.NumRunningFlowMetric;
 import azkaban.execapp.metric.NumRunningJobMetric;
+import azkaban.execapp.metric.UpdateFlushLatencyMetric;
 import azkaban.executor.ExecutorLoader;
 import azkaban.executor.JdbcExecutorLoader;
 import azkaban.jmx.JmxJettyServer;
@@ -144,6 +148,7 @@ public class AzkabanExecutorServer {
     runnerManager =
         new FlowRunnerManager(props, executionLoader, projectLoader, this
             .getClass().getClassLoader());
+    runnerManager.setupFlowWatchRelay(getExecutorHostPort());
 
     JmxJobMBeanManager.getInstance().initialize(props);
 
@@ -221,6 +226,34 @@ public class AzkabanExecutorServer {
               + NumQueuedFlowMetric.NUM_QUEUED_FLOW_METRIC_NAME,
               props.getInt(METRIC_INTERVAL + "default"))));
 
+      JobScheduler jobScheduler = runnerManager.getJobScheduler();
+      logger.info("Adding number of queued jobs metric");
+      metricManager.addMetric(new NumQueuedJobMetric(jobScheduler,
+          metricManager, props.getInt(METRIC_INTERVAL
+              + NumQueuedJobMetric.NUM_QUEUED_JOB_METRIC_NAME,
+              props.getInt(METRIC_INTERVAL + "default"))));
+
+      logger.info("Adding job queue wait time metric");
+      metricManager.addMetric(new JobQueueWaitMetric(jobScheduler,
+          metricManager, props.getInt(METRIC_INTERVAL
+              + JobQueueWaitMetric.JOB_QUEUE_WAIT_METRIC_NAME,
+              props.getInt(METRIC_INTERVAL + "default"))));
+
+      CoalescingUpdateWriter updateWriter = runnerManager.getUpdateWriter();
+      if (updateWriter != null) {
+        logger.info("Adding number of pending db updates metric");
+        metricManager.addMetric(new NumPendingUpdateMetric(updateWriter,
+            metricManager, props.getInt(METRIC_INTERVAL
+                + NumPendingUpdateMetric.NUM_PENDING_UPDATE_METRIC_NAME,
+                props.getInt(METRIC_INTERVAL + "default"))));
+
+        logger.info("Adding db update flush latency metric");
+        metricManager.addMetric(new UpdateFlushLatencyMetric(updateWriter,
+            metricManager, props.getInt(METRIC_INTERVAL
+                + UpdateFlushLatencyMetric.UPDATE_FLUSH_LATENCY_METRIC_NAME,
+                props.getInt(METRIC_INTERVAL + "default"))));
+      }
+
       logger.info("Completed configuring Metric Reports");
     }
 
@@ -349,6 +382,13 @@ public class AzkabanExecutorServer {
         } catch (Exception e) {
           logger.error("Error while shutting down http server.", e);
         }
+
+        logger.info("Shutting down flow runner manager...");
+        try {
+          app.getFlowRunnerManager().shutdown();
+        } catch (Exception e) {
+          logger.error("Error while shutting down flow runner manager.", e);
+        }
         logger.info("kk thx bye.");
       }
 
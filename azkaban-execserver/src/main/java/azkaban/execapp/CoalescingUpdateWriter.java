@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <pre>
+ * 任务流和任务状态写入数据库的后写缓冲，
+ * 同一个key在一个时间窗口内的多次写入只执行最后一次
+ * Write-behind stage for the db updates of the flow and job runners.
+ * Note:
+ * 1. writes are keyed, a pending write is replaced by a later one with the
+ *    same key, so a burst of updates of one execution becomes a single write
+ * 2. the writes serialize the live state of the runner when they run, and
+ *    must synchronize on the runner themselves
+ * 3. immediate writes, e.g. for terminal states, run in the calling thread
+ *    and discard the pending write with the same key
+ * </pre>
+ */
+public class CoalescingUpdateWriter extends Thread {
+  private static final Logger logger = Logger
+      .getLogger(CoalescingUpdateWriter.class);
+
+  private final long windowMs;
+  private final Map<String, Runnable> pendingWrites =
+      new LinkedHashMap<String, Runnable>();
+
+  private volatile long lastFlushLatency = 0;
+  private final AtomicLong maxFlushLatency = new AtomicLong(0);
+  private volatile boolean shutdown = false;
+
+  public CoalescingUpdateWriter(long windowMs) {
+    this.windowMs = windowMs;
+    this.setName("CoalescingUpdateWriter");
+    this.setDaemon(true);
+  }
+
+  /**
+   * Queue the write, or run it right away if immediately is set.
+   */
+  public void write(String key, Runnable writer, boolean immediately) {
+    if (immediately) {
+      synchronized (pendingWrites) {
+        pendingWrites.remove(key);
+      }
+      writer.run();
+    } else {
+      synchronized (pendingWrites) {
+        pendingWrites.put(key, writer);
+      }
+    }
+  }
+
+  public int getNumPendingWrites() {
+    synchronized (pendingWrites) {
+      return pendingWrites.size();
+    }
+  }
+
+  public long getLastFlushLatency() {
+    return lastFlushLatency;
+  }
+
+  /**
+   * Returns the longest flush since the last call, and resets it.
+   */
+  public long getAndResetMaxFlushLatency() {
+    return maxFlushLatency.getAndSet(0);
+  }
+
+  public void shutdown() {
+    shutdown = true;
+    this.interrupt();
+  }
+
+  @Override
+  public void run() {
+    while (!shutdown) {
+      synchronized (this) {
+        try {
+          this.wait(windowMs);
+        } catch (InterruptedException e) {
+          logger.info("Interrupted. Probably to shut down.");
+        }
+      }
+
+      flush();
+    }
+
+    // Don't lose the pending writes on the way out.
+    flush();
+  }
+
+  private void flush() {
+    List<Runnable> writes;
+    synchronized (pendingWrites) {
+      if (pendingWrites.isEmpty()) {
+        return;
+      }
+      writes = new ArrayList<Runnable>(pendingWrites.values());
+      pendingWrites.clear();
+    }
+
+    long startTime = System.currentTimeMillis();
+    for (Runnable writer : writes) {
+      try {
+        writer.run();
+      } catch (Throwable t) {
+        logger.error("Error flushing update", t);
+      }
+    }
+
+    lastFlushLatency = System.currentTimeMillis() - startTime;
+    long max;
+    do {
+      max = maxFlushLatency.get();
+    } while (lastFlushLatency > max
+        && !maxFlushLatency.compareAndSet(max, lastFlushLatency));
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.JsonGenerator;
+
+import azkaban.event.Event;
+import azkaban.event.Event.Type;
+import azkaban.event.EventListener;
+import azkaban.executor.ConnectorParams;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutorApiClient;
+import azkaban.executor.Status;
+import azkaban.utils.JSONUtils;
+
+/**
+ * <pre>
+ * 将任务流的状态变化批量推送给web服务器，
+ * 使web服务器不必频繁轮询执行服务器
+ * Listens to the events of the flow runners and pushes the changed executions
+ * to the web server in batches. The web server keeps polling, but only as a
+ * slow reconciliation of the updates lost on the way.
+ * </pre>
+ */
+public class ExecutionUpdatePusher extends Thread implements EventListener {
+  private static final Logger logger = Logger
+      .getLogger(ExecutionUpdatePusher.class);
+
+  private final URI pushUri;
+  private final long pushIntervalMs;
+
+  /** 等待推送的任务流 */
+  private final Map<Integer, ExecutableFlow> changedFlows =
+      new ConcurrentHashMap<Integer, ExecutableFlow>();
+  /** 每个任务流上一次成功推送时的更新时间 */
+  private final Map<Integer, Long> lastPushedTimes =
+      new HashMap<Integer, Long>();
+
+  private volatile boolean shutdown = false;
+
+  public ExecutionUpdatePusher(URI pushUri, long pushIntervalMs) {
+    this.pushUri = pushUri;
+    this.pushIntervalMs = pushIntervalMs;
+    this.setName("ExecutionUpdatePusher");
+    this.setDaemon(true);
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    ExecutableFlow flow = null;
+    if (event.getRunner() instanceof FlowRunner) {
+      flow = ((FlowRunner) event.getRunner()).getExecutableFlow();
+    } else if (event.getRunner() instanceof JobRunner) {
+      flow = ((JobRunner) event.getRunner()).getNode().getExecutableFlow();
+    }
+
+    if (flow == null) {
+      return;
+    }
+
+    changedFlows.put(flow.getExecutionId(), flow);
+    // Finishing flows are pushed right away, the rest wait for the batch.
+    if (event.getType() == Type.FLOW_FINISHED) {
+      synchronized (this) {
+        this.notify();
+      }
+    }
+  }
+
+  public void shutdown() {
+    shutdown = true;
+    this.interrupt();
+  }
+
+  @Override
+  public void run() {
+    while (!shutdown) {
+      // Updates coalesce during the window, finishing flows cut it short.
+      synchronized (this) {
+        try {
+          this.wait(pushIntervalMs);
+        } catch (InterruptedException e) {
+          logger.info("Interrupted. Probably to shut down.");
+        }
+      }
+
+      try {
+        pushChangedFlows();
+      } catch (Exception e) {
+        logger.error("Failed to push execution updates", e);
+      }
+    }
+
+    // Don't lose the changed flows on the way out.
+    try {
+      pushChangedFlows();
+    } catch (Exception e) {
+      logger.error("Failed to push execution updates", e);
+    }
+  }
+
+  private void pushChangedFlows() {
+    if (changedFlows.isEmpty()) {
+      return;
+    }
+
+    List<ExecutableFlow> flows = new ArrayList<ExecutableFlow>();
+    for (Integer execId : new ArrayList<Integer>(changedFlows.keySet())) {
+      ExecutableFlow flow = changedFlows.remove(execId);
+      if (flow != null) {
+        flows.add(flow);
+      }
+    }
+
+    List<Long> pushedTimes = new ArrayList<Long>();
+    StringWriter body = new StringWriter();
+    try {
+      JsonGenerator generator = JSONUtils.createJsonGenerator(body);
+      generator.writeStartObject();
+      generator.writeArrayFieldStart(ConnectorParams.RESPONSE_UPDATED_FLOWS);
+      for (ExecutableFlow flow : flows) {
+        Long lastPushedTime = lastPushedTimes.get(flow.getExecutionId());
+        // Take the update time before building the update, so that changes
+        // made while building are sent again in the next batch.
+        pushedTimes.add(flow.getUpdateTime());
+        flow.writeUpdateJson(generator, lastPushedTime == null ? 0
+            : lastPushedTime);
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+      generator.close();
+    } catch (IOException e) {
+      // a StringWriter doesn't fail
+      throw new IllegalStateException(e);
+    }
+
+    Set<Integer> rejected = new HashSet<Integer>();
+    try {
+      String response =
+          ExecutorApiClient.getInstance().httpPost(pushUri, null,
+              body.toString());
+      @SuppressWarnings("unchecked")
+      Map<String, Object> responseMap =
+          (Map<String, Object>) JSONUtils.parseJSONFromString(response);
+      if (responseMap.containsKey(ConnectorParams.RESPONSE_ERROR)) {
+        throw new Exception((String) responseMap
+            .get(ConnectorParams.RESPONSE_ERROR));
+      }
+      @SuppressWarnings("unchecked")
+      List<Object> rejectedIds =
+          (List<Object>) responseMap
+              .get(ConnectorParams.RESPONSE_REJECTED_FLOWS);
+      if (rejectedIds != null) {
+        for (Object execId : rejectedIds) {
+          rejected.add(((Number) execId).intValue());
+        }
+      }
+    } catch (Exception e) {
+      logger.error("Failed to push " + flows.size() + " execution updates to "
+          + pushUri + ". Will retry.", e);
+      for (ExecutableFlow flow : flows) {
+        changedFlows.putIfAbsent(flow.getExecutionId(), flow);
+      }
+      return;
+    }
+
+    if (!rejected.isEmpty()) {
+      // not running here as far as the web server knows, it polls them
+      logger.warn("The web server rejected the updates of executions "
+          + rejected + ", dropping them.");
+    }
+    for (int i = 0; i < flows.size(); i++) {
+      ExecutableFlow flow = flows.get(i);
+      if (rejected.contains(flow.getExecutionId())
+          || Status.isStatusFinished(flow.getStatus())) {
+        lastPushedTimes.remove(flow.getExecutionId());
+      } else {
+        lastPushedTimes.put(flow.getExecutionId(), pushedTimes.get(i));
+      }
+    }
+  }
+}
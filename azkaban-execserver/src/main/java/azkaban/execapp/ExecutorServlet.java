@@ -31,11 +31,13 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.log4j.Logger;
 
-import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.JsonGenerator;
+import org.mortbay.jetty.HttpConnection;
 
 import azkaban.executor.ConnectorParams;
 import azkaban.executor.ExecutableFlowBase;
 import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.Status;
 import azkaban.server.ServerConstants;
 import azkaban.utils.FileIOUtils.JobMetaData;
 import azkaban.utils.FileIOUtils.LogData;
@@ -71,9 +73,10 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
   protected void writeJSON(HttpServletResponse resp, Object obj)
       throws IOException {
     resp.setContentType(JSON_MIME_TYPE);
-    ObjectMapper mapper = new ObjectMapper();
     OutputStream stream = resp.getOutputStream();
-    mapper.writeValue(stream, obj);
+    JsonGenerator generator = JSONUtils.createJsonGenerator(stream);
+    generator.writeObject(obj);
+    generator.close();
   }
 
   @Override
@@ -89,12 +92,22 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
         String action = getParam(req, ACTION_PARAM);
         if (action.equals(UPDATE_ACTION)) {
           // logger.info("Updated called");
-          handleAjaxUpdateRequest(req, respMap);
+          handleAjaxUpdateRequest(req, resp);
+          // the updates are streamed as the response
+          respMap = null;
+        } else if (action.equals(EXECUTE_BATCH_ACTION)) {
+          handleAjaxExecuteBatch(req, respMap);
         } else if (action.equals(PING_ACTION)) {
           respMap.put("status", "alive");
         } else if (action.equals(RELOAD_JOBTYPE_PLUGINS_ACTION)) {
           logger.info("Reloading Jobtype plugins");
           handleReloadJobTypePlugins(respMap);
+        } else if (action.equals(PREWARM_PROJECT_ACTION)) {
+          handleAjaxPrewarmProject(req, respMap);
+        } else if (action.equals(WATCH_ACTION)) {
+          handleAjaxWatch(req, respMap);
+        } else if (action.equals(WATCHED_STATUS_ACTION)) {
+          handleAjaxWatchedStatus(req, respMap);
         } else {
           int execid = Integer.parseInt(getParam(req, EXECID_PARAM));
           String user = getParam(req, USER_PARAM, null);
@@ -103,6 +116,11 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
               + execid);
           if (action.equals(METADATA_ACTION)) {
             handleFetchMetaDataEvent(execid, req, resp, respMap);
+          } else if (action.equals(LOG_ACTION)
+              && hasParam(req, LOG_STREAM_PARAM)) {
+            handleStreamLogEvent(execid, req, resp);
+            // the log is the response
+            respMap = null;
           } else if (action.equals(LOG_ACTION)) {
             handleFetchLogEvent(execid, req, resp, respMap);
           } else if (action.equals(ATTACHMENTS_ACTION)) {
@@ -131,12 +149,40 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
       }
     } catch (Exception e) {
       logger.error(e);
+      if (resp.isCommitted()) {
+        // a part of a streamed response is sent, an error can't follow it
+        abortResponse();
+        return;
+      }
+      // drop the part of a streamed response that is still buffered
+      resp.resetBuffer();
+      if (respMap == null) {
+        respMap = new HashMap<String, Object>();
+      }
       respMap.put(RESPONSE_ERROR, e.getMessage());
     }
-    writeJSON(resp, respMap);
+    if (respMap != null) {
+      writeJSON(resp, respMap);
+    }
     resp.flushBuffer();
   }
 
+  /**
+   * Closes the connection of a response that failed after a part of it was
+   * sent, so that the client sees it broken rather than complete.
+   */
+  private void abortResponse() {
+    HttpConnection connection = HttpConnection.getCurrentConnection();
+    if (connection == null) {
+      return;
+    }
+    try {
+      connection.getEndPoint().close();
+    } catch (IOException e) {
+      logger.error("Failed to abort the response", e);
+    }
+  }
+
   private void handleModifyExecutionRequest(Map<String, Object> respMap,
       int execId, String user, HttpServletRequest req) throws ServletException {
     if (!hasParam(req, MODIFY_EXECUTION_ACTION_TYPE)) {
@@ -188,6 +234,33 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
     }
   }
 
+  /**
+   * 以纯文本直接返回日志，不经过json，由web服务器转发给浏览器
+   */
+  private void handleStreamLogEvent(int execId, HttpServletRequest req,
+      HttpServletResponse resp) throws ServletException, IOException {
+    String type = getParam(req, "type");
+    int startByte = getIntParam(req, "offset");
+    int length = getIntParam(req, "length", -1);
+    String jobId = type.equals("flow") ? null : getParam(req, "jobId");
+    int attempt = getIntParam(req, "attempt", 0);
+
+    resp.setContentType("text/plain");
+    resp.setCharacterEncoding("utf-8");
+    try {
+      flowRunnerManager.streamLogs(execId, jobId, attempt, startByte, length,
+          resp.getOutputStream());
+    } catch (ExecutorManagerException e) {
+      logger.error(e);
+      if (resp.isCommitted()) {
+        abortResponse();
+      } else {
+        resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+            e.getMessage());
+      }
+    }
+  }
+
   private void handleFetchAttachmentsEvent(int execId, HttpServletRequest req,
       HttpServletResponse resp, Map<String, Object> respMap)
       throws ServletException {
@@ -226,9 +299,13 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
     }
   }
 
+  /**
+   * Writes the updates of the flows straight to the response, without
+   * building a map for each of their nodes first.
+   */
   @SuppressWarnings("unchecked")
   private void handleAjaxUpdateRequest(HttpServletRequest req,
-      Map<String, Object> respMap) throws ServletException, IOException {
+      HttpServletResponse resp) throws ServletException, IOException {
     ArrayList<Object> updateTimesList =
         (ArrayList<Object>) JSONUtils.parseJSONFromString(getParam(req,
             UPDATE_TIME_LIST_PARAM));
@@ -236,26 +313,31 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
         (ArrayList<Object>) JSONUtils.parseJSONFromString(getParam(req,
             EXEC_ID_LIST_PARAM));
 
-    ArrayList<Object> updateList = new ArrayList<Object>();
+    resp.setContentType(JSON_MIME_TYPE);
+    JsonGenerator generator =
+        JSONUtils.createJsonGenerator(resp.getOutputStream());
+    generator.writeStartObject();
+    generator.writeArrayFieldStart(RESPONSE_UPDATED_FLOWS);
     for (int i = 0; i < execIDList.size(); ++i) {
       long updateTime = JSONUtils.getLongFromObject(updateTimesList.get(i));
       int execId = (Integer) execIDList.get(i);
 
       ExecutableFlowBase flow = flowRunnerManager.getExecutableFlow(execId);
       if (flow == null) {
-        Map<String, Object> errorResponse = new HashMap<String, Object>();
-        errorResponse.put(RESPONSE_ERROR, "Flow does not exist");
-        errorResponse.put(UPDATE_MAP_EXEC_ID, execId);
-        updateList.add(errorResponse);
+        generator.writeStartObject();
+        generator.writeStringField(RESPONSE_ERROR, "Flow does not exist");
+        generator.writeNumberField(UPDATE_MAP_EXEC_ID, execId);
+        generator.writeEndObject();
         continue;
       }
 
       if (flow.getUpdateTime() > updateTime) {
-        updateList.add(flow.toUpdateObject(updateTime));
+        flow.writeUpdateJson(generator, updateTime);
       }
     }
-
-    respMap.put(RESPONSE_UPDATED_FLOWS, updateList);
+    generator.writeEndArray();
+    generator.writeEndObject();
+    generator.close();
   }
 
   private void handleAjaxExecute(HttpServletRequest req,
@@ -269,6 +351,71 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private void handleAjaxExecuteBatch(HttpServletRequest req,
+      Map<String, Object> respMap) throws ServletException, IOException {
+    ArrayList<Object> execIDList =
+        (ArrayList<Object>) JSONUtils.parseJSONFromString(getParam(req,
+            EXEC_ID_LIST_PARAM));
+
+    // The flows are accepted one by one, only the failed ones are reported.
+    Map<String, Object> failedFlows = new HashMap<String, Object>();
+    for (Object id : execIDList) {
+      int execId = (Integer) id;
+      try {
+        flowRunnerManager.submitFlow(execId);
+      } catch (ExecutorManagerException e) {
+        logger.error("Failed to submit exec " + execId, e);
+        failedFlows.put(String.valueOf(execId), e.getMessage());
+      }
+    }
+
+    logger.info("Batch of " + execIDList.size() + " flows submitted, "
+        + failedFlows.size() + " failed.");
+    respMap.put(RESPONSE_FAILED_FLOWS, failedFlows);
+  }
+
+  private void handleAjaxPrewarmProject(HttpServletRequest req,
+      Map<String, Object> respMap) throws ServletException {
+    int projectId = getIntParam(req, PROJECT_ID_PARAM);
+    int version = getIntParam(req, PROJECT_VERSION_PARAM);
+    // the files are set up in the background, the caller doesn't wait
+    flowRunnerManager.prewarmProjectVersion(projectId, version);
+    respMap.put(STATUS_PARAM, RESPONSE_SUCCESS);
+  }
+
+  private void handleAjaxWatch(HttpServletRequest req,
+      Map<String, Object> respMap) throws ServletException {
+    int execId = getIntParam(req, EXECID_PARAM);
+    String watcher = getParam(req, WATCHER_PARAM);
+    try {
+      flowRunnerManager.watchFlow(execId, watcher);
+      respMap.put(STATUS_PARAM, RESPONSE_SUCCESS);
+    } catch (ExecutorManagerException e) {
+      // the watcher polls the db instead
+      respMap.put(RESPONSE_ERROR, e.getMessage());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void handleAjaxWatchedStatus(HttpServletRequest req,
+      Map<String, Object> respMap) throws ServletException, IOException {
+    int execId = getIntParam(req, EXECID_PARAM);
+    Map<String, Object> nodes =
+        (Map<String, Object>) JSONUtils.parseJSONFromString(getParam(req,
+            NODES_PARAM));
+    Map<String, Status> jobStatuses = new HashMap<String, Status>();
+    for (Map.Entry<String, Object> entry : nodes.entrySet()) {
+      jobStatuses.put(entry.getKey(), Status.valueOf((String) entry.getValue()));
+    }
+    Status flowStatus =
+        hasParam(req, STATUS_PARAM) ? Status.valueOf(getParam(req,
+            STATUS_PARAM)) : null;
+
+    flowRunnerManager.deliverWatchedStatuses(execId, jobStatuses, flowStatus);
+    respMap.put(STATUS_PARAM, RESPONSE_SUCCESS);
+  }
+
   private void handleAjaxFlowStatus(Map<String, Object> respMap, int execid) {
     ExecutableFlowBase flow = flowRunnerManager.getExecutableFlow(execid);
     if (flow == null) {
@@ -341,7 +488,8 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
   @Override
   public void doPost(HttpServletRequest req, HttpServletResponse resp)
       throws ServletException, IOException {
-
+    // the relayed job statuses come as a form, too big for a query
+    doGet(req, resp);
   }
 
   /**
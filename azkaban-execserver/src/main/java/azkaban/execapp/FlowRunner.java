@@ -74,6 +74,7 @@ public class FlowRunner extends EventHandler implements Runnable {
   // We check update every 5 minutes, just in case things get stuck. But for the
   // most part, we'll be idling.
   private static final long CHECK_WAIT_MS = 5 * 60 * 1000;
+  private static final long DELTA_OVERLAP_MS = 1000;
 
   private Logger logger;
   private Layout loggerLayout = DEFAULT_LAYOUT;
@@ -127,6 +128,23 @@ public class FlowRunner extends EventHandler implements Runnable {
   // The following is state that will trigger a retry of all failed jobs
   private boolean retryFailedJobs = false;
 
+  // Delta persistence appends the changed nodes instead of rewriting the flow,
+  // and writes the whole flow every deltaCompactionThreshold updates.
+  private boolean deltaPersistence = false;
+  private int deltaCompactionThreshold = 50;
+  private int numAppendedUpdates = 0;
+  private long lastPersistedTime = -1;
+
+  // Write-behind stage for the db updates, null to write synchronously.
+  private CoalescingUpdateWriter updateWriter = null;
+  private LogShipper logShipper = null;
+  private final Runnable persistFlowTask = new Runnable() {
+    @Override
+    public void run() {
+      persistFlow();
+    }
+  };
+
   /**
    * Constructor. This will create its own ExecutorService for thread pools
    *
@@ -194,6 +212,23 @@ public class FlowRunner extends EventHandler implements Runnable {
     return this;
   }
 
+  public FlowRunner setUpdateWriter(CoalescingUpdateWriter updateWriter) {
+    this.updateWriter = updateWriter;
+    return this;
+  }
+
+  public FlowRunner setLogShipper(LogShipper logShipper) {
+    this.logShipper = logShipper;
+    return this;
+  }
+
+  public FlowRunner setDeltaPersistence(boolean deltaPersistence,
+      int deltaCompactionThreshold) {
+    this.deltaPersistence = deltaPersistence;
+    this.deltaCompactionThreshold = deltaCompactionThreshold;
+    return this;
+  }
+
   public File getExecutionDir() {
     return execDir;
   }
@@ -307,9 +342,30 @@ public class FlowRunner extends EventHandler implements Runnable {
      * @param time
      */
   private synchronized void updateFlow(long time) {
+    flow.setUpdateTime(time);
+    if (updateWriter == null) {
+      persistFlow();
+    } else {
+      updateWriter.write(String.valueOf(execId), persistFlowTask,
+          Status.isStatusFinished(flow.getStatus()));
+    }
+  }
+
+  private synchronized void persistFlow() {
     try {
-      flow.setUpdateTime(time);
-      executorLoader.updateExecutableFlow(flow);
+      if (deltaPersistence && lastPersistedTime >= 0
+          && numAppendedUpdates < deltaCompactionThreshold
+          && !Status.isStatusFinished(flow.getStatus())) {
+        // Job runners stamp their nodes before the event reaches us, so look
+        // back a little to not miss a node stamped during the previous write.
+        executorLoader.appendExecutableFlowUpdate(flow, lastPersistedTime
+            - DELTA_OVERLAP_MS);
+        numAppendedUpdates++;
+      } else {
+        executorLoader.updateExecutableFlow(flow);
+        numAppendedUpdates = 0;
+      }
+      lastPersistedTime = flow.getUpdateTime();
     } catch (ExecutorManagerException e) {
       logger.error("Error updating flow.", e);
     }
@@ -333,6 +389,9 @@ public class FlowRunner extends EventHandler implements Runnable {
     try {
       flowAppender = new FileAppender(loggerLayout, absolutePath, false);
       logger.addAppender(flowAppender);
+      if (logShipper != null) {
+        logShipper.addLog(execId, "", 0, logFile);
+      }
     } catch (IOException e) {
       logger.error("Could not open log file in " + execDir, e);
     }
@@ -344,7 +403,9 @@ public class FlowRunner extends EventHandler implements Runnable {
       flowAppender.close();
 
       try {
-        executorLoader.uploadLogFile(execId, "", 0, logFile);
+        if (logShipper == null || !logShipper.finishLog(execId, "", 0)) {
+          executorLoader.uploadLogFile(execId, "", 0, logFile);
+        }
       } catch (ExecutorManagerException e) {
         e.printStackTrace();
       }
@@ -885,6 +946,8 @@ public class FlowRunner extends EventHandler implements Runnable {
 
     jobRunner.setDelayStart(node.getDelayedExecution());
     jobRunner.setLogSettings(logger, jobLogFileSize, jobLogNumFiles);
+    jobRunner.setUpdateWriter(updateWriter);
+    jobRunner.setLogShipper(logShipper);
     jobRunner.addListener(listener);
 
     if (JobCallbackManager.isInitialized()) {
@@ -1115,6 +1178,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 
       if (event.getType() == Type.JOB_STATUS_CHANGED) {//每当任务状态改变，更新整个任务流运行时数据
         updateFlow();
+        fireEventListeners(event);
       } else if (event.getType() == Type.JOB_FINISHED) {//任务结束
         ExecutableNode node = runner.getNode();
         long seconds = (node.getEndTime() - node.getStartTime()) / 1000;
@@ -18,9 +18,14 @@ package azkaban.execapp;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.Thread.State;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -30,16 +35,21 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 
 import azkaban.event.Event;
 import azkaban.event.EventListener;
+import azkaban.execapp.event.FlowWatchRelay;
 import azkaban.execapp.event.FlowWatcher;
 import azkaban.execapp.event.LocalFlowWatcher;
 import azkaban.execapp.event.RemoteFlowWatcher;
@@ -48,6 +58,7 @@ import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutionOptions;
 import azkaban.executor.ExecutorLoader;
 import azkaban.executor.ExecutorManagerException;
+import azkaban.jobExecutor.utils.process.ProcessOutputPump;
 import azkaban.jobtype.JobTypeManager;
 import azkaban.jobtype.JobTypeManagerException;
 import azkaban.metric.MetricReportManager;
@@ -56,12 +67,14 @@ import azkaban.project.ProjectWhitelist;
 import azkaban.project.ProjectWhitelist.WhitelistType;
 import azkaban.utils.FileIOUtils;
 import azkaban.utils.FileIOUtils.JobMetaData;
+import azkaban.utils.FileIOUtils.LinkMode;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import azkaban.utils.ThreadPoolExecutingListener;
 import azkaban.utils.TrackingThreadPool;
+import azkaban.utils.VirtualThreads;
 import azkaban.executor.Status;
 
 /**
@@ -109,12 +122,54 @@ public class FlowRunnerManager implements EventListener,
       "executor.threadpool.workqueue.size";
   private static final String EXECUTOR_FLOW_THREADS = "executor.flow.threads";
   private static final String FLOW_NUM_JOB_THREADS = "flow.num.job.threads";
+  private static final String EXECUTOR_UPDATE_COALESCE_WINDOW_MS =
+      "executor.update.coalesce.milisecinterval";
+  private static final String FLOW_DELTA_PERSISTENCE =
+      "executor.flow.delta.persistence";
+  private static final String FLOW_DELTA_COMPACTION_THRESHOLD =
+      "executor.flow.delta.compaction.threshold";
+  private static final String EXECUTION_UPDATE_PUSH_ENABLED =
+      "azkaban.execution.update.push.enabled";
+  private static final String EXECUTION_UPDATE_PUSH_URL =
+      "azkaban.execution.update.push.url";
+  private static final String EXECUTION_UPDATE_PUSH_INTERVAL_MS =
+      "azkaban.execution.update.push.milisecinterval";
+  private static final String EXECUTOR_LOG_SHIP_INTERVAL_MS =
+      "executor.log.ship.milisecinterval";
+  private static final String EXECUTOR_LOG_SHIP_BATCH_CHUNKS =
+      "executor.log.ship.batch.chunks";
+  private static final String EXECUTOR_LOG_SHIP_MAX_UPLOADS =
+      "executor.log.ship.max.concurrent.uploads";
+  private static final String EXECUTOR_MAX_RUNNING_JOBS =
+      "executor.max.running.jobs";
+  private static final String EXECUTOR_MAX_RUNNING_JOBS_PER_TYPE =
+      "executor.max.running.jobs.type.";
+  private static final String EXECUTOR_VIRTUAL_THREADS =
+      "executor.virtual.threads";
+  private static final String EXECUTOR_VIRTUAL_THREADS_CARRIER_PARALLELISM =
+      "executor.virtual.threads.carrier.parallelism";
+  private static final String EXECUTOR_VIRTUAL_THREADS_CARRIER_MAX_POOL_SIZE =
+      "executor.virtual.threads.carrier.max.pool.size";
+  private static final String EXECUTOR_PROCESS_OUTPUT_PUMP_THREADS =
+      "executor.process.output.pump.threads";
+  private static final String EXECUTION_DIR_LINK_MODE =
+      "execution.dir.link.mode";
+  private static final String PROJECT_ARTIFACT_CACHE_MAX_BYTES =
+      "executor.project.artifact.cache.max.bytes";
+  private static final String PROJECT_PREWARM_THREADS =
+      "executor.project.prewarm.threads";
+  private static final String FLOW_WATCH_RELAY_ENABLED =
+      "executor.flow.watch.relay.enabled";
+  private static final String FLOW_WATCH_POLL_INTERVAL_MS =
+      "executor.flow.watch.poll.milisecinterval";
   private static Logger logger = Logger.getLogger(FlowRunnerManager.class);
   private File executionDirectory;
   private File projectDirectory;
 
   // recently finished secs to clean up. 1 minute
   private static final long RECENTLY_FINISHED_TIME_TO_LIVE = 60 * 1000;
+  // How long the shutdown waits for the update writers to flush
+  private static final long SHUTDOWN_FLUSH_TIMEOUT_MS = 30 * 1000;
 
     //默认值：可以同时执行的任务流数量
   private static final int DEFAULT_NUM_EXECUTING_FLOWS = 30;
@@ -143,6 +198,16 @@ public class FlowRunnerManager implements EventListener,
   private TrackingThreadPool executorService;
 
   private CleanerThread cleanerThread;//临时long、文件清理线程
+  /** 合并写入数据库的状态更新，未配置时间窗口时为null */
+  private CoalescingUpdateWriter updateWriter;
+  /** 向web服务器推送任务流状态变化，未开启推送时为null */
+  private ExecutionUpdatePusher updatePusher;
+  /** 运行中日志的增量上传，未配置上传间隔时为null */
+  private LogShipper logShipper;
+  /** 流水线执行时执行服务器之间的任务状态转发，未开启时为null */
+  private FlowWatchRelay flowWatchRelay;
+  /** 所有任务流共享的任务调度器 */
+  private JobScheduler jobScheduler;
   private int numJobThreadPerFlow = DEFAULT_FLOW_NUM_JOB_TREADS;
 
   private ExecutorLoader executorLoader;
@@ -166,6 +231,17 @@ public class FlowRunnerManager implements EventListener,
 
   private Object executionDirDeletionSync = new Object();
 
+  // uploaded project files by md5, so repeated setups don't read the db
+  private ProjectArtifactCache artifactCache;
+
+  // sets up newly uploaded project versions before their first flow
+  private ExecutorService prewarmService;
+  private final Set<Pair<Integer, Integer>> pendingPrewarms = Collections
+      .synchronizedSet(new HashSet<Pair<Integer, Integer>>());
+
+  // how the project files are placed in the execution dirs
+  private LinkMode executionDirLinkMode = LinkMode.SYMLINK;
+
   // date time of the the last flow submitted.
   private long lastFlowSubmittedDate = 0;
 
@@ -184,6 +260,9 @@ public class FlowRunnerManager implements EventListener,
         props.getLong("execution.dir.retention", executionDirRetention);
     logger.info("Execution dir retention set to " + executionDirRetention
         + " ms");
+    executionDirLinkMode =
+        LinkMode.valueOf(props.getString(EXECUTION_DIR_LINK_MODE,
+            executionDirLinkMode.name()).toUpperCase());
     //创建执行目录
     if (!executionDirectory.exists()) {
       executionDirectory.mkdirs();
@@ -194,6 +273,37 @@ public class FlowRunnerManager implements EventListener,
     }
 
     installedProjects = loadExistingProjects();
+    artifactCache =
+        new ProjectArtifactCache(new File(projectDirectory, "_artifacts"),
+            props.getLong(PROJECT_ARTIFACT_CACHE_MAX_BYTES,
+                1024L * 1024 * 1024));
+    prewarmService =
+        Executors.newFixedThreadPool(
+            Math.max(1, props.getInt(PROJECT_PREWARM_THREADS, 2)),
+            new ThreadFactory() {
+              private final AtomicInteger threadCount = new AtomicInteger(0);
+
+              @Override
+              public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName("ProjectPrewarm-"
+                    + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+
+    // before any thread pool is made, the carrier pool is sized only once
+    if (props.getBoolean(EXECUTOR_VIRTUAL_THREADS, false)) {
+      VirtualThreads.enable(
+          props.getInt(EXECUTOR_VIRTUAL_THREADS_CARRIER_PARALLELISM, 0),
+          props.getInt(EXECUTOR_VIRTUAL_THREADS_CARRIER_MAX_POOL_SIZE, 0));
+    }
+
+    if (props.containsKey(EXECUTOR_PROCESS_OUTPUT_PUMP_THREADS)) {
+      ProcessOutputPump.setNumThreads(props
+          .getInt(EXECUTOR_PROCESS_OUTPUT_PUMP_THREADS));
+    }
 
     // azkaban.temp.dir
     numThreads =
@@ -202,6 +312,18 @@ public class FlowRunnerManager implements EventListener,
         props.getInt(FLOW_NUM_JOB_THREADS, DEFAULT_FLOW_NUM_JOB_TREADS);//设置每个任务流中可以同时执行的任务数量
     executorService = createExecutorService(numThreads);
 
+    Map<String, Integer> jobTypeLimits = new HashMap<String, Integer>();
+    for (Map.Entry<String, String> entry : props.getMapByPrefix(
+        EXECUTOR_MAX_RUNNING_JOBS_PER_TYPE).entrySet()) {
+      jobTypeLimits.put(entry.getKey(),
+          Integer.valueOf(entry.getValue().trim()));
+    }
+    jobScheduler =
+        new JobScheduler(props.getInt(EXECUTOR_MAX_RUNNING_JOBS, 0),
+            jobTypeLimits);
+    logger.info("Running at most " + jobScheduler.getMaxRunningJobs()
+        + " jobs (0 is unlimited), type limits " + jobTypeLimits);
+
     this.executorLoader = executorLoader;
     this.projectLoader = projectLoader;
 
@@ -214,6 +336,39 @@ public class FlowRunnerManager implements EventListener,
     cleanerThread = new CleanerThread();
     cleanerThread.start();
 
+    long coalesceWindowMs =
+        azkabanProps.getLong(EXECUTOR_UPDATE_COALESCE_WINDOW_MS, 0);
+    if (coalesceWindowMs > 0) {
+      updateWriter = new CoalescingUpdateWriter(coalesceWindowMs);
+      updateWriter.start();
+      logger.info("Coalescing db updates every " + coalesceWindowMs + " ms");
+    }
+
+    if (azkabanProps.getBoolean(EXECUTION_UPDATE_PUSH_ENABLED, false)) {
+      String pushUrl = azkabanProps.getString(EXECUTION_UPDATE_PUSH_URL);
+      try {
+        updatePusher =
+            new ExecutionUpdatePusher(new URI(pushUrl), azkabanProps.getLong(
+                EXECUTION_UPDATE_PUSH_INTERVAL_MS, 200));
+      } catch (URISyntaxException e) {
+        throw new IOException("Invalid execution update push url " + pushUrl,
+            e);
+      }
+      updatePusher.start();
+      logger.info("Pushing execution updates to " + pushUrl);
+    }
+
+    long logShipIntervalMs =
+        azkabanProps.getLong(EXECUTOR_LOG_SHIP_INTERVAL_MS, 0);
+    if (logShipIntervalMs > 0) {
+      logShipper =
+          new LogShipper(executorLoader, logShipIntervalMs,
+              azkabanProps.getInt(EXECUTOR_LOG_SHIP_BATCH_CHUNKS, 20),
+              azkabanProps.getInt(EXECUTOR_LOG_SHIP_MAX_UPLOADS, 2));
+      logShipper.start();
+      logger.info("Shipping running logs every " + logShipIntervalMs + " ms");
+    }
+
     String globalPropsPath =
         props.getString("executor.global.properties", null);
     if (globalPropsPath != null) {
@@ -246,7 +401,8 @@ public class FlowRunnerManager implements EventListener,
       // {@ThreadPoolExecutor.AbortPolicy} is used
       TrackingThreadPool executor =
           new TrackingThreadPool(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS,
-              new LinkedBlockingQueue<Runnable>(threadPoolQueueSize), this);
+              new LinkedBlockingQueue<Runnable>(threadPoolQueueSize), this,
+              VirtualThreads.newThreadFactory("FlowRunner-"));
 
       return executor;
     } else {
@@ -254,7 +410,8 @@ public class FlowRunnerManager implements EventListener,
       // if the running tasks are taking a long time or stuck, this queue
       // will be very very long.
       return new TrackingThreadPool(nThreads, nThreads, 0L,
-          TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), this);
+          TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), this,
+          VirtualThreads.newThreadFactory("FlowRunner-"));
     }
   }
 
@@ -291,6 +448,18 @@ public class FlowRunnerManager implements EventListener,
     return allProjects;
   }
 
+  /**
+   * Returns the write-behind stage of the db updates, or null if the updates
+   * are written synchronously.
+   */
+  public CoalescingUpdateWriter getUpdateWriter() {
+    return updateWriter;
+  }
+
+  public JobScheduler getJobScheduler() {
+    return jobScheduler;
+  }
+
   public long getLastFlowSubmittedTime(){
     // Note: this is not thread safe and may result in providing dirty data.
     //       we will provide this data as is for now and will revisit if there
@@ -508,7 +677,10 @@ public class FlowRunnerManager implements EventListener,
       if (runner != null) {
         watcher = new LocalFlowWatcher(runner);
       } else {
-        watcher = new RemoteFlowWatcher(pipelineExecId, executorLoader);
+        watcher =
+            new RemoteFlowWatcher(pipelineExecId, executorLoader,
+                flowWatchRelay, azkabanProps.getLong(
+                    FLOW_WATCH_POLL_INTERVAL_MS, 60 * 1000));
       }
     }
 
@@ -532,11 +704,22 @@ public class FlowRunnerManager implements EventListener,
     }
 
     FlowRunner runner =
-        new FlowRunner(flow, executorLoader, projectLoader, jobtypeManager);
+        new FlowRunner(flow, executorLoader, projectLoader, jobtypeManager,
+            jobScheduler.createFlowExecutor(execId, numJobThreads));
     runner.setFlowWatcher(watcher)
         .setJobLogSettings(jobLogChunkSize, jobLogNumFiles)
         .setValidateProxyUser(validateProxyUser)
+        .setUpdateWriter(updateWriter)
+        .setLogShipper(logShipper)
+        .setDeltaPersistence(azkabanProps.getBoolean(FLOW_DELTA_PERSISTENCE,
+            false), azkabanProps.getInt(FLOW_DELTA_COMPACTION_THRESHOLD, 50))
         .setNumJobThreads(numJobThreads).addListener(this);
+    if (updatePusher != null) {
+      runner.addListener(updatePusher);
+    }
+    if (flowWatchRelay != null) {
+      runner.addListener(flowWatchRelay);
+    }
 
     configureFlowLevelMetrics(runner);
 
@@ -584,6 +767,77 @@ public class FlowRunnerManager implements EventListener,
 
   }
 
+  private ProjectVersion getProjectVersion(
+      Pair<Integer, Integer> projectVersionKey) {
+    synchronized (installedProjects) {
+      ProjectVersion projectVersion = installedProjects.get(projectVersionKey);
+      if (projectVersion == null) {
+        projectVersion =
+            new ProjectVersion(projectVersionKey.getFirst(),
+                projectVersionKey.getSecond());
+        installedProjects.put(projectVersionKey, projectVersion);
+      }
+      return projectVersion;
+    }
+  }
+
+  /**
+   * <pre>
+   * 在后台下载并解压新上传的项目版本，该版本的第一个任务流不必再等待
+   * Note:
+   * 1. the setup holds the version's lock as a flow's setup does, so a flow
+   *    submitted meanwhile waits for it instead of downloading again
+   * 2. a version that is installed or already being set up is skipped
+   * </pre>
+   *
+   * @return false if the version was skipped
+   */
+  public boolean prewarmProjectVersion(int projectId, int version) {
+    final Pair<Integer, Integer> key =
+        new Pair<Integer, Integer>(projectId, version);
+    final ProjectVersion projectVersion = getProjectVersion(key);
+    if (projectVersion.isInstalled() || !pendingPrewarms.add(key)) {
+      return false;
+    }
+
+    logger.info("Pre-warming project " + projectId + " version " + version);
+    prewarmService.submit(new Runnable() {
+      @Override
+      public void run() {
+        long start = System.currentTimeMillis();
+        try {
+          projectVersion.setupProjectFiles(projectLoader, projectDirectory,
+              artifactCache, logger);
+          logger.info("Pre-warmed project " + key.getFirst() + " version "
+              + key.getSecond() + " in "
+              + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+          logger.error("Failed to pre-warm project " + key.getFirst()
+              + " version " + key.getSecond(), e);
+        } finally {
+          pendingPrewarms.remove(key);
+        }
+      }
+    });
+    return true;
+  }
+
+  /**
+   * Returns the installed project versions, as "projectId.version".
+   */
+  public List<String> getWarmProjectVersions() {
+    List<String> warmVersions = new ArrayList<String>();
+    // versions are added by the submitting and pre-warming threads
+    synchronized (installedProjects) {
+      for (ProjectVersion version : installedProjects.values()) {
+        if (version.isInstalled()) {
+          warmVersions.add(version.getProjectId() + "." + version.getVersion());
+        }
+      }
+    }
+    return warmVersions;
+  }
+
   private void setupFlow(ExecutableFlow flow) throws ExecutorManagerException {
     int execId = flow.getExecutionId();
     File execPath = new File(executionDirectory, String.valueOf(execId));
@@ -593,24 +847,20 @@ public class FlowRunnerManager implements EventListener,
     execPath.mkdirs();
 
     // We're setting up the installed projects. First time, it may take a while
-    // to set up.
+    // to set up, unless the version was pre-warmed.
     Pair<Integer, Integer> projectVersionKey =
         new Pair<Integer, Integer>(flow.getProjectId(), flow.getVersion());
 
     // We set up project versions this way
-    ProjectVersion projectVersion = null;
-    synchronized (installedProjects) {
-      projectVersion = installedProjects.get(projectVersionKey);
-      if (projectVersion == null) {
-        projectVersion =
-            new ProjectVersion(flow.getProjectId(), flow.getVersion());
-        installedProjects.put(projectVersionKey, projectVersion);
-      }
-    }
+    ProjectVersion projectVersion = getProjectVersion(projectVersionKey);
 
     try {
-      projectVersion.setupProjectFiles(projectLoader, projectDirectory, logger);
-      projectVersion.copyCreateSymlinkDirectory(execPath);
+      projectVersion.setupProjectFiles(projectLoader, projectDirectory,
+          artifactCache, logger);
+      long setupStart = System.currentTimeMillis();
+      projectVersion.copyCreateSymlinkDirectory(execPath, executionDirLinkMode);
+      logger.info("Set up execution dir of flow " + execId + " in "
+          + (System.currentTimeMillis() - setupStart) + " ms");
     } catch (Exception e) {
       e.printStackTrace();
       if (execPath.exists()) {
@@ -672,6 +922,89 @@ public class FlowRunnerManager implements EventListener,
     runner.retryFailures(user);
   }
 
+  /**
+   * Stops the background work of the manager, called when the executor
+   * server exits.
+   */
+  public void shutdown() {
+    logger.info("Shutting down the job scheduler");
+    jobScheduler.shutdown();
+    if (flowWatchRelay != null) {
+      flowWatchRelay.shutdown();
+    }
+
+    // The writers flush what is pending before they exit, wait for it.
+    List<Thread> writers = new ArrayList<Thread>();
+    if (updateWriter != null) {
+      updateWriter.shutdown();
+      writers.add(updateWriter);
+    }
+    if (updatePusher != null) {
+      updatePusher.shutdown();
+      writers.add(updatePusher);
+    }
+    if (logShipper != null) {
+      logShipper.shutdown();
+      writers.add(logShipper);
+    }
+    for (Thread writer : writers) {
+      logger.info("Waiting for " + writer.getName() + " to flush");
+      try {
+        writer.join(SHUTDOWN_FLUSH_TIMEOUT_MS);
+      } catch (InterruptedException e) {
+        logger.error("Interrupted while waiting for " + writer.getName(), e);
+        return;
+      }
+      if (writer.isAlive()) {
+        logger.error(writer.getName() + " didn't finish in "
+            + SHUTDOWN_FLUSH_TIMEOUT_MS + " ms");
+      }
+    }
+  }
+
+  /**
+   * Starts relaying job statuses between the executors of pipelined flows,
+   * if enabled.
+   *
+   * @param hostPort the host:port the other executors reach this one at
+   */
+  public void setupFlowWatchRelay(String hostPort) {
+    if (!azkabanProps.getBoolean(FLOW_WATCH_RELAY_ENABLED, false)) {
+      return;
+    }
+    flowWatchRelay = new FlowWatchRelay(hostPort);
+    flowWatchRelay.start();
+    logger.info("Relaying the job statuses of watched flows as " + hostPort);
+  }
+
+  /**
+   * Relays the job statuses of a flow running here to the executor of a
+   * flow pipelined on it.
+   */
+  public void watchFlow(int execId, String watcher)
+      throws ExecutorManagerException {
+    if (flowWatchRelay == null) {
+      throw new ExecutorManagerException("Flow watch relay is not enabled.");
+    }
+    FlowRunner runner = runningFlows.get(execId);
+    if (runner == null) {
+      throw new ExecutorManagerException("Execution " + execId
+          + " is not running.");
+    }
+    flowWatchRelay.addSubscriber(runner, watcher);
+  }
+
+  /**
+   * Hands the job statuses relayed by another executor to the watchers of
+   * that flow.
+   */
+  public void deliverWatchedStatuses(int execId,
+      Map<String, Status> jobStatuses, Status flowStatus) {
+    if (flowWatchRelay != null) {
+      flowWatchRelay.deliver(execId, jobStatuses, flowStatus);
+    }
+  }
+
   public ExecutableFlow getExecutableFlow(int execId) {
     FlowRunner runner = runningFlows.get(execId);
     if (runner == null) {
@@ -764,6 +1097,48 @@ public class FlowRunnerManager implements EventListener,
         "Error reading file. Log directory doesn't exist.");
   }
 
+  /**
+   * 将运行中任务流的日志直接写入输出流，jobId为null时为任务流日志，
+   * 负数的length表示读到文件末尾
+   */
+  public void streamLogs(int execId, String jobId, int attempt, int startByte,
+      int length, OutputStream stream) throws ExecutorManagerException {
+    FlowRunner runner = runningFlows.get(execId);
+    if (runner == null) {
+      throw new ExecutorManagerException("Running flow " + execId
+          + " not found.");
+    }
+
+    File dir = runner.getExecutionDir();
+    if (dir == null || !dir.exists()) {
+      throw new ExecutorManagerException(
+          "Error reading file. Log directory doesn't exist.");
+    }
+
+    // Only open the file under the lock, an open file can still be read
+    // after the execution dir is deleted. Copying to a slow client must not
+    // hold up the cleanup of the other execution dirs.
+    InputStream logStream;
+    try {
+      synchronized (executionDirDeletionSync) {
+        if (!dir.exists()) {
+          throw new ExecutorManagerException(
+              "Execution dir file doesn't exist. Probably has beend deleted");
+        }
+        File logFile =
+            jobId == null ? runner.getFlowLogFile() : runner.getJobLogFile(
+                jobId, attempt);
+        if (logFile == null || !logFile.exists()) {
+          throw new ExecutorManagerException("Log file doesn't exist.");
+        }
+        logStream = new FileInputStream(logFile);
+      }
+      FileIOUtils.readUtf8File(logStream, startByte, length, stream);
+    } catch (IOException e) {
+      throw new ExecutorManagerException(e);
+    }
+  }
+
   public List<Object> readJobAttachments(int execId, String jobId, int attempt)
       throws ExecutorManagerException {
     FlowRunner runner = runningFlows.get(execId);
@@ -112,6 +112,17 @@ public class JobRunner extends EventHandler implements Runnable {
     /** 当前任务对应的阻塞状态，只是用于当前job runner*/
   private BlockingStatus currentBlockStatus = null;
 
+  /** 状态写入的后写缓冲，为null时同步写入数据库 */
+  private CoalescingUpdateWriter updateWriter = null;
+  /** 日志增量上传线程，为null时在作业结束时上传整个日志 */
+  private LogShipper logShipper = null;
+  private final Runnable persistStatusTask = new Runnable() {
+    @Override
+    public void run() {
+      persistStatus();
+    }
+  };
+
   public JobRunner(ExecutableNode node, File workingDir, ExecutorLoader loader,
       JobTypeManager jobtypeManager) {
     this.props = node.getInputProps();//当前节点的属性是入口属性
@@ -223,6 +234,14 @@ public class JobRunner extends EventHandler implements Runnable {
     return pipelineJobs;
   }
 
+  public void setUpdateWriter(CoalescingUpdateWriter updateWriter) {
+    this.updateWriter = updateWriter;
+  }
+
+  public void setLogShipper(LogShipper logShipper) {
+    this.logShipper = logShipper;
+  }
+
   public void setDelayStart(long delayMS) {
     delayStartMs = delayMS;
   }
@@ -262,6 +281,10 @@ public class JobRunner extends EventHandler implements Runnable {
         jobAppender = fileAppender;
         logger.addAppender(jobAppender);
         logger.setAdditivity(false);
+        if (logShipper != null) {
+          logShipper.addLog(executionId, node.getNestedId(), node.getAttempt(),
+              logFile);
+        }
       } catch (IOException e) {
         flowLogger.error("Could not open log file in " + workingDir
             + " for job " + this.jobId, e);
@@ -283,12 +306,23 @@ public class JobRunner extends EventHandler implements Runnable {
   }
 
   private void writeStatus() {
-    try {
-      node.setUpdateTime(System.currentTimeMillis());
-      loader.updateExecutableNode(node);
-    } catch (ExecutorManagerException e) {
-      flowLogger.error("Could not update job properties in db for "
-          + this.jobId, e);
+    node.setUpdateTime(System.currentTimeMillis());
+    if (updateWriter == null) {
+      persistStatus();
+    } else {
+      updateWriter.write(executionId + ":" + node.getNestedId(),
+          persistStatusTask, Status.isStatusFinished(node.getStatus()));
+    }
+  }
+
+  private void persistStatus() {
+    synchronized (node) {
+      try {
+        loader.updateExecutableNode(node);
+      } catch (ExecutorManagerException e) {
+        flowLogger.error("Could not update job properties in db for "
+            + this.jobId, e);
+      }
     }
   }
 
@@ -413,6 +447,12 @@ public class JobRunner extends EventHandler implements Runnable {
     }
 
     try {
+      // a shipped log only has its last chunk left
+      if (logShipper != null
+          && logShipper.finishLog(executionId, node.getNestedId(), attemptNo)) {
+        return;
+      }
+
       File[] files = logFile.getParentFile().listFiles(new FilenameFilter() {
         @Override
         public boolean accept(File dir, String name) {
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package azkaban.execapp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import azkaban.utils.VirtualThreads;
+
+/**
+ * <pre>
+ * 执行服务器上所有任务流共享的任务调度器，限制同时运行的任务总数，
+ * 取代每个任务流各自创建的任务线程池
+ * Note:
+ * 1. each flow submits its jobs to its own {@link ExecutorService} from
+ *    {@link #createFlowExecutor}, which keeps the per flow limit of
+ *    flow.num.job.threads
+ * 2. free slots go to the flows round robin, one job per flow per turn, so
+ *    a flow with a deep queue can't starve the others
+ * 3. a job whose type is at its limit is passed over, the next job of the
+ *    same flow may still run
+ * 4. a global limit of 0 only applies the per flow and per type limits
+ * </pre>
+ */
+public class JobScheduler {
+  private static final Logger logger = Logger.getLogger(JobScheduler.class);
+
+  /** 没有全局限制时线程池的大小，超出的任务在线程池中排队 */
+  private static final int MAX_THREADS_WITHOUT_LIMIT = 1024;
+
+  private final int maxRunningJobs;
+  private final Map<String, Integer> jobTypeLimits;
+  private final ThreadPoolExecutor workers;
+
+  /** 有等待任务的任务流，按轮转顺序排列 */
+  private final ArrayDeque<FlowExecutor> waitingFlows =
+      new ArrayDeque<FlowExecutor>();
+  private final Map<String, Integer> runningJobsByType =
+      new HashMap<String, Integer>();
+  private int numRunningJobs = 0;
+  private int numQueuedJobs = 0;
+
+  private long totalWaitMs = 0;
+  private long numStartedJobs = 0;
+  private long maxWaitMs = 0;
+
+  public JobScheduler(int maxRunningJobs, Map<String, Integer> jobTypeLimits) {
+    this.maxRunningJobs = maxRunningJobs;
+    this.jobTypeLimits = new HashMap<String, Integer>(jobTypeLimits);
+
+    // the dispatch never hands out more jobs than the limit, so the pool
+    // doesn't queue. Idle threads time out.
+    int numThreads =
+        maxRunningJobs > 0 ? maxRunningJobs : MAX_THREADS_WITHOUT_LIMIT;
+    this.workers =
+        new ThreadPoolExecutor(numThreads, numThreads, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), createThreadFactory());
+    this.workers.allowCoreThreadTimeOut(true);
+  }
+
+  private static ThreadFactory createThreadFactory() {
+    // jobs mostly block on their process, so they are cheap to run on
+    // virtual threads when these are on
+    ThreadFactory virtualFactory =
+        VirtualThreads.newThreadFactory("JobScheduler-");
+    if (virtualFactory != null) {
+      return virtualFactory;
+    }
+
+    final AtomicInteger threadCount = new AtomicInteger(0);
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r);
+        thread.setName("JobScheduler-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
+
+  /**
+   * Creates the executor a flow submits its jobs to. At most maxRunningJobs
+   * of them run at once.
+   */
+  public ExecutorService createFlowExecutor(int execId, int maxRunningJobs) {
+    return new FlowExecutor(execId, maxRunningJobs);
+  }
+
+  public synchronized int getNumRunningJobs() {
+    return numRunningJobs;
+  }
+
+  public synchronized int getNumQueuedJobs() {
+    return numQueuedJobs;
+  }
+
+  /**
+   * The jobs that can still start right away, or -1 without a global limit.
+   */
+  public synchronized int getRemainingJobSlots() {
+    return maxRunningJobs > 0 ? Math.max(0, maxRunningJobs - numRunningJobs)
+        : -1;
+  }
+
+  public int getMaxRunningJobs() {
+    return maxRunningJobs;
+  }
+
+  public synchronized long getAverageWaitMs() {
+    return numStartedJobs == 0 ? 0 : totalWaitMs / numStartedJobs;
+  }
+
+  /**
+   * Returns the longest wait of a job in the queue since the last call.
+   */
+  public synchronized long getAndResetMaxWaitMs() {
+    long wait = maxWaitMs;
+    maxWaitMs = 0;
+    return wait;
+  }
+
+  public void shutdown() {
+    workers.shutdownNow();
+  }
+
+  private synchronized void enqueue(FlowExecutor flow, QueuedJob job) {
+    if (flow.pending.isEmpty()) {
+      waitingFlows.add(flow);
+    }
+    flow.pending.add(job);
+    numQueuedJobs++;
+    dispatch();
+  }
+
+  /**
+   * Starts queued jobs while there are free slots. Each flow that starts a
+   * job goes to the back of the line.
+   */
+  private synchronized void dispatch() {
+    int passed = 0;
+    while (!waitingFlows.isEmpty() && passed < waitingFlows.size()
+        && (maxRunningJobs <= 0 || numRunningJobs < maxRunningJobs)) {
+      FlowExecutor flow = waitingFlows.poll();
+      QueuedJob job = flow.numRunning < flow.maxRunning ? takeRunnable(flow)
+          : null;
+
+      if (flow.pending.isEmpty()) {
+        passed = 0;
+      } else {
+        waitingFlows.add(flow);
+        passed = job == null ? passed + 1 : 0;
+      }
+
+      if (job != null && !start(flow, job)) {
+        // shut down, nothing else can start either
+        return;
+      }
+    }
+  }
+
+  private QueuedJob takeRunnable(FlowExecutor flow) {
+    Iterator<QueuedJob> iter = flow.pending.iterator();
+    while (iter.hasNext()) {
+      QueuedJob job = iter.next();
+      Integer limit = job.type == null ? null : jobTypeLimits.get(job.type);
+      if (limit == null || getRunning(job.type) < limit) {
+        iter.remove();
+        return job;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return false if the workers are shut down and the job was dropped
+   */
+  private boolean start(final FlowExecutor flow, final QueuedJob job) {
+    numQueuedJobs--;
+    numRunningJobs++;
+    flow.numRunning++;
+    if (job.type != null) {
+      runningJobsByType.put(job.type, getRunning(job.type) + 1);
+    }
+
+    long waitMs = System.currentTimeMillis() - job.queuedTime;
+    totalWaitMs += waitMs;
+    numStartedJobs++;
+    maxWaitMs = Math.max(maxWaitMs, waitMs);
+
+    try {
+      workers.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            job.task.run();
+          } catch (Throwable t) {
+            logger.error("Job of execution " + flow.execId + " failed", t);
+          } finally {
+            finish(flow, job);
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      logger.error("Job scheduler is shut down, dropping a job of execution "
+          + flow.execId);
+      // released without dispatching, that would only reject the next job
+      release(flow, job);
+      if (job.task instanceof Future) {
+        ((Future<?>) job.task).cancel(false);
+      }
+      return false;
+    }
+    return true;
+  }
+
+  private synchronized void finish(FlowExecutor flow, QueuedJob job) {
+    release(flow, job);
+    dispatch();
+  }
+
+  /** 调用者持有调度器的锁 */
+  private void release(FlowExecutor flow, QueuedJob job) {
+    numRunningJobs--;
+    flow.numRunning--;
+    if (job.type != null) {
+      runningJobsByType.put(job.type, getRunning(job.type) - 1);
+    }
+    flow.checkTerminated();
+  }
+
+  private int getRunning(String type) {
+    Integer running = runningJobsByType.get(type);
+    return running == null ? 0 : running;
+  }
+
+  private synchronized List<Runnable> drain(FlowExecutor flow) {
+    List<Runnable> tasks = new ArrayList<Runnable>();
+    for (QueuedJob job : flow.pending) {
+      tasks.add(job.task);
+    }
+    numQueuedJobs -= flow.pending.size();
+    flow.pending.clear();
+    waitingFlows.remove(flow);
+    flow.checkTerminated();
+    return tasks;
+  }
+
+  /**
+   * The future of a job submitted to a {@link FlowExecutor}, it keeps the
+   * job type that submit would otherwise hide from execute.
+   */
+  private static class JobTask<T> extends FutureTask<T> {
+    private final String type;
+
+    public JobTask(Runnable runnable, T value, String type) {
+      super(runnable, value);
+      this.type = type;
+    }
+  }
+
+  private static String getJobType(Runnable task) {
+    if (task instanceof JobTask) {
+      return ((JobTask<?>) task).type;
+    } else if (task instanceof JobRunner) {
+      return ((JobRunner) task).getNode().getType();
+    }
+    return null;
+  }
+
+  private static class QueuedJob {
+    private final Runnable task;
+    private final String type;
+    private final long queuedTime = System.currentTimeMillis();
+
+    public QueuedJob(Runnable task, String type) {
+      this.task = task;
+      this.type = type;
+    }
+  }
+
+  /**
+   * 单个任务流的任务队列，所有状态都由调度器的锁保护
+   */
+  private class FlowExecutor extends AbstractExecutorService {
+    private final int execId;
+    private final int maxRunning;
+    private final ArrayDeque<QueuedJob> pending = new ArrayDeque<QueuedJob>();
+    private int numRunning = 0;
+    private boolean shutdown = false;
+    private boolean terminated = false;
+
+    public FlowExecutor(int execId, int maxRunning) {
+      this.execId = execId;
+      this.maxRunning = Math.max(1, maxRunning);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+      return new JobTask<T>(runnable, value, getJobType(runnable));
+    }
+
+    @Override
+    public void execute(Runnable task) {
+      String type = getJobType(task);
+
+      synchronized (JobScheduler.this) {
+        if (shutdown) {
+          throw new RejectedExecutionException("Execution " + execId
+              + " doesn't take jobs any more.");
+        }
+        enqueue(this, new QueuedJob(task, type));
+      }
+    }
+
+    @Override
+    public void shutdown() {
+      synchronized (JobScheduler.this) {
+        shutdown = true;
+        checkTerminated();
+      }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      synchronized (JobScheduler.this) {
+        shutdown = true;
+        return drain(this);
+      }
+    }
+
+    @Override
+    public boolean isShutdown() {
+      synchronized (JobScheduler.this) {
+        return shutdown;
+      }
+    }
+
+    @Override
+    public boolean isTerminated() {
+      synchronized (JobScheduler.this) {
+        return terminated;
+      }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+      long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+      synchronized (JobScheduler.this) {
+        while (!terminated) {
+          long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0) {
+            return false;
+          }
+          JobScheduler.this.wait(remaining);
+        }
+        return true;
+      }
+    }
+
+    /** 调用者持有调度器的锁 */
+    private void checkTerminated() {
+      if (shutdown && !terminated && pending.isEmpty() && numRunning == 0) {
+        terminated = true;
+        JobScheduler.this.notifyAll();
+      }
+    }
+  }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.LogChunk;
+
+/**
+ * <pre>
+ * 日志增量上传线程，跟踪运行中作业和任务流的日志文件，
+ * 将写满的日志块上传到execution_logs，而不是在结束时一次性上传整个日志
+ * Note:
+ * 1. only full chunks are shipped while a log is written, so a shipped
+ *    chunk never changes. The last partial chunk is shipped by
+ *    {@link #finishLog} when the job or the flow is done
+ * 2. the chunks of a round are uploaded in batches, one transaction each,
+ *    by a bounded number of upload threads. A failed batch is retried in
+ *    the next round
+ * 3. a finished log is tailed until all of its chunks are shipped, the
+ *    rounds retry what failed to ship at finish
+ * 4. a log rolled over by the RollingFileAppender is followed through its
+ *    backups, from the one that holds the file last read up to the new
+ *    file. Backups dropped by the appender are lost, as they would be for
+ *    the upload at finish
+ * </pre>
+ */
+public class LogShipper extends Thread {
+  private static final Logger logger = Logger.getLogger(LogShipper.class);
+
+  /** 与uploadLogFile的分块大小一致 */
+  private static final int CHUNK_SIZE = 50 * 1024;
+
+  private final ExecutorLoader loader;
+  private final long shipIntervalMs;
+  private final int maxChunksPerBatch;
+  private final ExecutorService uploadPool;
+
+  private final Map<String, TailedLog> logs =
+      new ConcurrentHashMap<String, TailedLog>();
+
+  private volatile boolean shutdown = false;
+
+  public LogShipper(ExecutorLoader loader, long shipIntervalMs,
+      int maxChunksPerBatch, int maxConcurrentUploads) {
+    this.loader = loader;
+    this.shipIntervalMs = shipIntervalMs;
+    this.maxChunksPerBatch = Math.max(1, maxChunksPerBatch);
+    this.uploadPool =
+        Executors.newFixedThreadPool(Math.max(1, maxConcurrentUploads));
+    this.setName("LogShipper");
+    this.setDaemon(true);
+  }
+
+  /**
+   * Starts tailing a log file, the file doesn't need to exist yet.
+   */
+  public void addLog(int execId, String name, int attempt, File logFile) {
+    logs.put(getKey(execId, name, attempt), new TailedLog(execId, name,
+        attempt, logFile));
+  }
+
+  /**
+   * Ships the rest of the log, the last partial chunk included, in the
+   * calling thread. The log is tailed until everything is shipped, what
+   * fails here is retried by the next round.
+   *
+   * @return false if the log isn't tailed, and has to be uploaded as a whole
+   */
+  public boolean finishLog(int execId, String name, int attempt) {
+    TailedLog log = logs.get(getKey(execId, name, attempt));
+    if (log == null) {
+      return false;
+    }
+
+    List<LogChunk> chunks;
+    synchronized (log) {
+      log.finished = true;
+      try {
+        chunks = log.readChunks(true);
+      } catch (IOException e) {
+        logger.error("Failed to read log " + log.logFile
+            + ", retrying in the next round", e);
+        return true;
+      }
+      removeIfShipped(log);
+    }
+
+    if (!chunks.isEmpty()) {
+      upload(chunks);
+    }
+    return true;
+  }
+
+  public int getNumTailedLogs() {
+    return logs.size();
+  }
+
+  public void shutdown() {
+    shutdown = true;
+    this.interrupt();
+  }
+
+  @Override
+  public void run() {
+    while (!shutdown) {
+      synchronized (this) {
+        try {
+          this.wait(shipIntervalMs);
+        } catch (InterruptedException e) {
+          logger.info("Interrupted. Probably to shut down.");
+        }
+      }
+
+      try {
+        shipNewChunks();
+      } catch (Exception e) {
+        logger.error("Failed to ship logs", e);
+      }
+    }
+
+    // Ship the full chunks that are left on the way out.
+    try {
+      shipNewChunks();
+    } catch (Exception e) {
+      logger.error("Failed to ship logs", e);
+    }
+    uploadPool.shutdown();
+  }
+
+  private void shipNewChunks() throws InterruptedException {
+    List<LogChunk> chunks = new ArrayList<LogChunk>();
+    for (TailedLog log : logs.values()) {
+      synchronized (log) {
+        try {
+          chunks.addAll(log.readChunks(log.finished));
+        } catch (IOException e) {
+          logger.error("Failed to read log " + log.logFile, e);
+        }
+        removeIfShipped(log);
+      }
+    }
+
+    List<Future<?>> uploads = new ArrayList<Future<?>>();
+    for (int i = 0; i < chunks.size(); i += maxChunksPerBatch) {
+      final List<LogChunk> batch =
+          chunks.subList(i, Math.min(chunks.size(), i + maxChunksPerBatch));
+      uploads.add(uploadPool.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          upload(batch);
+          return null;
+        }
+      }));
+    }
+
+    // the next round starts when this one is shipped
+    for (Future<?> upload : uploads) {
+      try {
+        upload.get();
+      } catch (ExecutionException e) {
+        logger.error("Failed to ship log chunks", e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Uploads the chunks in one transaction. Failed chunks go back to their
+   * logs for the next round.
+   */
+  private void upload(List<LogChunk> chunks) {
+    boolean shipped = false;
+    try {
+      loader.uploadLogChunks(chunks);
+      shipped = true;
+    } catch (Exception e) {
+      logger.error("Failed to ship " + chunks.size()
+          + " log chunks, retrying in the next round", e);
+    }
+
+    for (LogChunk chunk : chunks) {
+      TailedLog log =
+          logs.get(getKey(chunk.getExecId(), chunk.getName(),
+              chunk.getAttempt()));
+      if (log == null) {
+        continue;
+      }
+      synchronized (log) {
+        log.inFlight--;
+        if (!shipped) {
+          log.unshipped.add(chunk);
+        }
+        removeIfShipped(log);
+      }
+    }
+  }
+
+  /* Stops tailing a finished log once all of its chunks are shipped */
+  private void removeIfShipped(TailedLog log) {
+    if (log.finished && log.inFlight == 0 && log.unshipped.isEmpty()) {
+      logs.remove(getKey(log.execId, log.name, log.attempt), log);
+    }
+  }
+
+  private static String getKey(int execId, String name, int attempt) {
+    return execId + "/" + name + "/" + attempt;
+  }
+
+  /**
+   * 一个被跟踪的日志文件
+   */
+  private static class TailedLog {
+    private final int execId;
+    private final String name;
+    private final int attempt;
+    private final File logFile;
+
+    /** 当前文件中已读取的位置 */
+    private long filePos = 0;
+    private Object fileKey = null;
+    /** 下一个日志块在整个日志中的起始位置 */
+    private int nextStartByte = 0;
+    private final byte[] partial = new byte[CHUNK_SIZE];
+    private int partialLength = 0;
+    /** 上传失败，等待重试的日志块 */
+    private final List<LogChunk> unshipped = new ArrayList<LogChunk>();
+    /** 已读取但还未上传完成的日志块数 */
+    private int inFlight = 0;
+    /** 作业或任务流已结束 */
+    private boolean finished = false;
+
+    public TailedLog(int execId, String name, int attempt, File logFile) {
+      this.execId = execId;
+      this.name = name;
+      this.attempt = attempt;
+      this.logFile = logFile;
+    }
+
+    /**
+     * Returns the chunks written since the last call and the ones to retry,
+     * and the partial chunk too if flush is set. The chunks are in flight
+     * till they are passed back to {@link LogShipper#upload}.
+     */
+    public List<LogChunk> readChunks(boolean flush) throws IOException {
+      // new chunks are kept with the unshipped ones, a failed read loses none
+      if (logFile.exists()) {
+        Object key = getFileKey(logFile);
+        boolean rolled =
+            logFile.length() < filePos || key != null && fileKey != null
+                && !key.equals(fileKey);
+        if (rolled) {
+          // the rest of the file we were reading is now a backup, the
+          // backups after it hold what was written since
+          for (int i = findRolledBackup(key); i > 0; i--) {
+            read(new File(logFile.getPath() + "." + i), unshipped);
+            filePos = 0;
+          }
+          filePos = 0;
+        }
+        fileKey = key;
+        read(logFile, unshipped);
+      }
+
+      if (flush && partialLength > 0) {
+        emit(unshipped);
+      }
+
+      List<LogChunk> chunks = new ArrayList<LogChunk>(unshipped);
+      unshipped.clear();
+      inFlight += chunks.size();
+      return chunks;
+    }
+
+    /**
+     * Returns the index of the backup holding the file last read, or 0 if
+     * there is none. Without file keys the file is taken to have rolled once.
+     */
+    private int findRolledBackup(Object currentKey) throws IOException {
+      if (fileKey != null && fileKey.equals(currentKey)) {
+        // truncated in place
+        return 0;
+      }
+      int index = 0;
+      File backup;
+      while ((backup = new File(logFile.getPath() + "." + (index + 1)))
+          .exists()) {
+        index++;
+        if (fileKey == null || fileKey.equals(getFileKey(backup))) {
+          return index;
+        }
+      }
+      // the appender dropped it, the backups left are all newer
+      return index;
+    }
+
+    private static Object getFileKey(File file) throws IOException {
+      return Files.readAttributes(file.toPath(), BasicFileAttributes.class)
+          .fileKey();
+    }
+
+    private void read(File file, List<LogChunk> chunks) throws IOException {
+      RandomAccessFile input = new RandomAccessFile(file, "r");
+      try {
+        input.seek(filePos);
+        int read;
+        while ((read =
+            input.read(partial, partialLength, CHUNK_SIZE - partialLength)) > 0) {
+          partialLength += read;
+          filePos += read;
+          if (partialLength == CHUNK_SIZE) {
+            emit(chunks);
+          }
+        }
+      } finally {
+        input.close();
+      }
+    }
+
+    private void emit(List<LogChunk> chunks) {
+      chunks.add(new LogChunk(execId, name, attempt, nextStartByte, Arrays
+          .copyOf(partial, partialLength)));
+      nextStartByte += partialLength;
+      partialLength = 0;
+    }
+  }
+}
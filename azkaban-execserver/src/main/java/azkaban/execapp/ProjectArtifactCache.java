@@ -0,0 +1,192 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package azkaban.execapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import azkaban.project.ProjectFileHandler;
+import azkaban.project.ProjectLoader;
+import azkaban.project.ProjectManagerException;
+
+/**
+ * <pre>
+ * 执行服务器本地的项目文件缓存，以文件的md5命名，
+ * 内容相同的项目版本和重复的下载都不再从数据库读取文件
+ * Note:
+ * 1. only the version's metadata is still queried, to learn its md5. The
+ *    file is fetched from the db on a miss only
+ * 2. the modified time of a cached file is its last use, so the LRU order
+ *    survives restarts. Files are evicted oldest first once the cache
+ *    holds more than maxBytes
+ * 3. a max size of 0 disables the cache, every file is fetched from the db
+ * </pre>
+ */
+public class ProjectArtifactCache {
+  private static final Logger logger = Logger
+      .getLogger(ProjectArtifactCache.class);
+
+  /** 交给调用者的文件链接和写入中的文件 */
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final File cacheDir;
+  private final long maxBytes;
+
+  private final AtomicLong tempCount = new AtomicLong(0);
+  private final AtomicLong hits = new AtomicLong(0);
+  private final AtomicLong misses = new AtomicLong(0);
+
+  public ProjectArtifactCache(File cacheDir, long maxBytes) {
+    this.cacheDir = cacheDir;
+    this.maxBytes = maxBytes;
+    if (maxBytes > 0 && !cacheDir.exists()) {
+      cacheDir.mkdirs();
+    }
+
+    // left over by setups that didn't finish before a restart
+    File[] files = cacheDir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (file.getName().endsWith(TEMP_SUFFIX)) {
+          file.delete();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the uploaded file of the version, from the cache if its content
+   * is there. The caller deletes the local file of the handler when done,
+   * which never deletes the cached copy.
+   *
+   * @return null if the version doesn't exist
+   */
+  public ProjectFileHandler getUploadedFile(ProjectLoader projectLoader,
+      int projectId, int version) throws ProjectManagerException, IOException {
+    if (maxBytes <= 0) {
+      return projectLoader.getUploadedFile(projectId, version);
+    }
+
+    ProjectFileHandler handler =
+        projectLoader.fetchProjectMetaData(projectId, version);
+    if (handler == null) {
+      return null;
+    }
+
+    String name = toHex(handler.getMd5Hash());
+    synchronized (this) {
+      File cached = new File(cacheDir, name);
+      if (cached.exists()) {
+        hits.incrementAndGet();
+        cached.setLastModified(System.currentTimeMillis());
+        // a hard link of its own, so an eviction can't pull the file away
+        // from under the caller
+        File link = newTempFile(name);
+        Files.createLink(link.toPath(), cached.toPath());
+        handler.setLocalFile(link);
+        return handler;
+      }
+    }
+
+    misses.incrementAndGet();
+    ProjectFileHandler fetched =
+        projectLoader.getUploadedFile(projectId, version);
+    if (fetched == null) {
+      return null;
+    }
+    put(name, fetched.getLocalFile());
+    return fetched;
+  }
+
+  private synchronized void put(String name, File file) throws IOException {
+    if (file.length() > maxBytes) {
+      return;
+    }
+
+    File cached = new File(cacheDir, name);
+    if (!cached.exists()) {
+      File temp = newTempFile(name);
+      Files.copy(file.toPath(), temp.toPath());
+      if (!temp.renameTo(cached)) {
+        temp.delete();
+        throw new IOException("Failed to cache " + cached);
+      }
+    }
+    evict();
+  }
+
+  private void evict() {
+    File[] files = cacheDir.listFiles();
+    if (files == null) {
+      return;
+    }
+
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File a, File b) {
+        return Long.compare(a.lastModified(), b.lastModified());
+      }
+    });
+
+    // the links handed out are in use by a setup, they go with the setup
+    long size = 0;
+    for (File file : files) {
+      if (!file.getName().endsWith(TEMP_SUFFIX)) {
+        size += file.length();
+      }
+    }
+    for (int i = 0; i < files.length && size > maxBytes; i++) {
+      if (files[i].getName().endsWith(TEMP_SUFFIX)) {
+        continue;
+      }
+      long length = files[i].length();
+      if (files[i].delete()) {
+        size -= length;
+        logger.info("Evicted project file " + files[i].getName());
+      }
+    }
+  }
+
+  private File newTempFile(String name) {
+    return new File(cacheDir, name + "." + tempCount.incrementAndGet()
+        + TEMP_SUFFIX);
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder();
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(
+          Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+}
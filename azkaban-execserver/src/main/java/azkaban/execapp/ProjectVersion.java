@@ -27,12 +27,13 @@ import azkaban.project.ProjectFileHandler;
 import azkaban.project.ProjectLoader;
 import azkaban.project.ProjectManagerException;
 import azkaban.utils.FileIOUtils;
+import azkaban.utils.FileIOUtils.LinkMode;
 import azkaban.utils.Utils;
 
 public class ProjectVersion implements Comparable<ProjectVersion> {
   private final int projectId;
   private final int version;
-  private File installedDir;
+  private volatile File installedDir;
 
   public ProjectVersion(int projectId, int version) {
     this.projectId = projectId;
@@ -53,9 +54,27 @@ public class ProjectVersion implements Comparable<ProjectVersion> {
     return version;
   }
 
+  /**
+   * Whether the files are set up, doesn't wait for a setup in progress.
+   */
+  public boolean isInstalled() {
+    File dir = installedDir;
+    return dir != null && dir.exists();
+  }
+
   public synchronized void setupProjectFiles(ProjectLoader projectLoader,
       File projectDir, Logger logger) throws ProjectManagerException,
       IOException {
+    setupProjectFiles(projectLoader, projectDir, null, logger);
+  }
+
+  /**
+   * @param artifactCache the local cache of uploaded files, null to always
+   *          fetch the file from the db
+   */
+  public synchronized void setupProjectFiles(ProjectLoader projectLoader,
+      File projectDir, ProjectArtifactCache artifactCache, Logger logger)
+      throws ProjectManagerException, IOException {
     String projectVersion =
         String.valueOf(projectId) + "." + String.valueOf(version);
     if (installedDir == null) {
@@ -73,7 +92,17 @@ public class ProjectVersion implements Comparable<ProjectVersion> {
       tempDir.mkdirs();
       ProjectFileHandler projectFileHandler = null;
       try {
-        projectFileHandler = projectLoader.getUploadedFile(projectId, version);
+        if (artifactCache != null) {
+          projectFileHandler =
+              artifactCache.getUploadedFile(projectLoader, projectId, version);
+        } else {
+          projectFileHandler =
+              projectLoader.getUploadedFile(projectId, version);
+        }
+        if (projectFileHandler == null) {
+          throw new ProjectManagerException("Project " + projectId
+              + " version " + version + " doesn't exist");
+        }
         if ("zip".equals(projectFileHandler.getFileType())) {
           logger.info("Downloading zip file.");
           ZipFile zip = new ZipFile(projectFileHandler.getLocalFile());
@@ -93,6 +122,11 @@ public class ProjectVersion implements Comparable<ProjectVersion> {
 
   public synchronized void copyCreateSymlinkDirectory(File executionDir)
       throws IOException {
+    copyCreateSymlinkDirectory(executionDir, LinkMode.SYMLINK);
+  }
+
+  public synchronized void copyCreateSymlinkDirectory(File executionDir,
+      LinkMode linkMode) throws IOException {
     if (installedDir == null || !installedDir.exists()) {
       throw new IOException("Installed dir doesn't exist: "
           + ((installedDir == null) ? null : installedDir.getAbsolutePath()));
@@ -100,7 +134,7 @@ public class ProjectVersion implements Comparable<ProjectVersion> {
       throw new IOException("Execution dir doesn't exist: "
           + ((executionDir == null) ? null : executionDir.getAbsolutePath()));
     }
-    FileIOUtils.createDeepSymlink(installedDir, executionDir);
+    FileIOUtils.createDeepLinks(installedDir, executionDir, linkMode);
   }
 
   public synchronized void deleteDirectory() throws IOException {
@@ -186,6 +186,8 @@ public class ServerStatisticsServlet extends HttpServlet {
 
       fillRemainingMemoryPercent(stats);
       fillRemainingFlowCapacityAndLastDispatchedTime(stats);
+      fillRemainingJobSlots(stats);
+      fillWarmProjectVersions(stats);
       fillCpuUsage(stats);
 
       cachedstats = stats;
@@ -213,6 +215,38 @@ public class ServerStatisticsServlet extends HttpServlet {
     }
   }
 
+  /**
+   * fill the result set with the free and queued job slots of the shared job scheduler.
+   * @param stats reference to the result container which contains all the results, this specific method
+   *              will only work on the properties "remainingJobSlots" and "numberOfQueuedJobs".
+   */
+  protected void fillRemainingJobSlots(ExecutorInfo stats) {
+    AzkabanExecutorServer server = AzkabanExecutorServer.getApp();
+    if (server != null) {
+      JobScheduler scheduler = server.getFlowRunnerManager().getJobScheduler();
+      stats.setRemainingJobSlots(scheduler.getRemainingJobSlots());
+      stats.setNumberOfQueuedJobs(scheduler.getNumQueuedJobs());
+    } else {
+      logger.error("failed to get data for remaining job slots"
+          + " as the AzkabanExecutorServer has yet been initialized.");
+    }
+  }
+
+  /**
+   * fill the result set with the project versions installed on this executor.
+   * @param stats reference to the result container which contains all the results, this specific method
+   *              will only work on the property "warmProjectVersions".
+   */
+  protected void fillWarmProjectVersions(ExecutorInfo stats) {
+    AzkabanExecutorServer server = AzkabanExecutorServer.getApp();
+    if (server != null) {
+      stats.setWarmProjectVersions(server.getFlowRunnerManager().getWarmProjectVersions());
+    } else {
+      logger.error("failed to get data for warm project versions"
+          + " as the AzkabanExecutorServer has yet been initialized.");
+    }
+  }
+
   /**<pre>
    * fill the result set with the CPU usage .
    * Note : As the 'Top' bash call doesn't yield accurate result for the system load,
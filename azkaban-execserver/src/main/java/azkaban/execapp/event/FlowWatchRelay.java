@@ -0,0 +1,357 @@
+/*
+ * Copyright 2014 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package azkaban.execapp.event;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.log4j.Logger;
+
+import azkaban.event.Event;
+import azkaban.event.Event.Type;
+import azkaban.event.EventListener;
+import azkaban.execapp.FlowRunner;
+import azkaban.execapp.JobRunner;
+import azkaban.executor.ConnectorParams;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableFlowBase;
+import azkaban.executor.ExecutableNode;
+import azkaban.executor.Executor;
+import azkaban.executor.ExecutorApiClient;
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.Status;
+import azkaban.utils.JSONUtils;
+import azkaban.utils.Pair;
+
+/**
+ * <pre>
+ * 执行服务器之间的任务状态转发，
+ * 流水线执行时被观察的任务流在其他执行服务器上运行，
+ * 其任务结束时直接通知观察方，而不是由观察方定时从数据库读取整个任务流
+ * Note:
+ * 1. the watching executor asks the executor running the watched flow to
+ *    relay to it. That executor replies with the jobs already finished, then
+ *    sends every job that finishes, and the flow status once the flow is done
+ * 2. notifications are sent by one thread, the ones queued in the meantime
+ *    go in one request per watcher and execution
+ * 3. a lost notification isn't resent, the {@link RemoteFlowWatcher} keeps
+ *    polling the db as a fallback
+ * </pre>
+ */
+public class FlowWatchRelay extends Thread implements EventListener {
+  private static final Logger logger = Logger.getLogger(FlowWatchRelay.class);
+
+  private static final List<NameValuePair> FORM_HEADERS = Collections
+      .<NameValuePair> singletonList(new BasicNameValuePair("Content-Type",
+          "application/x-www-form-urlencoded"));
+
+  /** 本执行服务器的host:port，观察方用它接收通知 */
+  private final String hostPort;
+
+  /** 在本执行服务器上运行、被其他执行服务器观察的任务流 */
+  private final Map<Integer, Set<String>> subscribers =
+      new ConcurrentHashMap<Integer, Set<String>>();
+  /** 本执行服务器上观察远程任务流的观察者 */
+  private final Map<Integer, List<RemoteFlowWatcher>> watchers =
+      new ConcurrentHashMap<Integer, List<RemoteFlowWatcher>>();
+
+  private final BlockingQueue<Notification> pending =
+      new LinkedBlockingQueue<Notification>();
+
+  private volatile boolean shutdown = false;
+
+  public FlowWatchRelay(String hostPort) {
+    this.hostPort = hostPort;
+    this.setName("FlowWatchRelay");
+    this.setDaemon(true);
+  }
+
+  /**
+   * Registers a local watcher and asks the executor running the watched
+   * flow to relay its job statuses here.
+   *
+   * @return false if the relay couldn't be set up, the watcher has to poll
+   */
+  public boolean watch(RemoteFlowWatcher watcher, ExecutorLoader loader) {
+    int execId = watcher.getExecId();
+    synchronized (watchers) {
+      List<RemoteFlowWatcher> list = watchers.get(execId);
+      if (list == null) {
+        list = new CopyOnWriteArrayList<RemoteFlowWatcher>();
+        watchers.put(execId, list);
+      }
+      list.add(watcher);
+    }
+
+    try {
+      Executor executor = loader.fetchExecutorByExecutionId(execId);
+      if (executor == null) {
+        return false;
+      }
+      List<Pair<String, String>> params = new ArrayList<Pair<String, String>>();
+      params.add(new Pair<String, String>(ConnectorParams.ACTION_PARAM,
+          ConnectorParams.WATCH_ACTION));
+      params.add(new Pair<String, String>(ConnectorParams.EXECID_PARAM, String
+          .valueOf(execId)));
+      params.add(new Pair<String, String>(ConnectorParams.WATCHER_PARAM,
+          hostPort));
+      URI uri =
+          ExecutorApiClient.buildUri(executor.getHost(), executor.getPort(),
+              "/executor", true, params);
+      String response = ExecutorApiClient.getInstance().httpGet(uri, null);
+      @SuppressWarnings("unchecked")
+      Map<String, Object> responseMap =
+          (Map<String, Object>) JSONUtils.parseJSONFromString(response);
+      return ConnectorParams.RESPONSE_SUCCESS.equals(responseMap
+          .get(ConnectorParams.STATUS_PARAM));
+    } catch (ExecutorManagerException e) {
+      logger.error("Failed to find the executor of " + execId, e);
+    } catch (IOException e) {
+      logger.error("Failed to watch " + execId + " through its executor", e);
+    }
+    return false;
+  }
+
+  public void unwatch(RemoteFlowWatcher watcher) {
+    synchronized (watchers) {
+      List<RemoteFlowWatcher> list = watchers.get(watcher.getExecId());
+      if (list != null) {
+        list.remove(watcher);
+        if (list.isEmpty()) {
+          watchers.remove(watcher.getExecId());
+        }
+      }
+    }
+  }
+
+  /**
+   * Hands the statuses relayed by another executor to the local watchers.
+   *
+   * @param flowStatus the status of the watched flow once it's done, or null
+   */
+  public void deliver(int execId, Map<String, Status> jobStatuses,
+      Status flowStatus) {
+    List<RemoteFlowWatcher> list = watchers.get(execId);
+    if (list == null) {
+      return;
+    }
+    for (RemoteFlowWatcher watcher : list) {
+      watcher.handleRelayedStatuses(jobStatuses, flowStatus);
+    }
+  }
+
+  /**
+   * Starts relaying the job statuses of a flow running here to the given
+   * watcher executor.
+   */
+  public void addSubscriber(FlowRunner runner, String watcher) {
+    ExecutableFlow flow = runner.getExecutableFlow();
+    int execId = flow.getExecutionId();
+    synchronized (subscribers) {
+      Set<String> set = subscribers.get(execId);
+      if (set == null) {
+        set = ConcurrentHashMap.newKeySet();
+        subscribers.put(execId, set);
+      }
+      set.add(watcher);
+    }
+
+    // the jobs finished before the subscription
+    List<ExecutableNode> finished = new ArrayList<ExecutableNode>();
+    collectFinishedNodes(flow, finished);
+    for (ExecutableNode node : finished) {
+      pending.add(new Notification(watcher, execId, node.getNestedId(), node
+          .getStatus()));
+    }
+    if (Status.isStatusFinished(flow.getStatus())) {
+      flowFinished(flow);
+    }
+  }
+
+  private void collectFinishedNodes(ExecutableFlowBase flow,
+      List<ExecutableNode> finished) {
+    for (ExecutableNode node : flow.getExecutableNodes()) {
+      if (Status.isStatusFinished(node.getStatus())) {
+        finished.add(node);
+      }
+      if (node instanceof ExecutableFlowBase) {
+        collectFinishedNodes((ExecutableFlowBase) node, finished);
+      }
+    }
+  }
+
+  public void shutdown() {
+    shutdown = true;
+    this.interrupt();
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    if (subscribers.isEmpty()) {
+      return;
+    }
+
+    if (event.getType() == Type.JOB_FINISHED) {
+      ExecutableNode node = null;
+      if (event.getRunner() instanceof FlowRunner) {
+        // a job finished by the flow runner without running
+        if (event.getData() instanceof ExecutableNode) {
+          node = (ExecutableNode) event.getData();
+        }
+      } else if (event.getRunner() instanceof JobRunner) {
+        node = ((JobRunner) event.getRunner()).getNode();
+      }
+      if (node == null) {
+        return;
+      }
+
+      int execId = node.getExecutableFlow().getExecutionId();
+      Set<String> set = subscribers.get(execId);
+      if (set != null) {
+        for (String watcher : set) {
+          pending.add(new Notification(watcher, execId, node.getNestedId(),
+              node.getStatus()));
+        }
+      }
+    } else if (event.getType() == Type.FLOW_FINISHED
+        && event.getRunner() instanceof FlowRunner) {
+      flowFinished(((FlowRunner) event.getRunner()).getExecutableFlow());
+    }
+  }
+
+  private void flowFinished(ExecutableFlow flow) {
+    Set<String> set = subscribers.remove(flow.getExecutionId());
+    if (set != null) {
+      for (String watcher : set) {
+        pending.add(new Notification(watcher, flow.getExecutionId(), null,
+            flow.getStatus()));
+      }
+    }
+  }
+
+  @Override
+  public void run() {
+    while (!shutdown) {
+      List<Notification> notifications = new ArrayList<Notification>();
+      try {
+        notifications.add(pending.take());
+      } catch (InterruptedException e) {
+        logger.info("Interrupted. Probably to shut down.");
+        continue;
+      }
+      pending.drainTo(notifications);
+
+      try {
+        send(notifications);
+      } catch (Exception e) {
+        logger.error("Failed to relay job statuses", e);
+      }
+    }
+  }
+
+  private void send(List<Notification> notifications) {
+    // grouped by watcher and execution, in the order they were queued
+    Map<Pair<String, Integer>, List<Notification>> requests =
+        new HashMap<Pair<String, Integer>, List<Notification>>();
+    for (Notification notification : notifications) {
+      Pair<String, Integer> key =
+          new Pair<String, Integer>(notification.watcher,
+              notification.execId);
+      List<Notification> list = requests.get(key);
+      if (list == null) {
+        list = new ArrayList<Notification>();
+        requests.put(key, list);
+      }
+      list.add(notification);
+    }
+
+    for (Map.Entry<Pair<String, Integer>, List<Notification>> entry : requests
+        .entrySet()) {
+      String watcher = entry.getKey().getFirst();
+      int execId = entry.getKey().getSecond();
+      Map<String, String> jobStatuses = new HashMap<String, String>();
+      Status flowStatus = null;
+      for (Notification notification : entry.getValue()) {
+        if (notification.jobId == null) {
+          flowStatus = notification.status;
+        } else {
+          jobStatuses.put(notification.jobId, notification.status.name());
+        }
+      }
+
+      // posted as a form, the statuses of a big flow don't fit a query
+      List<NameValuePair> params = new ArrayList<NameValuePair>();
+      params.add(new BasicNameValuePair(ConnectorParams.ACTION_PARAM,
+          ConnectorParams.WATCHED_STATUS_ACTION));
+      params.add(new BasicNameValuePair(ConnectorParams.EXECID_PARAM, String
+          .valueOf(execId)));
+      try {
+        params.add(new BasicNameValuePair(ConnectorParams.NODES_PARAM,
+            JSONUtils.toJSON(jobStatuses)));
+        if (flowStatus != null) {
+          params.add(new BasicNameValuePair(ConnectorParams.STATUS_PARAM,
+              flowStatus.name()));
+        }
+
+        int split = watcher.lastIndexOf(':');
+        URI uri =
+            ExecutorApiClient.buildUri(watcher.substring(0, split), Integer
+                .parseInt(watcher.substring(split + 1)), "/executor", true,
+                (List<Pair<String, String>>) null);
+        ExecutorApiClient.getInstance().httpPost(uri, FORM_HEADERS,
+            URLEncodedUtils.format(params, "UTF-8"));
+      } catch (Exception e) {
+        // the watcher falls back to polling the db
+        logger.error("Failed to relay " + entry.getValue().size()
+            + " statuses of " + execId + " to " + watcher, e);
+      }
+    }
+  }
+
+  /**
+   * 一条待发送的状态通知，jobId为null时是任务流的最终状态
+   */
+  private static class Notification {
+    private final String watcher;
+    private final int execId;
+    private final String jobId;
+    private final Status status;
+
+    public Notification(String watcher, int execId, String jobId,
+        Status status) {
+      this.watcher = watcher;
+      this.execId = execId;
+      this.jobId = jobId;
+      this.status = status;
+    }
+  }
+}
@@ -17,8 +17,11 @@
 package azkaban.execapp.event;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.log4j.Logger;
+
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutableNode;
 import azkaban.executor.ExecutorLoader;
@@ -26,21 +29,35 @@ import azkaban.executor.ExecutorManagerException;
 import azkaban.executor.Status;
 
 /**
+ * <pre>
  * 远程任务流运行过程中的观察者
  * 在本系统的设计中，执行节点管理器、任务流管理器、project管理器都是只存在一份
  * 并存在各个节点之间，
  * 这个更新线程，使用到的是对这些公共对象的引用，并调用这些对象中相应的方法，
  * 对任务流执行过程中的相应的状态、信息等进行更新、监控等
  * 处理其中的任务节点的信息、状态变迁等
+ * Note:
+ * 1. with a {@link FlowWatchRelay} the job statuses are pushed by the
+ *    executor running the watched flow, as they change. The db is still
+ *    polled, but only to catch up on lost notifications
+ * 2. without a relay, or if the relay can't be set up, the db poll is the
+ *    only source of updates
+ * </pre>
  */
 public class RemoteFlowWatcher extends FlowWatcher {
+  private static final Logger logger = Logger
+      .getLogger(RemoteFlowWatcher.class);
   private final static long CHECK_INTERVAL_MS = 60 * 1000;
 
   private int execId;
   private ExecutorLoader loader;
+  private FlowWatchRelay relay;
   private ExecutableFlow flow;
   private RemoteUpdaterThread thread;
-  private boolean isShutdown = false;
+  private volatile boolean isShutdown = false;
+  /* relayed finished statuses, the db may not have caught up with them yet */
+  private final Map<String, Status> relayedStatuses =
+      new HashMap<String, Status>();
 
   // Every minute
   private long checkIntervalMs = CHECK_INTERVAL_MS;
@@ -50,6 +67,15 @@ public class RemoteFlowWatcher extends FlowWatcher {
   }
 
   public RemoteFlowWatcher(int execId, ExecutorLoader loader, long interval) {
+    this(execId, loader, null, interval);
+  }
+
+  /**
+   * @param relay delivers the job statuses pushed by the remote executor,
+   *          null to poll the db only
+   */
+  public RemoteFlowWatcher(int execId, ExecutorLoader loader,
+      FlowWatchRelay relay, long interval) {
     super(execId);
     checkIntervalMs = interval;
 
@@ -61,6 +87,7 @@ public class RemoteFlowWatcher extends FlowWatcher {
 
     super.setFlow(flow);
     this.loader = loader;
+    this.relay = relay;
     this.execId = execId;
     if (flow != null) {
       this.thread = new RemoteUpdaterThread();
@@ -69,6 +96,37 @@ public class RemoteFlowWatcher extends FlowWatcher {
     }
   }
 
+  /**
+   * Applies the job statuses relayed by the executor running the flow, and
+   * unblocks the jobs waiting on them right away.
+   *
+   * @param flowStatus the final status of the flow, or null if it's running
+   */
+  public synchronized void handleRelayedStatuses(
+      Map<String, Status> jobStatuses, Status flowStatus) {
+    if (isShutdown || flow == null) {
+      return;
+    }
+
+    for (Map.Entry<String, Status> entry : jobStatuses.entrySet()) {
+      ExecutableNode node = flow.getExecutableNodePath(entry.getKey());
+      if (node != null) {
+        node.setStatus(entry.getValue());
+      }
+      if (Status.isStatusFinished(entry.getValue())) {
+        relayedStatuses.put(entry.getKey(), entry.getValue());
+      }
+      handleJobStatusChange(entry.getKey(), entry.getValue());
+    }
+
+    if (flowStatus != null && thread != null) {
+      // the poll picks up the final state of the flow and stops the watch
+      synchronized (thread) {
+        thread.notify();
+      }
+    }
+  }
+
     /**
      * <pre>
      * 远程任务流更新线程，
@@ -82,7 +140,16 @@ public class RemoteFlowWatcher extends FlowWatcher {
   private class RemoteUpdaterThread extends Thread {
     @Override
     public void run() {
+      if (relay != null && relay.watch(RemoteFlowWatcher.this, loader)) {
+        logger.info("Watching " + execId + " through the relay");
+      }
+
       do {
+        // cleared by stopWatcher, possibly while the relay was set up
+        ExecutorLoader loader = RemoteFlowWatcher.this.loader;
+        if (loader == null) {
+          break;
+        }
         ExecutableFlow updateFlow = null;
         try {
           updateFlow = loader.fetchExecutableFlow(execId);
@@ -99,14 +166,25 @@ public class RemoteFlowWatcher extends FlowWatcher {
               updateFlow.toUpdateObject(updateTime);
           ArrayList<ExecutableNode> updatedNodes =
               new ArrayList<ExecutableNode>();
-          flow.applyUpdateObject(updateData, updatedNodes);
-
-          flow.setStatus(updateFlow.getStatus());
-          flow.setEndTime(updateFlow.getEndTime());
-          flow.setUpdateTime(updateFlow.getUpdateTime());
-
-          for (ExecutableNode node : updatedNodes) {
-            handleJobStatusChange(node.getNestedId(), node.getStatus());
+          synchronized (RemoteFlowWatcher.this) {
+            if (isShutdown) {
+              break;
+            }
+            flow.applyUpdateObject(updateData, updatedNodes);
+
+            flow.setStatus(updateFlow.getStatus());
+            flow.setEndTime(updateFlow.getEndTime());
+            flow.setUpdateTime(updateFlow.getUpdateTime());
+
+            for (ExecutableNode node : updatedNodes) {
+              Status relayed = relayedStatuses.get(node.getNestedId());
+              if (relayed != null && !Status.isStatusFinished(node.getStatus())) {
+                // a stale row, keep the relayed status
+                node.setStatus(relayed);
+                continue;
+              }
+              handleJobStatusChange(node.getNestedId(), node.getStatus());
+            }
           }
 
           updateTime = flow.getUpdateTime();
@@ -136,6 +214,9 @@ public class RemoteFlowWatcher extends FlowWatcher {
     if (thread != null) {
       thread.interrupt();
     }
+    if (relay != null) {
+      relay.unwatch(this);
+    }
     super.unblockAllWatches();
     loader = null;
     flow = null;
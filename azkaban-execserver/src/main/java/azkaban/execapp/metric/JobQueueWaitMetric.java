@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp.metric;
+
+import azkaban.execapp.JobScheduler;
+import azkaban.metric.MetricException;
+import azkaban.metric.MetricReportManager;
+import azkaban.metric.TimeBasedReportingMetric;
+
+/**
+ * Metric to keep track of the longest time a job waited for a slot of the
+ * shared job scheduler, in milliseconds, in between the tracking events
+ */
+public class JobQueueWaitMetric extends TimeBasedReportingMetric<Long> {
+  public static final String JOB_QUEUE_WAIT_METRIC_NAME = "JobQueueWaitMetric";
+  private static final String JOB_QUEUE_WAIT_METRIC_TYPE = "uint32";
+
+  private JobScheduler jobScheduler;
+
+  /**
+   * @param jobScheduler job scheduler shared by the flows
+   * @param manager metric report manager
+   * @param interval reporting interval
+   * @throws MetricException
+   */
+  public JobQueueWaitMetric(JobScheduler jobScheduler, MetricReportManager manager, long interval) throws MetricException {
+    super(JOB_QUEUE_WAIT_METRIC_NAME, JOB_QUEUE_WAIT_METRIC_TYPE, 0L, manager, interval);
+    logger.debug("Instantiated JobQueueWaitMetric");
+    this.jobScheduler = jobScheduler;
+  }
+
+  /**
+   * Take the longest wait since the last tracking event
+   * {@inheritDoc}
+   * @see azkaban.metric.TimeBasedReportingMetric#preTrackingEventMethod()
+   */
+  @Override
+  protected synchronized void preTrackingEventMethod() {
+    value = jobScheduler.getAndResetMaxWaitMs();
+  }
+
+  @Override
+  protected void postTrackingEventMethod() {
+    // nothing to post process
+  }
+
+}
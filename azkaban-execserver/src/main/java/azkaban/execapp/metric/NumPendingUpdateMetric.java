@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp.metric;
+
+import azkaban.execapp.CoalescingUpdateWriter;
+import azkaban.metric.MetricException;
+import azkaban.metric.MetricReportManager;
+import azkaban.metric.TimeBasedReportingMetric;
+
+/**
+ * Metric to keep track of number of db updates waiting in the write-behind
+ * stage of Azkaban exec server
+ */
+public class NumPendingUpdateMetric extends TimeBasedReportingMetric<Integer> {
+  public static final String NUM_PENDING_UPDATE_METRIC_NAME = "NumPendingUpdateMetric";
+  private static final String NUM_PENDING_UPDATE_METRIC_TYPE = "uint16";
+
+  private CoalescingUpdateWriter updateWriter;
+
+  /**
+   * @param updateWriter write-behind stage of the db updates
+   * @param manager metric report manager
+   * @param interval reporting interval
+   * @throws MetricException
+   */
+  public NumPendingUpdateMetric(CoalescingUpdateWriter updateWriter, MetricReportManager manager, long interval) throws MetricException {
+    super(NUM_PENDING_UPDATE_METRIC_NAME, NUM_PENDING_UPDATE_METRIC_TYPE, 0, manager, interval);
+    logger.debug("Instantiated NumPendingUpdateMetric");
+    this.updateWriter = updateWriter;
+  }
+
+  /**
+   * Update value using the write-behind stage
+   * {@inheritDoc}
+   * @see azkaban.metric.TimeBasedReportingMetric#preTrackingEventMethod()
+   */
+  @Override
+  protected synchronized void preTrackingEventMethod() {
+    value = updateWriter.getNumPendingWrites();
+  }
+
+  @Override
+  protected void postTrackingEventMethod() {
+    // nothing to post process
+  }
+
+}
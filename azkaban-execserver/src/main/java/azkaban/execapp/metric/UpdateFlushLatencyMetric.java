@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp.metric;
+
+import azkaban.execapp.CoalescingUpdateWriter;
+import azkaban.metric.MetricException;
+import azkaban.metric.MetricReportManager;
+import azkaban.metric.TimeBasedReportingMetric;
+
+/**
+ * Metric to keep track of the longest flush of the db update write-behind
+ * stage, in milliseconds, in between the tracking events
+ */
+public class UpdateFlushLatencyMetric extends TimeBasedReportingMetric<Long> {
+  public static final String UPDATE_FLUSH_LATENCY_METRIC_NAME = "UpdateFlushLatencyMetric";
+  private static final String UPDATE_FLUSH_LATENCY_METRIC_TYPE = "uint32";
+
+  private CoalescingUpdateWriter updateWriter;
+
+  /**
+   * @param updateWriter write-behind stage of the db updates
+   * @param manager metric report manager
+   * @param interval reporting interval
+   * @throws MetricException
+   */
+  public UpdateFlushLatencyMetric(CoalescingUpdateWriter updateWriter, MetricReportManager manager, long interval) throws MetricException {
+    super(UPDATE_FLUSH_LATENCY_METRIC_NAME, UPDATE_FLUSH_LATENCY_METRIC_TYPE, 0L, manager, interval);
+    logger.debug("Instantiated UpdateFlushLatencyMetric");
+    this.updateWriter = updateWriter;
+  }
+
+  /**
+   * Take the longest flush since the last tracking event
+   * {@inheritDoc}
+   * @see azkaban.metric.TimeBasedReportingMetric#preTrackingEventMethod()
+   */
+  @Override
+  protected synchronized void preTrackingEventMethod() {
+    value = updateWriter.getAndResetMaxFlushLatency();
+  }
+
+  @Override
+  protected void postTrackingEventMethod() {
+    // nothing to post process
+  }
+
+}
@@ -0,0 +1,2 @@
+ALTER TABLE execution_flows ADD COLUMN schedule_id INT DEFAULT NULL;
+CREATE INDEX ex_flows_schedule_id ON execution_flows(schedule_id);
@@ -56,6 +56,7 @@ import org.mortbay.thread.QueuedThreadPool;
 
 import azkaban.alert.Alerter;
 import azkaban.database.AzkabanDatabaseSetup;
+import azkaban.executor.ExecutionUpdateServlet;
 import azkaban.executor.ExecutorManager;
 import azkaban.executor.JdbcExecutorLoader;
 import azkaban.jmx.JmxExecutorManager;
@@ -795,6 +796,11 @@ public class AzkabanWebServer extends AzkabanServer {
         root.addServlet(new ServletHolder(new JMXHttpServlet()), "/jmx");
         root.addServlet(new ServletHolder(new TriggerManagerServlet()), "/triggers");
         root.addServlet(new ServletHolder(new StatsServlet()), "/stats");
+        if (azkabanSettings.getBoolean("azkaban.execution.update.push.enabled",
+            false)) {
+          root.addServlet(new ServletHolder(new ExecutionUpdateServlet(app
+              .getExecutorManager())), ExecutionUpdateServlet.URL);
+        }
 
         ServletHolder restliHolder = new ServletHolder(new RestliServlet());
         restliHolder.setInitParameter("resourcePackages", "azkaban.restli");
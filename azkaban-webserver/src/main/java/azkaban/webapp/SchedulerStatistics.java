@@ -21,7 +21,7 @@ import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
 
-import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutionSummary;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.executor.Status;
@@ -75,7 +75,7 @@ public class SchedulerStatistics {
         Schedule schedule = scheduleManager.getSchedule(scheduleId);
 
         try {
-            List<ExecutableFlow> executables = executorManager.getExecutableFlows(
+            List<ExecutionSummary> executables = executorManager.getExecutionSummaries(
                     schedule.getProjectId(), schedule.getFlowName(), 0,
                     ScheduleStatisticManager.STAT_NUMBERS, Status.SUCCEEDED);
 
@@ -87,7 +87,7 @@ public class SchedulerStatistics {
                 min = 0;
                 max = 0;
             } else {
-                for (ExecutableFlow flow : executables) {
+                for (ExecutionSummary flow : executables) {
                     long time = flow.getEndTime() - flow.getStartTime();
                     average += time;
                     if (time < min) {
@@ -125,9 +125,13 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
         } else if (ajaxName.equals("resumeFlow")) {
           ajaxResumeFlow(req, resp, ret, session.getUser(), exFlow);
         } else if (ajaxName.equals("fetchExecFlowLogs")) {
-          ajaxFetchExecFlowLogs(req, resp, ret, session.getUser(), exFlow);
+          if (ajaxFetchExecFlowLogs(req, resp, ret, session.getUser(), exFlow)) {
+            ret = null;
+          }
         } else if (ajaxName.equals("fetchExecJobLogs")) {
-          ajaxFetchJobLogs(req, resp, ret, session.getUser(), exFlow);
+          if (ajaxFetchJobLogs(req, resp, ret, session.getUser(), exFlow)) {
+            ret = null;
+          }
         } else if (ajaxName.equals("fetchExecJobStats")) {
           ajaxFetchJobStats(req, resp, ret, session.getUser(), exFlow);
         } else if (ajaxName.equals("retryFailedJobs")) {
@@ -429,21 +433,35 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
    * @param exFlow
    * @throws ServletException
    */
-  private void ajaxFetchExecFlowLogs(HttpServletRequest req,
+  /**
+   * Gets the flow log, as json or, with the stream param, as plain text
+   * written straight to the response.
+   *
+   * @return true if the log was streamed and no json should follow
+   */
+  private boolean ajaxFetchExecFlowLogs(HttpServletRequest req,
       HttpServletResponse resp, HashMap<String, Object> ret, User user,
       ExecutableFlow exFlow) throws ServletException {
     Project project =
         getProjectAjaxByPermission(ret, exFlow.getProjectId(), user, Type.READ);
     if (project == null) {
-      return;
+      return false;
     }
 
-    int offset = this.getIntParam(req, "offset");
-    int length = this.getIntParam(req, "length");
-
     resp.setCharacterEncoding("utf-8");
 
     try {
+      if (hasParam(req, "stream")) {
+        int offset = this.getIntParam(req, "offset", 0);
+        int length = this.getIntParam(req, "length", -1);
+        resp.setContentType("text/plain");
+        executorManager.streamExecutableFlowLog(exFlow, offset, length,
+            resp.getOutputStream());
+        return true;
+      }
+
+      int offset = this.getIntParam(req, "offset");
+      int length = this.getIntParam(req, "length");
       LogData data =
           executorManager.getExecutableFlowLog(exFlow, offset, length);
       if (data == null) {
@@ -457,30 +475,34 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
       }
     } catch (ExecutorManagerException e) {
       throw new ServletException(e);
+    } catch (IOException e) {
+      throw new ServletException(e);
     }
+    return false;
   }
 
   /**
    * Gets the logs through ajax plain text stream to reduce memory overhead.
+   * Without the stream param the range is returned as json, with it the
+   * range, or the rest of the log if no length is given, is written to the
+   * response as it is read.
    *
    * @param req
    * @param resp
    * @param user
    * @param exFlow
+   * @return true if the log was streamed and no json should follow
    * @throws ServletException
    */
-  private void ajaxFetchJobLogs(HttpServletRequest req,
+  private boolean ajaxFetchJobLogs(HttpServletRequest req,
       HttpServletResponse resp, HashMap<String, Object> ret, User user,
       ExecutableFlow exFlow) throws ServletException {
     Project project =
         getProjectAjaxByPermission(ret, exFlow.getProjectId(), user, Type.READ);
     if (project == null) {
-      return;
+      return false;
     }
 
-    int offset = this.getIntParam(req, "offset");
-    int length = this.getIntParam(req, "length");
-
     String jobId = this.getParam(req, "jobId");
     resp.setCharacterEncoding("utf-8");
 
@@ -489,10 +511,21 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
       if (node == null) {
         ret.put("error",
             "Job " + jobId + " doesn't exist in " + exFlow.getExecutionId());
-        return;
+        return false;
       }
 
       int attempt = this.getIntParam(req, "attempt", node.getAttempt());
+      if (hasParam(req, "stream")) {
+        int offset = this.getIntParam(req, "offset", 0);
+        int length = this.getIntParam(req, "length", -1);
+        resp.setContentType("text/plain");
+        executorManager.streamExecutionJobLog(exFlow, jobId, offset, length,
+            attempt, resp.getOutputStream());
+        return true;
+      }
+
+      int offset = this.getIntParam(req, "offset");
+      int length = this.getIntParam(req, "length");
       LogData data =
           executorManager.getExecutionJobLog(exFlow, jobId, offset, length,
               attempt);
@@ -507,7 +540,10 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
       }
     } catch (ExecutorManagerException e) {
       throw new ServletException(e);
+    } catch (IOException e) {
+      throw new ServletException(e);
     }
+    return false;
   }
 
   private void ajaxFetchJobStats(HttpServletRequest req,
@@ -27,7 +27,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.joda.time.format.DateTimeFormat;
 
-import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutionSummary;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.project.Project;
@@ -99,7 +99,7 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
     if (pageNum < 0) {
       pageNum = 1;
     }
-    List<ExecutableFlow> history = null;
+    List<ExecutionSummary> history = null;
     if (hasParam(req, "advfilter")) {
       String projContain = getParam(req, "projcontain");
       String flowContain = getParam(req, "flowcontain");
@@ -117,7 +117,7 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
               .parseDateTime(end).getMillis();
       try {
         history =
-            executorManager.getExecutableFlows(projContain, flowContain,
+            executorManager.getExecutionSummaries(projContain, flowContain,
                 userContain, status, beginTime, endTime, (pageNum - 1)
                     * pageSize, pageSize);
       } catch (ExecutorManagerException e) {
@@ -127,7 +127,7 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
       String searchTerm = getParam(req, "searchterm");
       try {
         history =
-            executorManager.getExecutableFlows(searchTerm, (pageNum - 1)
+            executorManager.getExecutionSummaries(searchTerm, (pageNum - 1)
                 * pageSize, pageSize);
       } catch (ExecutorManagerException e) {
         page.add("error", e.getMessage());
@@ -135,7 +135,7 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
     } else {
       try {
         history =
-            executorManager.getExecutableFlows((pageNum - 1) * pageSize,
+            executorManager.getExecutionSummaries((pageNum - 1) * pageSize,
                 pageSize);
       } catch (ExecutorManagerException e) {
         e.printStackTrace();
@@ -47,6 +47,7 @@ import org.apache.log4j.Logger;
 
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutableJobInfo;
+import azkaban.executor.ExecutionSummary;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.executor.Status;
@@ -404,10 +405,10 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
                                                       HashMap<String, Object> ret, HttpServletRequest req)
             throws ServletException {
         String flowId = getParam(req, "flow");
-        List<ExecutableFlow> exFlows = null;
+        List<ExecutionSummary> exFlows = null;
         try {
             exFlows =
-                    executorManager.getExecutableFlows(project.getId(), flowId, 0, 1,
+                    executorManager.getExecutionSummaries(project.getId(), flowId, 0, 1,
                             Status.SUCCEEDED);
         } catch (ExecutorManagerException e) {
             ret.put("error", "Error retrieving executable flows");
@@ -432,11 +433,11 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
         int from = Integer.valueOf(getParam(req, "start"));
         int length = Integer.valueOf(getParam(req, "length"));
 
-        ArrayList<ExecutableFlow> exFlows = new ArrayList<ExecutableFlow>();
+        ArrayList<ExecutionSummary> exFlows = new ArrayList<ExecutionSummary>();
         int total = 0;
         try {
             total =
-                    executorManager.getExecutableFlows(project.getId(), flowId, from,
+                    executorManager.getExecutionSummaries(project.getId(), flowId, from,
                             length, exFlows);
         } catch (ExecutorManagerException e) {
             ret.put("error", "Error retrieving executable flows");
@@ -448,7 +449,7 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
         ret.put("length", length);
 
         ArrayList<Object> history = new ArrayList<Object>();
-        for (ExecutableFlow flow : exFlows) {
+        for (ExecutionSummary flow : exFlows) {
             HashMap<String, Object> flowInfo = new HashMap<String, Object>();
             flowInfo.put("execId", flow.getExecutionId());
             flowInfo.put("flowId", flow.getFlowId());
@@ -1670,9 +1671,14 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
                 IOUtils.copy(item.getInputStream(), out);
                 out.close();
 
+                int oldVersion = project.getVersion();
                 Map<String, ValidationReport> reports =
                         projectManager.uploadProject(project, archiveFile, type, user,
                                 props);
+                if (project.getVersion() != oldVersion) {
+                    executorManager.prewarmProjectVersion(project.getId(),
+                            project.getVersion());
+                }
                 StringBuffer errorMsgs = new StringBuffer();
                 StringBuffer warnMsgs = new StringBuffer();
                 for (Entry<String, ValidationReport> reportEntry : reports.entrySet()) {
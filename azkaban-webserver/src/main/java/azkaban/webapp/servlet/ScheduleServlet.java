@@ -44,8 +44,8 @@ import org.joda.time.Minutes;
 import org.joda.time.ReadablePeriod;
 import org.joda.time.format.DateTimeFormat;
 
-import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutionOptions;
+import azkaban.executor.ExecutionSummary;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.flow.Flow;
@@ -497,12 +497,12 @@ public class ScheduleServlet extends LoginAbstractAzkabanServlet {
     }
 
     // Load data if not cached
-    List<ExecutableFlow> history = null;
+    List<ExecutionSummary> history = null;
     try {
       AzkabanWebServer server = (AzkabanWebServer) getApplication();
       ExecutorManagerAdapter executorManager = server.getExecutorManager();
       history =
-          executorManager.getExecutableFlows(null, null, null, 0, startTime,
+          executorManager.getExecutionSummaries(null, null, null, 0, startTime,
               endTime, -1, -1);
     } catch (ExecutorManagerException e) {
       logger.error(e);
@@ -512,7 +512,7 @@ public class ScheduleServlet extends LoginAbstractAzkabanServlet {
     List<HashMap<String, Object>> output =
         new ArrayList<HashMap<String, Object>>();
     ret.put("items", output);
-    for (ExecutableFlow historyItem : history) {
+    for (ExecutionSummary historyItem : history) {
       // Check if it is an scheduled execution
       if (historyItem.getScheduleId() >= 0 || loadAll != 0) {
         writeHistoryData(output, historyItem);
@@ -547,7 +547,7 @@ public class ScheduleServlet extends LoginAbstractAzkabanServlet {
   }
 
   private void writeHistoryData(List<HashMap<String, Object>> output,
-      ExecutableFlow history) {
+      ExecutionSummary history) {
     HashMap<String, Object> data = new HashMap<String, Object>();
 
     data.put("scheduleid", history.getScheduleId());